@@ -2,18 +2,38 @@ package Koora;
 
 // src/Balls.java
 import java.awt.Point;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 /**
  * Représente un ensemble de balles avec position et vitesse.
  * Cette classe ne contient aucune logique graphique.
+ *
+ * Les positions et vitesses sont rangées dans des tableaux de doubles (une case par balle),
+ * pour que le pas reste rapide avec des centaines de milliers de balles. Toutes les balles
+ * ont le même rayon et la même masse : leurs chocs sont élastiques.
  */
 public class Balls {
-    private List<Point> balls;           // positions courantes
-    private List<Point> PositionsInit; // positions initiales
-    private List<Point> Vitesse;       // vitesses (vx, vy)
-    private int rayon;                   // rayon des balles
+    // Positions et vitesses (package-protected pour accès efficace dans ChocsEvenementiels)
+    int n;                              // nombre de balles
+    double[] x;                         // positions courantes
+    double[] y;
+    double[] vx;                        // vitesses
+    double[] vy;
+    private double[] x0;                // positions initiales
+    private double[] y0;
+    private int rayon;                  // rayon des balles
+
+    // Grille de recherche des chocs, cases de la taille d'un diamètre, rangée comme une matrice
+    // creuse : les balles de la case c sont ordre[debut[c]] ... ordre[debut[c + 1] - 1]
+    private int colonnes;
+    private int lignes;
+    private int[] debut = new int[1];
+    private int[] ordre = new int[0];
+    private int[] caseDe = new int[0];
+    private long chocs;                 // chocs traités au dernier pas
 
     /**
      * Constructeur : initialise les positions, vitesses et le rayon.
@@ -22,85 +42,319 @@ public class Balls {
      * @param rayon rayon des balles
      */
     public Balls(List<Point> PositionsInit, List<Point> VitesseInit, int rayon) {
-        this.PositionsInit = new ArrayList<>();
-        this.balls = new ArrayList<>();
-        this.Vitesse = new ArrayList<>();
-        this.rayon = rayon;
-
-        // Copie profonde des listes
-        for (int i = 0; i < PositionsInit.size(); i++) {
-            this.PositionsInit.add(new Point(PositionsInit.get(i)));
-            this.balls.add(new Point(PositionsInit.get(i)));
-            this.Vitesse.add(new Point(VitesseInit.get(i)));
+        this(PositionsInit.size(), rayon);
+        for (int i = 0; i < n; i++) {
+            x0[i] = x[i] = PositionsInit.get(i).x;
+            y0[i] = y[i] = PositionsInit.get(i).y;
+            vx[i] = VitesseInit.get(i).x;
+            vy[i] = VitesseInit.get(i).y;
         }
     }
 
+    /**
+     * Constructeur à partir de tableaux (copiés), pour créer beaucoup de balles sans objets intermédiaires.
+     * @param x abscisses initiales
+     * @param y ordonnées initiales
+     * @param vx vitesses initiales en x
+     * @param vy vitesses initiales en y
+     * @param rayon rayon des balles
+     */
+    public Balls(double[] x, double[] y, double[] vx, double[] vy, int rayon) {
+        this(x.length, rayon);
+        System.arraycopy(x, 0, this.x, 0, n);
+        System.arraycopy(y, 0, this.y, 0, n);
+        System.arraycopy(x, 0, this.x0, 0, n);
+        System.arraycopy(y, 0, this.y0, 0, n);
+        System.arraycopy(vx, 0, this.vx, 0, n);
+        System.arraycopy(vy, 0, this.vy, 0, n);
+    }
 
+    private Balls(int n, int rayon) {
+        this.rayon = rayon;
+        allouer(n);
+    }
+
+    private void allouer(int nombre) {
+        n = nombre;
+        x = new double[n];
+        y = new double[n];
+        vx = new double[n];
+        vy = new double[n];
+        x0 = new double[n];
+        y0 = new double[n];
+        ordre = new int[n];
+        caseDe = new int[n];
+    }
 
     /**
-     * Déplace toutes les balles selon leurs vitesses et gère les rebonds sur les bords.
+     * Déplace toutes les balles selon leurs vitesses, gère les rebonds sur les bords,
+     * puis les chocs entre balles.
      * @param width largeur de la fenêtre
      * @param height hauteur de la fenêtre
      */
     public void Rebond(int width, int height) {
-        for (int i = 0; i < balls.size(); i++) {
-            Point pos = balls.get(i);
-            Point vel = Vitesse.get(i);
-
+        for (int i = 0; i < n; i++) {
             // Mise à jour de la position
-            pos.x += vel.x;
-            pos.y += vel.y;
-
-            // Rebond horizontal
-            if (pos.x < rayon) {
-                pos.x = rayon;
-                vel.x = -vel.x;
-            } else if (pos.x > width - rayon) {
-                pos.x = width - rayon;
-                vel.x = -vel.x;
-            }
+            x[i] += vx[i];
+            y[i] += vy[i];
+            rebondBords(i, width, height);
+        }
+        chocs(width, height);
+    }
+
+    /** Ramène la balle i dans la fenêtre, en inversant sa vitesse si elle touche un bord. */
+    private void rebondBords(int i, int width, int height) {
+        // Rebond horizontal
+        if (x[i] < rayon) {
+            x[i] = rayon;
+            vx[i] = -vx[i];
+        } else if (x[i] > width - rayon) {
+            x[i] = width - rayon;
+            vx[i] = -vx[i];
+        }
+
+        // Rebond vertical
+        if (y[i] < rayon) {
+            y[i] = rayon;
+            vy[i] = -vy[i];
+        } else if (y[i] > height - rayon) {
+            y[i] = height - rayon;
+            vy[i] = -vy[i];
+        }
+    }
+
+    /**
+     * Chocs entre balles. Phase large : on range les balles par case de la grille (tri par
+     * dénombrement), puis chaque balle n'est comparée qu'à celles de sa case et de 4 cases
+     * voisines (la moitié du voisinage, pour ne voir chaque paire qu'une fois).
+     * Phase fine : deux balles qui se chevauchent et se rapprochent échangent la composante
+     * de leurs vitesses selon la ligne des centres, puis sont écartées à distance de contact.
+     */
+    private void chocs(int width, int height) {
+        chocs = 0;
+        if (n < 2) return;
+        double diametre = 2.0 * Math.max(rayon, 1);
+        int c = Math.max(1, (int) Math.ceil(width / diametre));
+        int l = Math.max(1, (int) Math.ceil(height / diametre));
+        if (c != colonnes || l != lignes) {
+            colonnes = c;
+            lignes = l;
+            debut = new int[colonnes * lignes + 1];
+        }
 
-            // Rebond vertical
-            if (pos.y < rayon) {
-                pos.y = rayon;
-                vel.y = -vel.y;
-            } else if (pos.y > height - rayon) {
-                pos.y = height - rayon;
-                vel.y = -vel.y;
+        Arrays.fill(debut, 0);
+        for (int i = 0; i < n; i++) {
+            int cx = Math.min(colonnes - 1, Math.max(0, (int) (x[i] / diametre)));
+            int cy = Math.min(lignes - 1, Math.max(0, (int) (y[i] / diametre)));
+            int k = cy * colonnes + cx;
+            caseDe[i] = k;
+            debut[k + 1]++;
+        }
+        for (int k = 0; k < colonnes * lignes; k++) {
+            debut[k + 1] += debut[k];
+        }
+        for (int i = 0; i < n; i++) {
+            ordre[debut[caseDe[i]]++] = i;
+        }
+        // Le remplissage a décalé chaque début sur la case suivante
+        System.arraycopy(debut, 0, debut, 1, colonnes * lignes);
+        debut[0] = 0;
+
+        double d2min = diametre * diametre;
+        for (int cy = 0; cy < lignes; cy++) {
+            for (int cx = 0; cx < colonnes; cx++) {
+                int k = cy * colonnes + cx;
+                for (int a = debut[k]; a < debut[k + 1]; a++) {
+                    int i = ordre[a];
+                    for (int b = a + 1; b < debut[k + 1]; b++) {
+                        choc(i, ordre[b], d2min);
+                    }
+                    if (cx + 1 < colonnes) chocsCase(i, k + 1, d2min);
+                    if (cy + 1 < lignes) {
+                        if (cx > 0) chocsCase(i, k + colonnes - 1, d2min);
+                        chocsCase(i, k + colonnes, d2min);
+                        if (cx + 1 < colonnes) chocsCase(i, k + colonnes + 1, d2min);
+                    }
+                }
+            }
+        }
+        if (chocs > 0) {
+            // Les écartements ont pu pousser des balles hors de la fenêtre
+            for (int i = 0; i < n; i++) {
+                rebondBords(i, width, height);
             }
         }
     }
 
+    private void chocsCase(int i, int k, double d2min) {
+        for (int b = debut[k]; b < debut[k + 1]; b++) {
+            choc(i, ordre[b], d2min);
+        }
+    }
+
+    private void choc(int i, int j, double d2min) {
+        double dx = x[j] - x[i];
+        double dy = y[j] - y[i];
+        double d2 = dx * dx + dy * dy;
+        if (d2 >= d2min || d2 == 0) return;
+        double d = Math.sqrt(d2);
+        double nx = dx / d;
+        double ny = dy / d;
+        // Vitesse relative selon la ligne des centres (négative si les balles se rapprochent)
+        double dvn = (vx[j] - vx[i]) * nx + (vy[j] - vy[i]) * ny;
+        if (dvn < 0) {
+            vx[i] += dvn * nx;
+            vy[i] += dvn * ny;
+            vx[j] -= dvn * nx;
+            vy[j] -= dvn * ny;
+        }
+        double ecart = (Math.sqrt(d2min) - d) / 2;
+        x[i] -= nx * ecart;
+        y[i] -= ny * ecart;
+        x[j] += nx * ecart;
+        y[j] += ny * ecart;
+        chocs++;
+    }
+
     /**
      * Réinitialise toutes les balles à leurs positions de départ.
      */
     public void reInit() {
-        for (int i = 0; i < balls.size(); i++) {
-            Point init = PositionsInit.get(i);
-            Point curr = balls.get(i);
-            curr.x = init.x;
-            curr.y = init.y;
+        System.arraycopy(x0, 0, x, 0, n);
+        System.arraycopy(y0, 0, y, 0, n);
+    }
+
+    /**
+     * Appelle le visiteur pour chaque balle, dans l'ordre des numéros, sans rien copier.
+     * @param visiteur le visiteur
+     */
+    public void parcourir(VisiteurBalles visiteur) {
+        for (int i = 0; i < n; i++) {
+            visiteur.visiter(i, x[i], y[i], vx[i], vy[i]);
+        }
+    }
+
+    /**
+     * Ajoute les positions courantes (arrondies au pixel) au format de toString.
+     * Ce format reproduit volontairement, octet pour octet, l'affichage d'avant le passage aux
+     * tableaux de doubles (une {@code List<Point>} affichée par println, donc
+     * {@code "[java.awt.Point[x=..,y=..], ...]"}) : les scripts qui lisent la sortie de
+     * {@link JournalBalles#console()} continuent de fonctionner. Ce texte est écrit ici et ne dépend plus de
+     * {@link java.awt.Point#toString()} ; pour un autre format, {@link #parcourir} donne les
+     * coordonnées sans passer par le texte.
+     * @param sb le texte à compléter
+     */
+    public void decrire(StringBuilder sb) {
+        sb.append('[');
+        for (int i = 0; i < n; i++) {
+            if (i > 0) sb.append(", ");
+            sb.append("java.awt.Point[x=").append(Math.round(x[i]))
+                    .append(",y=").append(Math.round(y[i])).append(']');
         }
+        sb.append(']');
     }
 
     /**
-     * Retourne une copie de la liste des positions courantes.
+     * Retourne une copie de la liste des positions courantes (arrondies au pixel).
+     * Pour lire les balles à chaque pas, {@link #parcourir} évite cette copie.
      */
     public List<Point> getBalls() {
-        List<Point> copy = new ArrayList<>();
-        for (Point p : balls) {
-            copy.add(new Point(p));
+        List<Point> copy = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            copy.add(new Point((int) Math.round(x[i]), (int) Math.round(y[i])));
         }
         return copy;
     }
 
+    /**
+     * @return le nombre de balles
+     */
+    public int getNombre() {
+        return n;
+    }
+
+    /**
+     * @return l'abscisse de la balle i
+     */
+    public double getX(int i) {
+        return x[i];
+    }
+
+    /**
+     * @return l'ordonnée de la balle i
+     */
+    public double getY(int i) {
+        return y[i];
+    }
+
+    /**
+     * @return la vitesse en x de la balle i
+     */
+    public double getVx(int i) {
+        return vx[i];
+    }
+
+    /**
+     * @return la vitesse en y de la balle i
+     */
+    public double getVy(int i) {
+        return vy[i];
+    }
+
+    /**
+     * @return le nombre de chocs entre balles traités au dernier pas
+     */
+    public long getChocs() {
+        return chocs;
+    }
+
     public int getRayon() {
         return rayon;
     }
 
+    /**
+     * @return la taille en octets de l'état écrit par ecrireEtat
+     */
+    public int tailleInstantane() {
+        return 4 + 4 + n * 6 * 8;
+    }
+
+    /**
+     * Écrit l'état complet : rayon, puis pour chaque balle position initiale, position et vitesse.
+     */
+    public void ecrireEtat(ByteBuffer out) {
+        out.putInt(rayon);
+        out.putInt(n);
+        for (int i = 0; i < n; i++) {
+            out.putDouble(x0[i]).putDouble(y0[i]).putDouble(x[i]).putDouble(y[i]).putDouble(vx[i]).putDouble(vy[i]);
+        }
+    }
+
+    /**
+     * Remplace l'état par celui écrit par ecrireEtat.
+     */
+    public void lireEtat(ByteBuffer in) {
+        rayon = in.getInt();
+        int nombre = in.getInt();
+        if (nombre != n) {
+            allouer(nombre);
+        }
+        for (int i = 0; i < n; i++) {
+            x0[i] = in.getDouble();
+            y0[i] = in.getDouble();
+            x[i] = in.getDouble();
+            y[i] = in.getDouble();
+            vx[i] = in.getDouble();
+            vy[i] = in.getDouble();
+        }
+        colonnes = 0;       // la grille sera recalculée (le rayon a pu changer)
+    }
+
 
     @Override
     public String toString() {
-        return balls.toString();
+        StringBuilder sb = new StringBuilder(32 * n + 2);
+        decrire(sb);
+        return sb.toString();
     }
-}
\ No newline at end of file
+}
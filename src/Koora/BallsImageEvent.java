@@ -0,0 +1,21 @@
+package Koora;
+
+import multi_agents.EvenT.Event;
+
+/**
+ * Image du mode événementiel : à chaque pas, les balles sont amenées à la date de l'image
+ * et redessinées.
+ */
+public class BallsImageEvent extends Event {
+    private BallsSimulator simulator;
+
+    public BallsImageEvent(long date, BallsSimulator simulator) {
+        super(date);
+        this.simulator = simulator;
+    }
+
+    @Override
+    public void execute() {
+        simulator.image(getDate());
+    }
+}
@@ -4,13 +4,25 @@ import gui.GUISimulator;
 import gui.Oval;
 import gui.Simulable;
 import java.awt.Color;
-import java.awt.Point;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
 
+import multi_agents.EvenT.Event;
 import multi_agents.EvenT.EventManager;
+import multi_agents.EvenT.Instantane;
+import multi_agents.mesures.DessinJfr;
 
 /**
  * Relie la classe Balls (logique) à l'interface graphique GUISimulator.
  * Elle implémente Simulable pour répondre aux boutons "Suivant" et "Début".
+ *
+ * Deux modes : par pas (un BallsUpdateEvent avance toutes les balles à chaque date), ou
+ * événementiel ({@link ChocsEvenementiels} : seuls les chocs sont des événements, et un
+ * BallsImageEvent redessine les balles à chaque pas ; les dates sont alors en
+ * {@link ChocsEvenementiels#TICKS_PAR_PAS} par pas).
  */
 public class BallsSimulator implements Simulable {
     public GUISimulator gui;   // la fenêtre graphique
@@ -18,30 +30,91 @@ public class BallsSimulator implements Simulable {
     private Color ballColor;    // couleur des balles
     private int rayon;
     public EventManager manager;// rayon des balles
+    private final boolean evenementiel;
+    private ChocsEvenementiels chocs;   // mode événementiel (null en mode par pas)
+    private long images;                // images dessinées en mode événementiel
+    private JournalBalles journal = JournalBalles.aucun();
 
     /**
-     * Constructeur : associe la simulation à la GUI.
+     * Constructeur : associe la simulation à la GUI (mode par pas).
      */
     public BallsSimulator(GUISimulator gui, Balls balls, Color color) {
+        this(gui, balls, color, false);
+    }
+
+    /**
+     * Constructeur : associe la simulation à la GUI.
+     * @param evenementiel true pour le mode événementiel (chocs exacts), false pour le mode par pas
+     */
+    public BallsSimulator(GUISimulator gui, Balls balls, Color color, boolean evenementiel) {
         this.gui = gui;
         this.balls = balls;
         this.ballColor = color;
         this.manager = new EventManager();
-        this.manager.addEvent(new BallsUpdateEvent(0, balls, this));
+        this.evenementiel = evenementiel;
         this.rayon = balls.getRayon();
+        demarrer();
 
         gui.setSimulable(this); // lie le simulateur à la fenêtre
         draw();
     }
 
+    /**
+     * Place les premiers événements à la date courante du manager.
+     */
+    private void demarrer() {
+        if (evenementiel) {
+            chocs = new ChocsEvenementiels(balls, manager, gui.getWidth(), gui.getHeight());
+            long pas = ChocsEvenementiels.TICKS_PAR_PAS;
+            manager.addEvent(new BallsImageEvent((manager.getCurrentDate() / pas + 1) * pas, this));
+        } else {
+            manager.addEvent(new BallsUpdateEvent(manager.getCurrentDate(), balls, this));
+        }
+    }
+
     /**
      * Méthode appelée à chaque clic sur "Suivant" ou à chaque pas de lecture automatique.
-     * Fait bouger les balles et gère les rebonds.
+     * Fait bouger les balles et gère les rebonds (en mode événementiel : exécute les chocs
+     * jusqu'à l'image suivante).
      */
     @Override
     public void next() {
-        manager.next();
-        System.out.println(balls);
+        if (chocs == null) {
+            manager.next();
+        } else {
+            long avant = images;
+            while (images == avant && !manager.isFinished()) {
+                manager.next();
+            }
+        }
+        journal.noter(balls);
+    }
+
+    /**
+     * Change la destination de l'état des balles écrit après chaque pas (par défaut, rien
+     * n'est écrit : afficher toutes les balles à chaque pas coûterait plus que le pas lui-même).
+     * @param journal le journal, par exemple {@code JournalBalles.console()} pour suivre les balles dans la console
+     */
+    public void setJournal(JournalBalles journal) {
+        this.journal = journal;
+    }
+
+    /**
+     * Appelée par BallsImageEvent en mode événementiel : amène les balles à la date de l'image,
+     * les dessine et prévoit l'image suivante.
+     */
+    void image(long date) {
+        chocs.synchroniser(date);
+        draw();
+        images++;
+        manager.addEvent(new BallsImageEvent(date + ChocsEvenementiels.TICKS_PAR_PAS, this));
+    }
+
+    /**
+     * @return le mode événementiel, ou null en mode par pas
+     */
+    public ChocsEvenementiels getChocs() {
+        return chocs;
     }
 
     /**
@@ -53,7 +126,60 @@ public class BallsSimulator implements Simulable {
     public void restart() {
         balls.reInit();
         manager.restart();
-        manager.addEvent(new BallsUpdateEvent(0, balls, this));
+        demarrer();
+        draw();
+    }
+
+    /**
+     * Sauvegarde l'état des balles et la file d'événements dans un instantané binaire.
+     * En mode événementiel, les balles sont d'abord amenées à la date courante et les
+     * prévisions ne sont pas sauvegardées : elles sont recalculées à la reprise.
+     * Le mode est écrit dans l'instantané (les dates n'ont pas la même unité dans les deux modes).
+     */
+    public void sauvegarder(Path fichier) throws IOException {
+        List<Event> enAttente = new ArrayList<>();
+        if (chocs == null) {
+            enAttente = manager.getEvents();
+        } else {
+            chocs.synchroniser(manager.getCurrentDate());
+        }
+        ByteBuffer out = Instantane.creer(fichier, Instantane.BALLES,
+                1 + 8 + balls.tailleInstantane() + 4 + 8L * enAttente.size());
+        out.put((byte) (evenementiel ? 1 : 0));
+        out.putLong(manager.getCurrentDate());
+        balls.ecrireEtat(out);
+        out.putInt(enAttente.size());
+        for (Event e : enAttente) {
+            if (!(e instanceof BallsUpdateEvent)) {
+                throw new IllegalStateException("Événement non sauvegardable : " + e.getClass().getName());
+            }
+            out.putLong(e.getDate());
+        }
+    }
+
+    /**
+     * Reprend la simulation depuis un instantané.
+     * @throws IOException si l'instantané n'a pas été fait dans le même mode (par pas ou événementiel)
+     */
+    public void restaurer(Path fichier) throws IOException {
+        ByteBuffer in = Instantane.ouvrir(fichier, Instantane.BALLES);
+        boolean modeInstantane = in.get() != 0;
+        if (modeInstantane != evenementiel) {
+            throw new IOException("Instantané fait en mode " + (modeInstantane ? "événementiel" : "par pas")
+                    + ", simulation en mode " + (evenementiel ? "événementiel" : "par pas") + " : " + fichier);
+        }
+        long date = in.getLong();
+        balls.lireEtat(in);
+        rayon = balls.getRayon();
+        int n = in.getInt();
+        List<Event> enAttente = new ArrayList<>(n);
+        for (int k = 0; k < n; k++) {
+            enAttente.add(new BallsUpdateEvent(in.getLong(), balls, this));
+        }
+        manager.restaurer(date, enAttente);
+        if (evenementiel) {
+            demarrer();
+        }
         draw();
     }
 
@@ -61,9 +187,16 @@ public class BallsSimulator implements Simulable {
      * Redessine les balles à l’écran selon leur position actuelle.
      */
     protected void draw() {
+        DessinJfr jfr = new DessinJfr();
+        jfr.begin();
         gui.reset(); // efface la fenêtre avant de redessiner
-        for (Point p : balls.getBalls()) {
-            gui.addGraphicalElement(new Oval(p.x, p.y, ballColor, ballColor, rayon));
+        balls.parcourir((i, x, y, vx, vy) ->
+                gui.addGraphicalElement(new Oval((int) Math.round(x), (int) Math.round(y), ballColor, ballColor, rayon)));
+        jfr.end();
+        if (jfr.shouldCommit()) {
+            jfr.simulateur = getClass().getSimpleName();
+            jfr.elements = balls.getNombre();
+            jfr.commit();
         }
     }
 }
\ No newline at end of file
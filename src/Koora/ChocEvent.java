@@ -0,0 +1,40 @@
+package Koora;
+
+import multi_agents.EvenT.Event;
+
+/**
+ * Événement prévu par {@link ChocsEvenementiels} : choc d'une balle contre un bord ou une
+ * autre balle, ou passage d'une balle dans une case voisine de la grille.
+ * Il garde les compteurs de chocs des balles au moment de la prévision : si l'une d'elles a
+ * changé de vitesse depuis, l'événement est périmé et ne fait rien.
+ */
+public class ChocEvent extends Event {
+    /** Types d'événements */
+    static final int BORD_X = 0;
+    static final int BORD_Y = 1;
+    static final int BALLE = 2;
+    static final int CASE_X = 3;
+    static final int CASE_Y = 4;
+
+    private final ChocsEvenementiels chocs;
+    final int type;
+    final int a;
+    final int b;            // l'autre balle pour un choc entre balles, -1 sinon
+    final int compteurA;
+    final int compteurB;
+
+    ChocEvent(long date, ChocsEvenementiels chocs, int type, int a, int b, int compteurA, int compteurB) {
+        super(date);
+        this.chocs = chocs;
+        this.type = type;
+        this.a = a;
+        this.b = b;
+        this.compteurA = compteurA;
+        this.compteurB = compteurB;
+    }
+
+    @Override
+    public void execute() {
+        chocs.executer(this);
+    }
+}
@@ -0,0 +1,323 @@
+package Koora;
+
+import multi_agents.EvenT.EventManager;
+
+import java.util.Arrays;
+
+/**
+ * Dynamique exacte de sphères dures pilotée par les événements : au lieu d'avancer toutes les
+ * balles d'un pas à chaque date, on calcule à l'avance la date du prochain choc de chaque
+ * balle (contre un bord ou une autre balle) et on le place dans l'{@link EventManager}.
+ * Entre deux chocs une balle va en ligne droite : on ne la déplace que lorsqu'elle intervient
+ * dans un événement ({@link #synchroniser} amène toutes les balles à une date, pour les dessiner).
+ *
+ * Les dates de ce mode sont en virgule fixe : un pas de la simulation vaut
+ * {@link #TICKS_PAR_PAS} dates de l'EventManager, soit une précision d'environ un millionième
+ * de pas sur l'instant des chocs.
+ *
+ * Les prévisions d'une balle sont invalidées paresseusement : chaque balle a un compteur de
+ * chocs, recopié dans les événements qui la concernent ; quand sa vitesse change, le compteur
+ * augmente et ses anciens événements, devenus périmés, ne feront rien à leur exécution.
+ *
+ * Pour ne pas comparer chaque balle à toutes les autres, le terrain est découpé en cases
+ * plus larges qu'un diamètre : une balle ne peut heurter que les balles de sa case et
+ * des 8 cases voisines, et le passage dans une nouvelle case est lui-même un événement, qui
+ * prévoit les chocs avec les nouvelles voisines. Le coût dépend donc du nombre de chocs et de
+ * changements de case, pas du carré du nombre de balles.
+ *
+ * Les bords sont ceux de la zone donnée à la construction (le mode ne suit pas un
+ * redimensionnement de la fenêtre).
+ */
+public class ChocsEvenementiels {
+    /** Nombre de dates de l'EventManager par pas de simulation (virgule fixe). */
+    public static final long TICKS_PAR_PAS = 1L << 20;
+
+    /** Au-delà de cet horizon (en pas), un événement prévu n'est pas placé dans la file. */
+    private static final double HORIZON = 1e9;
+
+    private final Balls balls;
+    private final EventManager manager;
+    private final int width;
+    private final int height;
+    private final double rayon;
+    private final double diametre;
+
+    private final long[] dates;             // date à laquelle la position de chaque balle est à jour
+    private final int[] compteurs;          // chocs de chaque balle (invalidation des prévisions)
+
+    // Grille : listes doublement chaînées des balles de chaque case
+    private final double taille;
+    private final int colonnes;
+    private final int lignes;
+    private final int[] tete;
+    private final int[] suivant;
+    private final int[] precedent;
+    private final int[] caseX;
+    private final int[] caseY;
+
+    private long chocsBalles;
+    private long chocsBords;
+    private long changementsCase;
+    private long perimes;
+
+    /**
+     * Prépare le mode événementiel à la date courante de l'EventManager et y place les
+     * premières prévisions de toutes les balles.
+     * @param balls les balles (leurs positions sont ramenées dans la zone si besoin)
+     * @param manager l'EventManager, dont les dates sont en {@link #TICKS_PAR_PAS} par pas
+     * @param width largeur de la zone
+     * @param height hauteur de la zone
+     */
+    public ChocsEvenementiels(Balls balls, EventManager manager, int width, int height) {
+        this.balls = balls;
+        this.manager = manager;
+        this.width = width;
+        this.height = height;
+        this.rayon = balls.getRayon();
+        this.diametre = 2.0 * rayon;
+        int n = balls.n;
+        this.dates = new long[n];
+        this.compteurs = new int[n];
+
+        // Des cases un peu plus larges qu'un diamètre (la case d'une balle peut être en retard
+        // d'un arrondi de date sur sa position), et d'environ une balle chacune quand les balles
+        // sont clairsemées : des cases plus petites multiplieraient les changements de case
+        this.taille = Math.max(Math.max(diametre, 1.0) * 1.01, Math.sqrt((double) width * height / Math.max(n, 1)));
+        this.colonnes = Math.max(1, (int) Math.ceil(width / taille));
+        this.lignes = Math.max(1, (int) Math.ceil(height / taille));
+        this.tete = new int[colonnes * lignes];
+        Arrays.fill(tete, -1);
+        this.suivant = new int[n];
+        this.precedent = new int[n];
+        this.caseX = new int[n];
+        this.caseY = new int[n];
+
+        long date = manager.getCurrentDate();
+        for (int i = 0; i < n; i++) {
+            dates[i] = date;
+            balls.x[i] = Math.min(Math.max(balls.x[i], rayon), width - rayon);
+            balls.y[i] = Math.min(Math.max(balls.y[i], rayon), height - rayon);
+            caseX[i] = Math.min(colonnes - 1, (int) (balls.x[i] / taille));
+            caseY[i] = Math.min(lignes - 1, (int) (balls.y[i] / taille));
+            inserer(i);
+        }
+        for (int i = 0; i < n; i++) {
+            prevoir(i, date, true);
+        }
+    }
+
+    /**
+     * Amène toutes les balles à la date donnée (sans changer leurs vitesses ni les prévisions).
+     * @param date une date de l'EventManager, au moins égale à la dernière date exécutée
+     */
+    public void synchroniser(long date) {
+        for (int i = 0; i < balls.n; i++) {
+            avancer(i, date);
+        }
+    }
+
+    /** @return le nombre de chocs entre balles traités */
+    public long getChocsBalles() {
+        return chocsBalles;
+    }
+
+    /** @return le nombre de chocs contre les bords traités */
+    public long getChocsBords() {
+        return chocsBords;
+    }
+
+    /** @return le nombre de changements de case traités */
+    public long getChangementsCase() {
+        return changementsCase;
+    }
+
+    /** @return le nombre d'événements périmés ignorés */
+    public long getPerimes() {
+        return perimes;
+    }
+
+    /**
+     * Exécute un événement prévu, s'il n'est pas périmé.
+     */
+    void executer(ChocEvent e) {
+        int a = e.a;
+        if (compteurs[a] != e.compteurA || (e.b >= 0 && compteurs[e.b] != e.compteurB)) {
+            perimes++;
+            return;
+        }
+        long date = e.getDate();
+        avancer(a, date);
+        switch (e.type) {
+            case ChocEvent.BORD_X:
+                balls.vx[a] = -balls.vx[a];
+                chocsBords++;
+                compteurs[a]++;
+                prevoir(a, date, false);
+                break;
+            case ChocEvent.BORD_Y:
+                balls.vy[a] = -balls.vy[a];
+                chocsBords++;
+                compteurs[a]++;
+                prevoir(a, date, false);
+                break;
+            case ChocEvent.BALLE:
+                int b = e.b;
+                avancer(b, date);
+                if (rebondir(a, b)) {
+                    chocsBalles++;
+                    compteurs[a]++;
+                    compteurs[b]++;
+                    prevoir(a, date, false);
+                    prevoir(b, date, false);
+                }
+                break;
+            default:
+                // Passage dans la case voisine : la vitesse ne change pas, seules les nouvelles
+                // voisines et la prochaine sortie de case sont à prévoir
+                retirer(a);
+                changementsCase++;
+                if (e.type == ChocEvent.CASE_X) {
+                    int sens = balls.vx[a] > 0 ? 1 : -1;
+                    caseX[a] += sens;
+                    inserer(a);
+                    prevoirSortie(a, date);
+                    prevoirChocs(a, date, caseX[a] + sens, caseX[a] + sens, caseY[a] - 1, caseY[a] + 1, false);
+                } else {
+                    int sens = balls.vy[a] > 0 ? 1 : -1;
+                    caseY[a] += sens;
+                    inserer(a);
+                    prevoirSortie(a, date);
+                    prevoirChocs(a, date, caseX[a] - 1, caseX[a] + 1, caseY[a] + sens, caseY[a] + sens, false);
+                }
+        }
+    }
+
+    /** Amène la balle i à la date donnée, en ligne droite. */
+    private void avancer(int i, long date) {
+        double dt = (double) (date - dates[i]) / TICKS_PAR_PAS;
+        if (dt != 0) {
+            balls.x[i] += balls.vx[i] * dt;
+            balls.y[i] += balls.vy[i] * dt;
+            dates[i] = date;
+        }
+    }
+
+    /**
+     * Choc élastique de deux balles de même masse, à la date de leur contact : elles échangent
+     * la composante de leurs vitesses selon la ligne des centres.
+     * @return false si elles ne se rapprochent pas (rien à faire)
+     */
+    private boolean rebondir(int a, int b) {
+        double dx = balls.x[b] - balls.x[a];
+        double dy = balls.y[b] - balls.y[a];
+        double d = Math.sqrt(dx * dx + dy * dy);
+        if (d == 0) return false;
+        double nx = dx / d;
+        double ny = dy / d;
+        double dvn = (balls.vx[b] - balls.vx[a]) * nx + (balls.vy[b] - balls.vy[a]) * ny;
+        if (dvn >= 0) return false;
+        balls.vx[a] += dvn * nx;
+        balls.vy[a] += dvn * ny;
+        balls.vx[b] -= dvn * nx;
+        balls.vy[b] -= dvn * ny;
+        return true;
+    }
+
+    /**
+     * Prévoit tous les prochains événements de la balle i (à jour à la date donnée) : son
+     * prochain bord, sa sortie de case et ses chocs avec les balles des cases voisines.
+     * @param demiVoisinage au démarrage, ne regarder que les balles de numéro supérieur
+     *                      (chaque paire n'est prévue qu'une fois)
+     */
+    private void prevoir(int i, long date, boolean demiVoisinage) {
+        double x = balls.x[i];
+        double y = balls.y[i];
+        double vx = balls.vx[i];
+        double vy = balls.vy[i];
+
+        // Bords : seul le plus proche compte, le suivant sera prévu après ce rebond
+        double tx = vx > 0 ? (width - rayon - x) / vx : vx < 0 ? (rayon - x) / vx : Double.POSITIVE_INFINITY;
+        double ty = vy > 0 ? (height - rayon - y) / vy : vy < 0 ? (rayon - y) / vy : Double.POSITIVE_INFINITY;
+        if (tx <= ty) {
+            planifier(date, tx, ChocEvent.BORD_X, i, -1);
+        } else {
+            planifier(date, ty, ChocEvent.BORD_Y, i, -1);
+        }
+        prevoirSortie(i, date);
+        prevoirChocs(i, date, caseX[i] - 1, caseX[i] + 1, caseY[i] - 1, caseY[i] + 1, demiVoisinage);
+    }
+
+    /** Prévoit la sortie de case de la balle i (seule la plus proche des deux directions compte). */
+    private void prevoirSortie(int i, long date) {
+        double x = balls.x[i];
+        double y = balls.y[i];
+        double vx = balls.vx[i];
+        double vy = balls.vy[i];
+        double sx = vx > 0 && caseX[i] < colonnes - 1 ? ((caseX[i] + 1) * taille - x) / vx
+                : vx < 0 && caseX[i] > 0 ? (caseX[i] * taille - x) / vx : Double.POSITIVE_INFINITY;
+        double sy = vy > 0 && caseY[i] < lignes - 1 ? ((caseY[i] + 1) * taille - y) / vy
+                : vy < 0 && caseY[i] > 0 ? (caseY[i] * taille - y) / vy : Double.POSITIVE_INFINITY;
+        if (sx <= sy) {
+            planifier(date, sx, ChocEvent.CASE_X, i, -1);
+        } else {
+            planifier(date, sy, ChocEvent.CASE_Y, i, -1);
+        }
+    }
+
+    /**
+     * Prévoit les chocs de la balle i avec les balles des cases [cx0, cx1] x [cy0, cy1]
+     * (bornes comprises, ramenées dans la grille).
+     */
+    private void prevoirChocs(int i, long date, int cx0, int cx1, int cy0, int cy1, boolean demiVoisinage) {
+        double x = balls.x[i];
+        double y = balls.y[i];
+        double vx = balls.vx[i];
+        double vy = balls.vy[i];
+        double d2 = diametre * diametre;
+        for (int cy = Math.max(0, cy0); cy <= Math.min(lignes - 1, cy1); cy++) {
+            for (int cx = Math.max(0, cx0); cx <= Math.min(colonnes - 1, cx1); cx++) {
+                for (int j = tete[cy * colonnes + cx]; j >= 0; j = suivant[j]) {
+                    if (j == i || (demiVoisinage && j < i)) continue;
+                    // Position de j à la date courante, sans la modifier
+                    double dtj = (double) (date - dates[j]) / TICKS_PAR_PAS;
+                    double dx = balls.x[j] + balls.vx[j] * dtj - x;
+                    double dy = balls.y[j] + balls.vy[j] * dtj - y;
+                    double dvx = balls.vx[j] - vx;
+                    double dvy = balls.vy[j] - vy;
+                    double dvdr = dx * dvx + dy * dvy;
+                    if (dvdr >= 0) continue;            // elles s'éloignent
+                    double dvdv = dvx * dvx + dvy * dvy;
+                    double drdr = dx * dx + dy * dy;
+                    double delta = dvdr * dvdr - dvdv * (drdr - d2);
+                    if (delta < 0) continue;            // elles se croisent sans se toucher
+                    double t = drdr <= d2 ? 0 : -(dvdr + Math.sqrt(delta)) / dvdv;
+                    planifier(date, t, ChocEvent.BALLE, i, j);
+                }
+            }
+        }
+    }
+
+    /** Place un événement dans t pas (arrondi à la date la plus proche). */
+    private void planifier(long date, double t, int type, int a, int b) {
+        if (!(t < HORIZON)) return;             // jamais (infini ou NaN) ou trop loin
+        long quand = date + Math.max(0, Math.round(t * TICKS_PAR_PAS));
+        manager.addEvent(new ChocEvent(quand, this, type, a, b, compteurs[a], b >= 0 ? compteurs[b] : 0));
+    }
+
+    private void inserer(int i) {
+        int k = caseY[i] * colonnes + caseX[i];
+        precedent[i] = -1;
+        suivant[i] = tete[k];
+        if (tete[k] >= 0) precedent[tete[k]] = i;
+        tete[k] = i;
+    }
+
+    private void retirer(int i) {
+        if (precedent[i] >= 0) {
+            suivant[precedent[i]] = suivant[i];
+        } else {
+            tete[caseY[i] * colonnes + caseX[i]] = suivant[i];
+        }
+        if (suivant[i] >= 0) precedent[suivant[i]] = precedent[i];
+    }
+}
@@ -0,0 +1,53 @@
+package Koora;
+
+/**
+ * Destination de l'état des balles écrit par BallsSimulator après chaque pas.
+ * Par défaut rien n'est écrit ({@link #aucun}), pour que l'affichage ne ralentisse pas les
+ * simulations de beaucoup de balles ; on peut afficher l'état dans la console
+ * ({@link #console}), éventuellement un pas sur k seulement ({@link #echantillonne}).
+ */
+@FunctionalInterface
+public interface JournalBalles {
+    /**
+     * Appelée après chaque pas.
+     * @param balls les balles, dans leur état courant (à ne pas garder : elles vont changer)
+     */
+    void noter(Balls balls);
+
+    /**
+     * @return un journal qui affiche les positions de toutes les balles dans la console,
+     *         au format de {@link Balls#toString()}
+     */
+    static JournalBalles console() {
+        StringBuilder ligne = new StringBuilder();
+        return balls -> {
+            ligne.setLength(0);
+            balls.decrire(ligne);
+            System.out.println(ligne);
+        };
+    }
+
+    /**
+     * @return un journal qui n'écrit rien (celui de BallsSimulator par défaut)
+     */
+    static JournalBalles aucun() {
+        return balls -> { };
+    }
+
+    /**
+     * @param periode on garde un pas sur periode (le premier, puis tous les periode pas)
+     * @param journal le journal qui reçoit les pas gardés
+     * @return un journal qui ne transmet qu'un pas sur periode
+     */
+    static JournalBalles echantillonne(int periode, JournalBalles journal) {
+        if (periode < 1) {
+            throw new IllegalArgumentException("Période d'échantillonnage invalide : " + periode);
+        }
+        int[] compte = new int[1];
+        return balls -> {
+            if (compte[0]++ % periode == 0) {
+                journal.noter(balls);
+            }
+        };
+    }
+}
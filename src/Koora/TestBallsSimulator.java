@@ -29,7 +29,9 @@ public class TestBallsSimulator {
         Balls balls = new Balls(PositionsInit, Vitesse, 10);
 
         // Crée et connecte le simulateur à la fenêtre GUI
-        new BallsSimulator(gui, balls, Color.decode("#1f77b4"));
+        BallsSimulator simulator = new BallsSimulator(gui, balls, Color.decode("#1f77b4"));
+        // Peu de balles : on suit leurs positions dans la console à chaque pas
+        simulator.setJournal(JournalBalles.console());
 
     }
 }
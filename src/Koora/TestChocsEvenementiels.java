@@ -0,0 +1,36 @@
+package Koora;
+
+import java.awt.Color;
+import gui.GUISimulator;
+import java.util.Random;
+
+/**
+ * Balles qui s'entrechoquent, en mode événementiel (chocs exacts) :
+ * le nombre de balles est donné en argument (300 par défaut).
+ */
+public class TestChocsEvenementiels {
+    public static void main(String[] args) {
+        int n = args.length > 0 ? Integer.parseInt(args[0]) : 300;
+        int width = 800;
+        int height = 600;
+        int rayon = 6;
+
+        // Balles sur un réseau (sans chevauchement), vitesses au hasard
+        int cote = (int) Math.ceil(Math.sqrt(n));
+        double ecart = (double) (Math.min(width, height) - 2 * rayon) / cote;
+        double[] x = new double[n];
+        double[] y = new double[n];
+        double[] vx = new double[n];
+        double[] vy = new double[n];
+        Random alea = new Random(1);
+        for (int i = 0; i < n; i++) {
+            x[i] = rayon + ecart * (i % cote + 0.5);
+            y[i] = rayon + ecart * (i / cote + 0.5);
+            vx[i] = alea.nextDouble() * 8 - 4;
+            vy[i] = alea.nextDouble() * 8 - 4;
+        }
+
+        GUISimulator gui = new GUISimulator(width, height, Color.BLACK);
+        new BallsSimulator(gui, new Balls(x, y, vx, vy, rayon), Color.decode("#1f77b4"), true);
+    }
+}
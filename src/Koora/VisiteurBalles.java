@@ -0,0 +1,17 @@
+package Koora;
+
+/**
+ * Lecture des balles sans copie : {@link Balls#parcourir} appelle le visiteur pour chaque
+ * balle avec sa position et sa vitesse courantes.
+ */
+@FunctionalInterface
+public interface VisiteurBalles {
+    /**
+     * @param i le numéro de la balle
+     * @param x son abscisse
+     * @param y son ordonnée
+     * @param vx sa vitesse en x
+     * @param vy sa vitesse en y
+     */
+    void visiter(int i, double x, double y, double vx, double vy);
+}
@@ -0,0 +1,316 @@
+package LKhalaya;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Grille cellulaire générique pilotée par une {@link RegleAutomate} compilée en table.
+ *
+ * Les états sont compactés ({@link EtatsCompacts}) : 4 bits par cellule jusqu'à 16 états.
+ *
+ * Avec le voisinage de Moore de rayon 1, la grille maintient pour chaque cellule (sur 4 bits)
+ * le nombre de voisines dans chacun des états comptés par la règle. Quand une cellule
+ * change d'état, seules ses 8 voisines sont mises à jour, et seules les cellules
+ * touchées sont réexaminées à la génération suivante : un pas coûte O(cellules modifiées)
+ * et chaque transition se réduit à une lecture dans la table.
+ *
+ * Pour un voisinage plus large (Moore ou von Neumann de rayon r), les comptes sont
+ * recalculés à chaque génération par sommes cumulées ({@link CompteurVoisinage}) :
+ * O(1) par cellule quel que soit le rayon.
+ */
+public class AutomateGrid extends CellularGrid {
+
+    protected final RegleAutomate regle;
+    private final EtatsCompacts init;   // état initial, indice i * cols + j
+    private final EtatsCompacts etats;  // état courant
+
+    private final byte[] table;         // table de transition de la règle
+    private final int pasTable;         // maxCompte + 1
+    private final int nbComptes;        // nombre d'états distincts comptés
+    private final int[] rang;           // rang[e] = case du compteur de l'état e, -1 si non compté
+    private final int[] caseCompte;     // caseCompte[s] = rang de l'état compté par une cellule dans l'état s
+    private final boolean incremental;  // compteurs incrémentaux (Moore r = 1) ou sommes cumulées
+    private final byte[] compte;        // quartet idx * nbComptes + rang = nb de voisines
+
+    private final CompteurVoisinage compteur; // grands voisinages : comptes recalculés à chaque pas
+    private final int[][] comptes;      // comptes[rang][idx]
+    private final byte[] marques;       // indicatrice de l'état compté, réutilisée
+
+    private int[] actives;              // cellules susceptibles de changer à la prochaine génération
+    private int nbActives;
+    private int[] suivantes;            // tampon pour la liste active suivante
+    private final int[] marque;         // dernier tour où la cellule a été ajoutée à 'suivantes'
+    private int tour;
+    private final int[] changees;       // cellules qui changent pendant le pas courant
+    private final byte[] nouveaux;      // et leur nouvel état
+    private final int[] voisines = new int[8];
+    private final int[] decalages;      // décalages linéaires des 8 voisines (cellules intérieures)
+
+    /**
+     * Crée une grille dont toutes les cellules sont dans l'état 0.
+     * @param rows nombre de lignes
+     * @param cols nombre de colonnes
+     * @param regle la règle de l'automate
+     */
+    public AutomateGrid(int rows, int cols, RegleAutomate regle) {
+        super(rows, cols);
+        this.regle = regle;
+        int n = rows * cols;
+        this.init = new EtatsCompacts(n, regle.getNbEtats());
+        this.etats = new EtatsCompacts(n, regle.getNbEtats());
+
+        this.table = regle.table();
+        this.pasTable = regle.getMaxCompte() + 1;
+        int nbEtats = regle.getNbEtats();
+        this.rang = new int[nbEtats];
+        Arrays.fill(rang, -1);
+        int k = 0;
+        for (int s = 0; s < nbEtats; s++) {
+            int e = regle.getEtatCompte(s);
+            if (rang[e] < 0) rang[e] = k++;
+        }
+        this.nbComptes = k;
+        this.caseCompte = new int[nbEtats];
+        for (int s = 0; s < nbEtats; s++) {
+            caseCompte[s] = rang[regle.getEtatCompte(s)];
+        }
+        this.incremental = regle.getVoisinage().estMoore1() && !regle.isCentreInclus();
+        if (incremental) {
+            this.compte = new byte[(int) (((long) n * nbComptes + 1) >>> 1)];
+            this.actives = new int[n];
+            this.suivantes = new int[n];
+            this.marque = new int[n];
+            this.changees = new int[n];
+            this.nouveaux = new byte[n];
+            this.compteur = null;
+            this.comptes = null;
+            this.marques = null;
+        } else {
+            this.compte = null;
+            this.marque = null;
+            this.changees = null;
+            this.nouveaux = null;
+            this.compteur = new CompteurVoisinage(rows, cols, regle.getVoisinage(), regle.isCentreInclus());
+            this.comptes = new int[nbComptes][n];
+            this.marques = new byte[n];
+        }
+        this.decalages = new int[]{-cols - 1, -cols, -cols + 1, -1, 1, cols - 1, cols, cols + 1};
+        reconstruireCompteurs();
+        redemarrerSuivi();
+    }
+
+    /** @return la règle de l'automate */
+    public RegleAutomate getRegle() {
+        return regle;
+    }
+
+    @Override
+    public int getState(int i, int j) {
+        return etats.get(i * cols + j);
+    }
+
+    /**
+     * Fixe l'état initial et courant d'une cellule, sans mettre à jour les compteurs :
+     * appeler {@link #etatsRemplaces()} une fois toutes les cellules écrites.
+     */
+    protected final void placer(int i, int j, int etat) {
+        init.set(i * cols + j, etat);
+        etats.set(i * cols + j, etat);
+    }
+
+    /**
+     * À appeler par les sous-classes après avoir placé des cellules avec {@link #placer} :
+     * recalcule compteurs et empreinte, et repart de la génération 0.
+     */
+    protected final void etatsRemplaces() {
+        reconstruireCompteurs();
+        redemarrerSuivi();
+    }
+
+    @Override
+    protected void reinitialiser() {
+        etats.copierDepuis(init);
+        reconstruireCompteurs();
+    }
+
+    @Override
+    protected void sauvegarderEtat(DataOutput out) throws IOException {
+        etats.ecrire(out);
+    }
+
+    @Override
+    protected void restaurerEtat(DataInput in) throws IOException {
+        etats.lire(in);
+    }
+
+    @Override
+    protected int appliquerMasque(long index, int masque) {
+        int ancien = etats.get((int) index);
+        etats.set((int) index, ancien ^ masque);
+        return ancien;
+    }
+
+    @Override
+    protected void etatModifie() {
+        reconstruireCompteurs();
+    }
+
+    /** Seuls les compteurs des 8 voisines changent (rien à tenir pour un grand voisinage). */
+    @Override
+    protected boolean celluleRejouee(long index, int ancien, int nouveau) {
+        if (!incremental) return true;
+        int rAncien = rang[ancien];
+        int rNouveau = rang[nouveau];
+        remplirVoisines((int) index);
+        for (int v : voisines) {
+            if (rAncien >= 0) ajouterCompte(v * nbComptes + rAncien, -1);
+            if (rNouveau >= 0) ajouterCompte(v * nbComptes + rNouveau, 1);
+        }
+        return true;
+    }
+
+    /** La cellule et ses voisines rejoignent la liste active (qui peut garder d'anciennes cellules). */
+    @Override
+    protected void reexaminer(long index) {
+        if (!incremental || nbActives == actives.length) return;   // toutes déjà actives
+        int idx = (int) index;
+        remplirVoisines(idx);
+        activer(idx);
+        for (int v : voisines) activer(v);
+    }
+
+    /** Ajoute la cellule à la liste active si elle n'y est pas déjà (marque du dernier tour). */
+    private void activer(int idx) {
+        if (marque[idx] != tour) {
+            marque[idx] = tour;
+            actives[nbActives++] = idx;
+        }
+    }
+
+    /**
+     * Calcule une génération (tous en même temps, grille torique) : les décisions sont
+     * toutes prises, par lecture dans la table, avant d'appliquer le moindre changement.
+     */
+    @Override
+    protected void calculerGeneration() {
+        if (!incremental) {
+            calculerParSommes();
+            return;
+        }
+        int nbChangees = 0;
+        for (int k = 0; k < nbActives; k++) {
+            int idx = actives[k];
+            int s = etats.get(idx);
+            int c = lireCompte(idx * nbComptes + caseCompte[s]);
+            byte suivant = table[s * pasTable + c];
+            if ((suivant & 0xFF) != s) {
+                changees[nbChangees] = idx;
+                nouveaux[nbChangees++] = suivant;
+            }
+        }
+
+        tour++;
+        int nbSuivantes = 0;
+        for (int k = 0; k < nbChangees; k++) {
+            int idx = changees[k];
+            int ancien = etats.get(idx);
+            int nouveau = nouveaux[k] & 0xFF;
+            etats.set(idx, nouveau);
+            noterChangement(idx, ancien, nouveau);
+
+            // La cellule elle-même doit être réexaminée (son état a changé)
+            if (marque[idx] != tour) {
+                marque[idx] = tour;
+                suivantes[nbSuivantes++] = idx;
+            }
+            int rAncien = rang[ancien];
+            int rNouveau = rang[nouveau];
+            remplirVoisines(idx);
+            for (int v : voisines) {
+                if (rAncien >= 0) ajouterCompte(v * nbComptes + rAncien, -1);
+                if (rNouveau >= 0) ajouterCompte(v * nbComptes + rNouveau, 1);
+                if (marque[v] != tour) {
+                    marque[v] = tour;
+                    suivantes[nbSuivantes++] = v;
+                }
+            }
+        }
+
+        int[] tmp = actives;
+        actives = suivantes;
+        suivantes = tmp;
+        nbActives = nbSuivantes;
+    }
+
+    /**
+     * Grands voisinages : compte, pour chaque état compté, les voisines de toutes les cellules
+     * (sommes cumulées sur l'état courant), puis applique la table à toute la grille.
+     */
+    private void calculerParSommes() {
+        int nbEtats = regle.getNbEtats();
+        for (int e = 0; e < nbEtats; e++) {
+            if (rang[e] < 0) continue;
+            etats.indicatrice(e, marques);
+            compteur.compter(marques, comptes[rang[e]]);
+        }
+        int n = etats.taille();
+        for (int idx = 0; idx < n; idx++) {
+            int s = etats.get(idx);
+            int suivant = table[s * pasTable + comptes[caseCompte[s]][idx]] & 0xFF;
+            if (suivant != s) {
+                etats.set(idx, suivant);
+                noterChangement(idx, s, suivant);
+            }
+        }
+    }
+
+    /** Recalcule tous les compteurs à partir de l'état courant et rend toutes les cellules actives. */
+    private void reconstruireCompteurs() {
+        if (!incremental) return;
+        Arrays.fill(compte, (byte) 0);
+        int n = rows * cols;
+        for (int idx = 0; idx < n; idx++) {
+            remplirVoisines(idx);
+            for (int v : voisines) {
+                int r = rang[etats.get(v)];
+                if (r >= 0) ajouterCompte(idx * nbComptes + r, 1);
+            }
+            actives[idx] = idx;
+        }
+        nbActives = n;
+    }
+
+    /** @return le compteur stocké dans le quartet 'pos' de 'compte' */
+    private int lireCompte(int pos) {
+        return (compte[pos >>> 1] >>> ((pos & 1) << 2)) & 0xF;
+    }
+
+    /** Ajoute delta au quartet 'pos' de 'compte' (les comptes restent dans [0, 8] : pas de retenue). */
+    private void ajouterCompte(int pos, int delta) {
+        int o = pos >>> 1;
+        compte[o] = (byte) (compte[o] + (delta << ((pos & 1) << 2)));
+    }
+
+    /** Remplit 'voisines' avec les indices linéaires des 8 voisines (grille torique). */
+    private void remplirVoisines(int idx) {
+        int i = idx / cols;
+        int j = idx - i * cols;
+        if (i > 0 && i < rows - 1 && j > 0 && j < cols - 1) {
+            for (int k = 0; k < 8; k++) {
+                voisines[k] = idx + decalages[k];
+            }
+            return;
+        }
+        int k = 0;
+        for (int di = -1; di <= 1; di++) {
+            for (int dj = -1; dj <= 1; dj++) {
+                if (di == 0 && dj == 0) continue;
+                int ni = (i + di + rows) % rows;
+                int nj = (j + dj + cols) % cols;
+                voisines[k++] = ni * cols + nj;
+            }
+        }
+    }
+}
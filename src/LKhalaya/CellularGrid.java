@@ -1,15 +1,50 @@
 package LKhalaya;
 
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import multi_agents.EvenT.Instantane;
+
 /**
  * Classe abstraite représentant une grille cellulaire générique.
  * Factorise les attributs et méthodes communes à tous les automates cellulaires
  * (Jeu de la Vie, Jeu de l'Immigration, etc.).
+ *
+ * La grille tient aussi une empreinte de son état (hachage de Zobrist : XOR d'une clé
+ * par couple cellule/état non nul), mise à jour par les sous-classes uniquement sur les
+ * cellules qui changent, et un court historique des empreintes. Cela permet de détecter
+ * un état figé ou un cycle de période p sans comparer les grilles entières.
+ *
+ * Les mêmes notifications de changement alimentent, si on en attache un, un
+ * {@link HistoriqueGrille} qui permet de revenir à une génération passée.
  */
 public abstract class CellularGrid {
-    
+
+    /** Nombre d'empreintes conservées : on détecte les cycles de période au plus TAILLE_HISTORIQUE - 1. */
+    public static final int TAILLE_HISTORIQUE = 16;
+
     protected final int rows;
     protected final int cols;
-    
+
+    private long empreinte;                                     // empreinte de l'état courant
+    private final long[] historique = new long[TAILLE_HISTORIQUE]; // empreinte de la génération g en g % TAILLE
+    private long generation;                                    // générations depuis l'état initial
+    private long debutSuivi;                                    // première génération de 'historique' valide
+    private long changements;                                   // cellules modifiées depuis la création
+    private HistoriqueGrille chronique;                         // historique des états, ou null
+    private boolean aReconstruire;                              // un rejeu n'a pas suivi les structures dérivées
+
     /**
      * Constructeur de la grille cellulaire.
      * @param rows nombre de lignes
@@ -19,28 +54,391 @@ public abstract class CellularGrid {
         this.rows = rows;
         this.cols = cols;
     }
-    
+
     /**
-     * Calcule l'état suivant de la grille (une génération/étape).
+     * Calcule l'état suivant de la grille (une génération/étape) et l'ajoute à l'historique.
      */
-    public abstract void step();
-    
+    public final void step() {
+        GenerationJfr jfr = new GenerationJfr();
+        jfr.begin();
+        long changementsAvant = changements;
+        if (chronique != null) chronique.avantPas();
+        calculerGeneration();
+        generation++;
+        historique[(int) (generation % TAILLE_HISTORIQUE)] = empreinte;
+        if (chronique != null) chronique.apresPas();
+        jfr.end();
+        if (jfr.shouldCommit()) {
+            jfr.grille = getClass().getSimpleName();
+            jfr.lignes = rows;
+            jfr.colonnes = cols;
+            jfr.generation = generation;
+            jfr.changements = changements - changementsAvant;
+            jfr.commit();
+        }
+    }
+
     /**
      * Réinitialise la grille à son état initial.
      */
-    public abstract void reInit();
-    
+    public final void reInit() {
+        reinitialiser();
+        redemarrerSuivi();
+    }
+
+    /**
+     * Calcule une génération. Chaque cellule modifiée doit être signalée par {@link #noterChangement}.
+     */
+    protected abstract void calculerGeneration();
+
+    /**
+     * Remet l'état courant à l'état initial (sans se soucier de l'empreinte).
+     */
+    protected abstract void reinitialiser();
+
+    /**
+     * Écrit l'état courant complet (image clé de l'historique).
+     */
+    protected abstract void sauvegarderEtat(DataOutput out) throws IOException;
+
+    /**
+     * Remplace l'état courant par une image écrite par {@link #sauvegarderEtat}.
+     * Les structures dérivées sont reconstruites ensuite par {@link #etatModifie()}.
+     */
+    protected abstract void restaurerEtat(DataInput in) throws IOException;
+
+    /**
+     * Remplace l'état e de la cellule par e ^ masque, sans mettre à jour les structures
+     * dérivées (compteurs...) : un changement d'état enregistré s'annule en appliquant
+     * deux fois le même masque.
+     * @param index identifiant de la cellule, tel que passé à {@link #noterChangement}
+     * @return l'état e de la cellule avant le changement
+     */
+    protected abstract int appliquerMasque(long index, int masque);
+
+    /**
+     * Reconstruit les structures dérivées de l'état courant après des écritures directes
+     * ({@link #restaurerEtat}, {@link #appliquerMasque}).
+     */
+    protected abstract void etatModifie();
+
+    /**
+     * Met à jour les structures dérivées après qu'{@link #appliquerMasque} a changé une cellule,
+     * lors d'un déplacement dans l'historique sans image clé.
+     * @return false si la grille ne sait pas le faire cellule par cellule : tout sera alors
+     *         reconstruit par {@link #etatModifie()} à la fin du déplacement
+     */
+    protected boolean celluleRejouee(long index, int ancien, int nouveau) {
+        return false;
+    }
+
+    /**
+     * À la fin d'un déplacement dans l'historique sans image clé, appelée pour chaque cellule
+     * modifiée par le calcul de la génération atteinte : ses voisines peuvent changer à la
+     * génération suivante. Rien à faire pour une grille qui réexamine toutes ses cellules.
+     */
+    protected void reexaminer(long index) {
+    }
+
+    /**
+     * Image clé de l'état courant, pour l'historique. Par défaut, ce qu'écrit
+     * {@link #sauvegarderEtat}, dans un tableau du tas ; une grille stockée hors du tas
+     * y garde aussi ses images.
+     */
+    protected ImageCle prendreImageCle() throws IOException {
+        ByteArrayOutputStream flux = new ByteArrayOutputStream();
+        sauvegarderEtat(new DataOutputStream(flux));
+        byte[] image = flux.toByteArray();
+        return new ImageCle(image.length) {
+            @Override
+            protected void restaurer() throws IOException {
+                restaurerEtat(new DataInputStream(new ByteArrayInputStream(image)));
+            }
+        };
+    }
+
+    /**
+     * Écrit ce qui, en plus de l'état des cellules, détermine la suite de la simulation
+     * (générateur aléatoire, ordre des ensembles où l'on tire...). Rien pour un automate déterministe.
+     */
+    protected void sauvegarderSuite(DataOutput out) throws IOException {
+    }
+
+    /**
+     * Relit ce qu'a écrit {@link #sauvegarderSuite}, une fois l'état des cellules restauré
+     * et les structures dérivées reconstruites.
+     */
+    protected void restaurerSuite(DataInput in) throws IOException {
+    }
+
+    /**
+     * Sauvegarde la génération courante (état, numéro de génération, générateur aléatoire...)
+     * dans un instantané binaire écrit par un canal NIO.
+     * @param fichier le fichier à créer (ou écraser)
+     */
+    public void sauvegarder(Path fichier) throws IOException {
+        try (FileChannel canal = FileChannel.open(fichier, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+             DataOutputStream out = new DataOutputStream(
+                     new BufferedOutputStream(Channels.newOutputStream(canal), 1 << 16))) {
+            // En-tête commun à tous les instantanés (voir Instantane)
+            out.writeInt(Instantane.SIGNATURE);
+            out.writeShort(Instantane.VERSION_GRILLE);
+            out.writeByte(Instantane.GRILLE);
+            out.writeUTF(getClass().getName());
+            out.writeInt(rows);
+            out.writeInt(cols);
+            out.writeLong(generation);
+            sauvegarderEtat(out);
+            sauvegarderSuite(out);
+        }
+    }
+
+    /**
+     * Reprend depuis un instantané écrit par {@link #sauvegarder} pour une grille de même
+     * type et de mêmes dimensions. L'état initial (celui de {@link #reInit()}) est inchangé.
+     * @param fichier l'instantané
+     * @throws IOException si le fichier n'est pas un instantané de cette grille
+     */
+    public void restaurer(Path fichier) throws IOException {
+        try (FileChannel canal = FileChannel.open(fichier, StandardOpenOption.READ);
+             DataInputStream in = new DataInputStream(
+                     new BufferedInputStream(Channels.newInputStream(canal), 1 << 16))) {
+            if (in.readInt() != Instantane.SIGNATURE || !Instantane.lisible(Instantane.GRILLE, in.readShort())
+                    || in.readByte() != Instantane.GRILLE) {
+                throw new IOException("Ce fichier n'est pas un instantané de grille : " + fichier);
+            }
+            String classe = in.readUTF();
+            int r = in.readInt();
+            int c = in.readInt();
+            if (!classe.equals(getClass().getName()) || r != rows || c != cols) {
+                throw new IOException("Instantané d'une autre grille : " + classe + " " + r + "x" + c);
+            }
+            long g = in.readLong();
+            restaurerEtat(in);
+            positionner(g);
+            restaurerSuite(in);
+        }
+        if (chronique != null) chronique.recommencer();
+    }
+
+    /**
+     * @param i ligne
+     * @param j colonne
+     * @return l'état de la cellule (0 = état de fond : mort, vide...)
+     */
+    public abstract int getState(int i, int j);
+
     /**
      * @return le nombre de lignes de la grille
      */
     public int getRows() {
         return rows;
     }
-    
+
     /**
      * @return le nombre de colonnes de la grille
      */
     public int getCols() {
         return cols;
     }
+
+    /**
+     * @return le nombre de générations calculées depuis l'état initial
+     */
+    public long getGeneration() {
+        return generation;
+    }
+
+    /**
+     * @return l'empreinte de l'état courant
+     */
+    public long getEmpreinte() {
+        return empreinte;
+    }
+
+    /**
+     * Cherche la plus petite période p telle que l'état courant soit identique à celui
+     * d'il y a p générations. Pour un automate non déterministe, seul p = 1 a un sens.
+     * @return la période détectée, ou 0 si aucun cycle court n'est (encore) visible
+     */
+    public int getPeriode() {
+        long max = Math.min(generation - debutSuivi, TAILLE_HISTORIQUE - 1);
+        if (!estDeterministe()) max = Math.min(max, 1);
+        for (int p = 1; p <= max; p++) {
+            if (historique[(int) ((generation - p) % TAILLE_HISTORIQUE)] == empreinte) {
+                return p;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * @return true si la dernière génération n'a rien changé (point fixe)
+     */
+    public boolean estFige() {
+        return getPeriode() == 1;
+    }
+
+    /**
+     * Avance de n générations. Dès qu'un cycle de période p est détecté, on ne calcule plus
+     * que les (reste mod p) générations nécessaires : une fois l'automate figé ou périodique,
+     * l'appel coûte au plus p pas quel que soit n. Un saut sans calcul fait repartir
+     * l'historique attaché, s'il y en a un, de la génération atteinte.
+     * @param n nombre de générations à avancer
+     */
+    public void avancer(long n) {
+        long restant = n;
+        while (restant > 0) {
+            int p = getPeriode();
+            if (p > 0) {
+                long saut = restant - restant % p;
+                sauter(saut);
+                restant -= saut;
+                if (restant == 0) break;
+            }
+            step();
+            restant--;
+        }
+    }
+
+    /** Avance le compteur de générations d'un multiple de la période courante, sans calcul. */
+    private void sauter(long saut) {
+        if (saut == 0) return;
+        long[] ancien = historique.clone();
+        long depuis = Math.min(generation - debutSuivi, TAILLE_HISTORIQUE - 1);
+        for (long d = 0; d <= depuis; d++) {
+            historique[(int) ((generation + saut - d) % TAILLE_HISTORIQUE)] =
+                    ancien[(int) ((generation - d) % TAILLE_HISTORIQUE)];
+        }
+        generation += saut;
+        debutSuivi = generation - depuis;
+        if (chronique != null) chronique.recommencer();
+    }
+
+    /**
+     * Indique si l'état suivant ne dépend que de l'état courant (pas de tirage aléatoire).
+     * Un cycle de période > 1 n'est significatif que dans ce cas.
+     */
+    protected boolean estDeterministe() {
+        return true;
+    }
+
+    /**
+     * À appeler par les sous-classes pour chaque cellule qui change d'état.
+     * @param index identifiant de la cellule (i * cols + j pour une grille dense)
+     * @param ancien état avant le changement
+     * @param nouveau état après le changement
+     */
+    protected final void noterChangement(long index, int ancien, int nouveau) {
+        changements++;
+        empreinte ^= cle(index, ancien) ^ cle(index, nouveau);
+        if (chronique != null) chronique.noter(index, ancien ^ nouveau);
+    }
+
+    /**
+     * À appeler quand l'état courant a été remplacé en bloc (initialisation aléatoire...) :
+     * recalcule l'empreinte et repart d'un historique vide à la génération 0.
+     */
+    protected final void redemarrerSuivi() {
+        empreinte = calculerEmpreinte();
+        generation = 0;
+        debutSuivi = 0;
+        historique[0] = empreinte;
+        if (chronique != null) chronique.recommencer();
+    }
+
+    /**
+     * Place la grille à une génération déjà calculée dont l'état vient d'être restauré :
+     * reconstruit les structures dérivées et l'empreinte ; la détection de cycle repart de là.
+     */
+    final void positionner(long generation) {
+        etatModifie();
+        this.empreinte = calculerEmpreinte();
+        this.generation = generation;
+        this.debutSuivi = generation;
+        historique[(int) (generation % TAILLE_HISTORIQUE)] = empreinte;
+    }
+
+    /**
+     * Rejoue le changement enregistré d'une cellule (déplacement dans l'historique sans image
+     * clé) : l'empreinte suit cellule par cellule, et les structures dérivées aussi si la
+     * sous-classe le sait ({@link #celluleRejouee}).
+     */
+    final void rejouer(long index, int masque) {
+        int ancien = appliquerMasque(index, masque);
+        int nouveau = ancien ^ masque;
+        empreinte ^= cle(index, ancien) ^ cle(index, nouveau);
+        if (!aReconstruire && !celluleRejouee(index, ancien, nouveau)) {
+            aReconstruire = true;
+        }
+    }
+
+    /**
+     * Place la grille à la génération atteinte par des {@link #rejouer} : l'empreinte est
+     * déjà à jour ; les structures dérivées ne sont reconstruites que si une cellule n'a pas
+     * pu être suivie.
+     * @return true si les structures dérivées ont été reconstruites
+     */
+    final boolean positionnerRejoue(long generation) {
+        boolean reconstruit = aReconstruire;
+        if (reconstruit) etatModifie();
+        aReconstruire = false;
+        this.generation = generation;
+        this.debutSuivi = generation;
+        historique[(int) (generation % TAILLE_HISTORIQUE)] = empreinte;
+        return reconstruit;
+    }
+
+    /** Attache (ou détache, avec null) l'historique alimenté par les changements. */
+    final void setChronique(HistoriqueGrille chronique) {
+        this.chronique = chronique;
+    }
+
+    /**
+     * Calcule l'empreinte complète de l'état courant. Les moteurs qui ne parcourent pas
+     * une grille dense (représentation creuse) redéfinissent cette méthode.
+     */
+    protected long calculerEmpreinte() {
+        long h = 0;
+        for (int i = 0; i < rows; i++) {
+            for (int j = 0; j < cols; j++) {
+                h ^= cle((long) i * cols + j, getState(i, j));
+            }
+        }
+        return h;
+    }
+
+    /** Clé de Zobrist d'un couple (cellule, état), calculée à la volée ; l'état 0 vaut 0. */
+    protected static long cle(long index, int etat) {
+        if (etat == 0) return 0;
+        return LongHashSet.melanger(index * 0x9E3779B97F4A7C15L + etat);
+    }
+
+    /**
+     * Image clé de l'état d'une grille, gardée par l'historique jusqu'à ce qu'il l'oublie.
+     */
+    protected abstract static class ImageCle {
+        private final long taille;
+
+        /** @param taille place occupée par l'image, en octets */
+        protected ImageCle(long taille) {
+            this.taille = taille;
+        }
+
+        /** @return la place occupée par l'image, en octets */
+        public long getTaille() {
+            return taille;
+        }
+
+        /**
+         * Remplace l'état courant de la grille par l'image ; les structures dérivées sont
+         * reconstruites ensuite par {@link #etatModifie()}.
+         */
+        protected abstract void restaurer() throws IOException;
+
+        /** L'historique oublie l'image : sa place peut être réutilisée. */
+        protected void liberer() {
+        }
+    }
 }
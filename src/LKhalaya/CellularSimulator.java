@@ -2,6 +2,9 @@ package LKhalaya;
 
 import gui.GUISimulator;
 import gui.Simulable;
+import gui.Text;
+
+import java.awt.Color;
 
 /**
  * Classe abstraite représentant un simulateur générique pour automate cellulaire.
@@ -13,6 +16,24 @@ public abstract class CellularSimulator implements Simulable {
     protected final GUISimulator gui;
     protected final int cellHalf;
     protected final int step;
+
+    /**
+     * Taille maximale par défaut de la fenêtre affichée (en cellules, dans chaque direction).
+     * Une grille plus grande n'est dessinée qu'en partie : une légende l'indique en haut de
+     * l'affichage, jusqu'à ce que {@link #setFenetre} ou {@link #deplacerFenetre} choisissent la
+     * partie affichée.
+     */
+    public static final int FENETRE_MAX = 256;
+
+    // Fenêtre affichée : nbLignes × nbColonnes cellules à partir de (origineLigne, origineColonne)
+    private int origineLigne;
+    private int origineColonne;
+    private int nbLignes = -1;      // -1 : toute la grille (dans la limite de FENETRE_MAX)
+    private int nbColonnes = -1;
+    private boolean verifie;        // troncature par la fenêtre par défaut déjà recherchée
+    private String legende;         // légende de la grille tronquée (null si elle ne l'est pas)
+
+    private HistoriqueGrille historique;    // null tant que l'historique n'est pas activé
     
     /**
      * Constructeur du simulateur.
@@ -33,21 +54,159 @@ public abstract class CellularSimulator implements Simulable {
      */
     protected abstract CellularGrid getGrid();
     
+    /**
+     * Enregistre désormais les générations calculées, pour pouvoir revenir en arrière.
+     * @param intervalle nombre de générations entre deux images clés (état complet)
+     * @param budgetOctets mémoire maximale visée pour l'historique
+     * @return l'historique créé
+     */
+    public HistoriqueGrille activerHistorique(int intervalle, long budgetOctets) {
+        if (historique != null) historique.detacher();
+        historique = new HistoriqueGrille(getGrid(), intervalle, budgetOctets);
+        return historique;
+    }
+
+    /**
+     * Revient à la génération précédente (si l'historique est activé et la conserve).
+     * @return true si la grille a reculé
+     */
+    public boolean reculer() {
+        if (historique == null || !historique.reculer()) return false;
+        dessiner();
+        return true;
+    }
+
+    /**
+     * Se positionne sur une génération enregistrée et la dessine.
+     * @throws IllegalStateException si l'historique n'est pas activé
+     * @throws IllegalArgumentException si la génération n'est pas dans l'historique
+     */
+    public void allerA(long generation) {
+        if (historique == null) {
+            throw new IllegalStateException("Historique non activé");
+        }
+        historique.allerA(generation);
+        dessiner();
+    }
+
+    /**
+     * Restreint l'affichage à une fenêtre de la grille (indispensable pour les grilles trop
+     * grandes pour être dessinées entières). Les indices sont pris modulo la taille de la grille.
+     * @param ligne première ligne affichée
+     * @param colonne première colonne affichée
+     * @param lignes nombre de lignes affichées
+     * @param colonnes nombre de colonnes affichées
+     */
+    public void setFenetre(int ligne, int colonne, int lignes, int colonnes) {
+        if (lignes <= 0 || colonnes <= 0) {
+            throw new IllegalArgumentException("Fenêtre vide : " + lignes + "x" + colonnes);
+        }
+        this.origineLigne = ligne;
+        this.origineColonne = colonne;
+        this.nbLignes = lignes;
+        this.nbColonnes = colonnes;
+        this.legende = null;        // la partie affichée est choisie : plus rien à signaler
+        this.verifie = true;
+        dessiner();
+    }
+
+    /**
+     * Fait défiler la fenêtre affichée (la grille est torique : on peut en faire le tour),
+     * en gardant sa taille.
+     * @param lignes décalage vers le bas, en cellules (négatif vers le haut)
+     * @param colonnes décalage vers la droite, en cellules (négatif vers la gauche)
+     */
+    public void deplacerFenetre(int lignes, int colonnes) {
+        setFenetre(Math.floorMod(origineLigne + lignes, getGrid().getRows()),
+                Math.floorMod(origineColonne + colonnes, getGrid().getCols()),
+                lignesAffichees(), colonnesAffichees());
+    }
+
+    /**
+     * @return le nombre de lignes affichées
+     */
+    protected int lignesAffichees() {
+        return nbLignes > 0 ? nbLignes : Math.min(getGrid().getRows(), FENETRE_MAX);
+    }
+
+    /**
+     * @return le nombre de colonnes affichées
+     */
+    protected int colonnesAffichees() {
+        return nbColonnes > 0 ? nbColonnes : Math.min(getGrid().getCols(), FENETRE_MAX);
+    }
+
+    /**
+     * @param i ligne dans la fenêtre
+     * @return la ligne correspondante de la grille
+     */
+    protected int ligneGrille(int i) {
+        return Math.floorMod(origineLigne + i, getGrid().getRows());
+    }
+
+    /**
+     * @param j colonne dans la fenêtre
+     * @return la colonne correspondante de la grille
+     */
+    protected int colonneGrille(int j) {
+        return Math.floorMod(origineColonne + j, getGrid().getCols());
+    }
+
     /**
      * Dessine l'état courant de la grille dans l'interface graphique.
      * Chaque sous-classe implémente sa propre logique de dessin.
      */
     protected abstract void draw();
+
+    /**
+     * Dessine la grille en mesurant la durée du dessin (événement JFR {@link DessinGrilleJfr}).
+     */
+    protected final void dessiner() {
+        if (!verifie) {
+            // Les dimensions de la grille ne changent pas : on ne cherche qu'une fois
+            verifie = true;
+            CellularGrid grid = getGrid();
+            if (grid.getRows() > FENETRE_MAX || grid.getCols() > FENETRE_MAX) {
+                legende = "Grille " + grid.getRows() + "x" + grid.getCols() + " : " + lignesAffichees()
+                        + "x" + colonnesAffichees() + " cellules affichées (setFenetre, deplacerFenetre)";
+            }
+        }
+        DessinGrilleJfr jfr = new DessinGrilleJfr();
+        jfr.begin();
+        draw();
+        if (legende != null) {
+            gui.addGraphicalElement(new Text(gui.getPanelWidth() / 2, 12, Color.ORANGE, legende));
+        }
+        jfr.end();
+        if (jfr.shouldCommit()) {
+            jfr.simulateur = getClass().getSimpleName();
+            jfr.cellules = lignesAffichees() * colonnesAffichees();
+            jfr.commit();
+        }
+    }
     
+    /**
+     * Calcule et dessine la génération suivante. Après un retour en arrière, on rejoue
+     * d'abord les générations enregistrées. Si la grille est figée, plus rien ne peut
+     * changer : on ne recalcule ni ne redessine.
+     */
     @Override
     public void next() {
-        getGrid().step();
-        draw();
+        CellularGrid grid = getGrid();
+        if (historique != null && historique.avancer()) {
+            dessiner();
+            return;
+        }
+        if (grid.estFige()) {
+            return;
+        }
+        grid.step();
+        dessiner();
     }
     
     @Override
     public void restart() {
         getGrid().reInit();
-        draw();
+        dessiner();
     }
 }
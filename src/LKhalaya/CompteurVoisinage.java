@@ -0,0 +1,152 @@
+package LKhalaya;
+
+/**
+ * Compte, pour toutes les cellules d'une grille torique, le nombre de voisines marquées
+ * dans un voisinage de rayon quelconque, en O(1) par cellule quel que soit le rayon.
+ *
+ * La grille est d'abord recopiée dans un tableau élargi de r cellules de chaque côté
+ * (le repliement torique devient un simple recopiage), puis :
+ * <ul>
+ *   <li>Moore : table des sommes cumulées 2D, chaque carré se lit en 4 accès ;</li>
+ *   <li>von Neumann : sommes cumulées le long des deux diagonales ; le losange d'une
+ *       cellule se déduit de celui de sa voisine de gauche en ajoutant son bord droit et
+ *       en retirant le bord gauche de l'ancien (4 segments diagonaux, 8 accès).</li>
+ * </ul>
+ */
+final class CompteurVoisinage {
+
+    private final int rows;
+    private final int cols;
+    private final Voisinage voisinage;
+    private final boolean centreInclus;
+    private final int r;
+    private final int hauteur;          // rows + 2r
+    private final int largeur;          // cols + 2r
+    private final byte[] elargi;        // grille élargie, indice a * largeur + b
+
+    private final int[] sommes;         // Moore : sommes cumulées (hauteur + 1) x (largeur + 1)
+    private final int[] diagBas;        // von Neumann : cumul sur la diagonale (a-1, b-1) → (a, b)
+    private final int[] diagAnti;       // von Neumann : cumul sur la diagonale (a-1, b+1) → (a, b)
+    private final int[] ligneCumul;     // von Neumann : cumul par ligne, hauteur x (largeur + 1)
+
+    CompteurVoisinage(int rows, int cols, Voisinage voisinage, boolean centreInclus) {
+        this.rows = rows;
+        this.cols = cols;
+        this.voisinage = voisinage;
+        this.centreInclus = centreInclus;
+        this.r = voisinage.getRayon();
+        this.hauteur = rows + 2 * r;
+        this.largeur = cols + 2 * r;
+        this.elargi = new byte[hauteur * largeur];
+        if (voisinage.getForme() == Voisinage.Forme.MOORE) {
+            this.sommes = new int[(hauteur + 1) * (largeur + 1)];
+            this.diagBas = null;
+            this.diagAnti = null;
+            this.ligneCumul = null;
+        } else {
+            this.sommes = null;
+            this.diagBas = new int[hauteur * largeur];
+            this.diagAnti = new int[hauteur * largeur];
+            this.ligneCumul = new int[hauteur * (largeur + 1)];
+        }
+    }
+
+    /**
+     * @param marque marque[i * cols + j] = 1 si la cellule doit être comptée, 0 sinon
+     * @param sortie reçoit, pour chaque cellule, le nombre de voisines marquées
+     */
+    void compter(byte[] marque, int[] sortie) {
+        elargir(marque);
+        if (sommes != null) {
+            compterMoore(sortie);
+        } else {
+            compterVonNeumann(sortie);
+        }
+        if (!centreInclus) {
+            for (int idx = 0; idx < sortie.length; idx++) {
+                sortie[idx] -= marque[idx];
+            }
+        }
+    }
+
+    private void elargir(byte[] marque) {
+        for (int a = 0; a < hauteur; a++) {
+            int i = Math.floorMod(a - r, rows);
+            for (int b = 0; b < largeur; b++) {
+                elargi[a * largeur + b] = marque[i * cols + Math.floorMod(b - r, cols)];
+            }
+        }
+    }
+
+    private void compterMoore(int[] sortie) {
+        int l = largeur + 1;
+        for (int a = 0; a < hauteur; a++) {
+            int ligne = 0;
+            for (int b = 0; b < largeur; b++) {
+                ligne += elargi[a * largeur + b];
+                sommes[(a + 1) * l + b + 1] = sommes[a * l + b + 1] + ligne;
+            }
+        }
+        int d = 2 * r + 1;
+        for (int i = 0; i < rows; i++) {
+            for (int j = 0; j < cols; j++) {
+                // carré [i, i + 2r] x [j, j + 2r] en coordonnées élargies
+                sortie[i * cols + j] = sommes[(i + d) * l + j + d] - sommes[i * l + j + d]
+                        - sommes[(i + d) * l + j] + sommes[i * l + j];
+            }
+        }
+    }
+
+    private void compterVonNeumann(int[] sortie) {
+        int l = largeur + 1;
+        for (int a = 0; a < hauteur; a++) {
+            for (int b = 0; b < largeur; b++) {
+                int v = elargi[a * largeur + b];
+                int k = a * largeur + b;
+                diagBas[k] = v + ((a > 0 && b > 0) ? diagBas[k - largeur - 1] : 0);
+                diagAnti[k] = v + ((a > 0 && b < largeur - 1) ? diagAnti[k - largeur + 1] : 0);
+                ligneCumul[a * l + b + 1] = ligneCumul[a * l + b] + v;
+            }
+        }
+        for (int i = 0; i < rows; i++) {
+            int ci = i + r;
+            // Première colonne : somme directe des segments de ligne du losange
+            int cj = r;
+            int somme = 0;
+            for (int di = -r; di <= r; di++) {
+                int demi = r - Math.abs(di);
+                int a = ci + di;
+                somme += ligneCumul[a * l + cj + demi + 1] - ligneCumul[a * l + cj - demi];
+            }
+            sortie[i * cols] = somme;
+            // Colonnes suivantes : on glisse le losange d'une colonne vers la droite
+            for (int j = 1; j < cols; j++) {
+                cj = j + r;
+                somme += segmentBas(ci - r, cj, ci, cj + r)           // bord droit, moitié haute
+                        + segmentAnti(ci + 1, cj + r - 1, ci + r, cj) // bord droit, moitié basse
+                        - segmentAnti(ci - r, cj - 1, ci, cj - 1 - r) // ancien bord gauche, moitié haute
+                        - segmentBas(ci + 1, cj - r, ci + r, cj - 1); // ancien bord gauche, moitié basse
+                sortie[i * cols + j] = somme;
+            }
+        }
+    }
+
+    /** Somme sur la diagonale descendante de (a1, b1) à (a2, b2), avec a2 - a1 = b2 - b1. */
+    private int segmentBas(int a1, int b1, int a2, int b2) {
+        if (a2 < a1) return 0;
+        int avant = (a1 > 0 && b1 > 0) ? diagBas[(a1 - 1) * largeur + b1 - 1] : 0;
+        return diagBas[a2 * largeur + b2] - avant;
+    }
+
+    /** Somme sur l'anti-diagonale de (a1, b1) (haut) à (a2, b2) (bas), avec a2 - a1 = b1 - b2. */
+    private int segmentAnti(int a1, int b1, int a2, int b2) {
+        if (a2 < a1) return 0;
+        int avant = (a1 > 0 && b1 < largeur - 1) ? diagAnti[(a1 - 1) * largeur + b1 + 1] : 0;
+        return diagAnti[a2 * largeur + b2] - avant;
+    }
+
+    /** @return le voisinage compté */
+    Voisinage getVoisinage() {
+        return voisinage;
+    }
+}
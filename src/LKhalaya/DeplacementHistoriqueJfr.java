@@ -0,0 +1,35 @@
+package LKhalaya;
+
+import jdk.jfr.Category;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Événement Java Flight Recorder : déplacement d'une grille dans son historique
+ * ({@link HistoriqueGrille#allerA}).
+ */
+@Name("LKhalaya.DeplacementHistorique")
+@Label("Déplacement dans l'historique")
+@Category({"Simulation", "Automates cellulaires"})
+final class DeplacementHistoriqueJfr extends jdk.jfr.Event {
+    @Label("Grille")
+    String grille;
+
+    @Label("Génération de départ")
+    long depart;
+
+    @Label("Génération atteinte")
+    long cible;
+
+    @Label("Depuis une image clé")
+    boolean image;
+
+    @Label("Deltas appliqués")
+    int deltas;
+
+    @Label("Cellules rejouées")
+    long cellules;
+
+    @Label("Structures dérivées reconstruites")
+    boolean reconstruction;
+}
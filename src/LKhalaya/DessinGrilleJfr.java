@@ -0,0 +1,19 @@
+package LKhalaya;
+
+import jdk.jfr.Category;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Événement Java Flight Recorder : dessin de la fenêtre affichée d'une grille cellulaire.
+ */
+@Name("LKhalaya.Dessin")
+@Label("Dessin de grille")
+@Category({"Simulation", "Affichage"})
+final class DessinGrilleJfr extends jdk.jfr.Event {
+    @Label("Simulateur")
+    String simulateur;
+
+    @Label("Cellules dessinées")
+    int cellules;
+}
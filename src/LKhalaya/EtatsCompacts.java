@@ -0,0 +1,92 @@
+package LKhalaya;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * Tableau d'états de cellules compacté : 4 bits par cellule (deux cellules par octet) quand
+ * l'automate a au plus 16 états, un octet sinon (au plus 256 états).
+ *
+ * La cellule d'indice pair occupe le quartet de poids faible de son octet.
+ */
+final class EtatsCompacts {
+
+    private final int taille;
+    private final boolean quartets;     // 4 bits par cellule (sinon 8)
+    private final byte[] donnees;
+
+    /**
+     * @param taille nombre de cellules
+     * @param nbEtats nombre d'états (de 0 à nbEtats - 1)
+     * @throws IllegalArgumentException si nbEtats dépasse 256
+     */
+    EtatsCompacts(int taille, int nbEtats) {
+        if (nbEtats < 1 || nbEtats > 256) {
+            throw new IllegalArgumentException("Nombre d'états hors de [1, 256] : " + nbEtats);
+        }
+        this.taille = taille;
+        this.quartets = nbEtats <= 16;
+        this.donnees = new byte[quartets ? (taille + 1) >>> 1 : taille];
+    }
+
+    int taille() {
+        return taille;
+    }
+
+    /** @return le nombre de bits occupés par une cellule (4 ou 8) */
+    int bitsParEtat() {
+        return quartets ? 4 : 8;
+    }
+
+    int get(int idx) {
+        if (!quartets) return donnees[idx] & 0xFF;
+        return (donnees[idx >>> 1] >>> ((idx & 1) << 2)) & 0xF;
+    }
+
+    void set(int idx, int etat) {
+        if (!quartets) {
+            donnees[idx] = (byte) etat;
+            return;
+        }
+        int o = idx >>> 1;
+        int decalage = (idx & 1) << 2;
+        donnees[o] = (byte) ((donnees[o] & ~(0xF << decalage)) | (etat << decalage));
+    }
+
+    void copierDepuis(EtatsCompacts source) {
+        System.arraycopy(source.donnees, 0, donnees, 0, donnees.length);
+    }
+
+    /** Écrit les octets compactés tels quels. */
+    void ecrire(DataOutput out) throws IOException {
+        out.write(donnees);
+    }
+
+    /** Relit des octets écrits par {@link #ecrire} pour un tableau de même taille. */
+    void lire(DataInput in) throws IOException {
+        in.readFully(donnees);
+    }
+
+    /**
+     * Écrit dans sortie[idx] 1 si la cellule idx est dans l'état donné, 0 sinon.
+     * Parcourt directement les octets compactés (deux cellules par lecture en mode 4 bits).
+     */
+    void indicatrice(int etat, byte[] sortie) {
+        if (!quartets) {
+            for (int idx = 0; idx < taille; idx++) {
+                sortie[idx] = (byte) ((donnees[idx] & 0xFF) == etat ? 1 : 0);
+            }
+            return;
+        }
+        int paires = taille >>> 1;
+        for (int o = 0; o < paires; o++) {
+            int b = donnees[o];
+            sortie[2 * o] = (byte) ((b & 0xF) == etat ? 1 : 0);
+            sortie[2 * o + 1] = (byte) (((b >>> 4) & 0xF) == etat ? 1 : 0);
+        }
+        if ((taille & 1) != 0) {
+            sortie[taille - 1] = (byte) ((donnees[paires] & 0xF) == etat ? 1 : 0);
+        }
+    }
+}
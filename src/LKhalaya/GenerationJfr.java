@@ -0,0 +1,28 @@
+package LKhalaya;
+
+import jdk.jfr.Category;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Événement Java Flight Recorder : calcul d'une génération d'une grille cellulaire.
+ */
+@Name("LKhalaya.Generation")
+@Label("Génération")
+@Category({"Simulation", "Automates cellulaires"})
+final class GenerationJfr extends jdk.jfr.Event {
+    @Label("Grille")
+    String grille;
+
+    @Label("Lignes")
+    int lignes;
+
+    @Label("Colonnes")
+    int colonnes;
+
+    @Label("Génération")
+    long generation;
+
+    @Label("Cellules modifiées")
+    long changements;
+}
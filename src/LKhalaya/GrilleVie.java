@@ -0,0 +1,25 @@
+package LKhalaya;
+
+/**
+ * Grille à deux états (vivante / morte), implémentée par la grille torique classique
+ * comme par le moteur creux non borné.
+ */
+public interface GrilleVie {
+
+    /**
+     * @param i ligne (dans la zone affichée)
+     * @param j colonne (dans la zone affichée)
+     * @return true si la cellule est vivante
+     */
+    boolean isAlive(int i, int j);
+
+    /**
+     * Place ou retire une cellule dans la configuration initiale et courante (grille torique :
+     * indices pris modulo la taille ; plan creux : coordonnées absolues). Ne met pas à jour le
+     * suivi des générations : appeler {@link CellularGrid#reInit()} une fois le motif posé.
+     * @param i ligne
+     * @param j colonne
+     * @param alive true pour une cellule vivante
+     */
+    void setAlive(int i, int j, boolean alive);
+}
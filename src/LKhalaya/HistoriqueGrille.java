@@ -0,0 +1,315 @@
+package LKhalaya;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Historique des générations d'une grille, pour revenir en arrière ou se positionner sur
+ * une génération passée sans tout recalculer depuis l'état initial.
+ *
+ * Chaque génération est enregistrée comme un delta : la liste des cellules modifiées,
+ * codée en varint (écart d'indice avec la cellule précédente, puis ancien ^ nouveau état).
+ * Ce masque XOR rend le delta réversible : il sert aussi bien pour avancer que pour reculer.
+ * Une image clé (état complet) est prise toutes les {@code intervalle} générations ; on se
+ * positionne en partant de l'image clé ou de la génération courante la plus proche, soit au
+ * plus intervalle / 2 deltas à appliquer.
+ *
+ * Coût d'un déplacement : depuis la génération courante, chaque cellule des deltas appliqués
+ * est rejouée avec sa part d'empreinte et, si la grille le sait, de ses structures dérivées
+ * ({@link CellularGrid#celluleRejouee}) ; le coût est alors proportionnel aux cellules
+ * rejouées, pas à la taille de la grille. Depuis une image clé, ou pour une grille qui ne
+ * suit pas ses structures cellule par cellule ({@link SchellingGrid}), on reconstruit tout :
+ * O(cellules). Chaque déplacement est mesuré par un événement JFR
+ * ({@code LKhalaya.DeplacementHistorique}) : deltas appliqués, cellules rejouées,
+ * reconstruction ou non.
+ *
+ * Quand la mémoire occupée dépasse le budget, on oublie les générations les plus anciennes,
+ * un intervalle entier à la fois (l'historique commence toujours par une image clé, et la
+ * plus récente est toujours conservée).
+ */
+public class HistoriqueGrille {
+
+    private final CellularGrid grille;
+    private final int intervalle;       // générations entre deux images clés
+    private final long budget;          // octets
+
+    private long premiere;              // première génération conservée (une image clé)
+    private long derniere;              // dernière génération enregistrée
+    private final List<byte[]> deltas = new ArrayList<>();  // deltas.get(g - premiere - 1) : de g - 1 à g
+    private final TreeMap<Long, CellularGrid.ImageCle> images = new TreeMap<>();
+    private long octets;                // taille cumulée des deltas et images
+
+    // Delta de la génération en cours de calcul
+    private byte[] tampon = new byte[64];
+    private int taille;
+    private long dernierIndex;
+
+    /**
+     * Attache un historique à la grille ; il démarre de la génération courante.
+     * @param grille la grille à suivre
+     * @param intervalle nombre de générations entre deux images clés
+     * @param budget mémoire maximale visée, en octets
+     */
+    public HistoriqueGrille(CellularGrid grille, int intervalle, long budget) {
+        if (intervalle < 1) {
+            throw new IllegalArgumentException("Intervalle entre images clés invalide : " + intervalle);
+        }
+        this.grille = grille;
+        this.intervalle = intervalle;
+        this.budget = budget;
+        grille.setChronique(this);
+        recommencer();
+    }
+
+    /** Détache l'historique de la grille. */
+    public void detacher() {
+        grille.setChronique(null);
+    }
+
+    /** @return la plus ancienne génération accessible */
+    public long getPremiere() {
+        return premiere;
+    }
+
+    /** @return la plus récente génération accessible */
+    public long getDerniere() {
+        return derniere;
+    }
+
+    /** @return la mémoire occupée par les deltas et images clés, en octets */
+    public long getOctets() {
+        return octets;
+    }
+
+    /**
+     * Remet la grille dans l'état de la génération demandée.
+     * @throws IllegalArgumentException si la génération n'est pas (ou plus) dans l'historique
+     */
+    public void allerA(long cible) {
+        if (cible < premiere || cible > derniere) {
+            throw new IllegalArgumentException("Génération " + cible + " hors de l'historique ["
+                    + premiere + ", " + derniere + "]");
+        }
+        long courante = grille.getGeneration();
+        if (cible == courante) return;
+        DeplacementHistoriqueJfr jfr = new DeplacementHistoriqueJfr();
+        jfr.begin();
+
+        // Point de départ le plus proche : la génération courante ou une image clé
+        long depart = courante;
+        Map.Entry<Long, CellularGrid.ImageCle> avant = images.floorEntry(cible);
+        Map.Entry<Long, CellularGrid.ImageCle> apres = images.ceilingEntry(cible);
+        Map.Entry<Long, CellularGrid.ImageCle> image = null;
+        if (avant != null && cible - avant.getKey() < Math.abs(cible - depart)) {
+            image = avant;
+            depart = avant.getKey();
+        }
+        if (apres != null && apres.getKey() - cible < Math.abs(cible - depart)) {
+            image = apres;
+            depart = apres.getKey();
+        }
+        boolean rejeu = image == null;
+        if (!rejeu) {
+            try {
+                image.getValue().restaurer();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        long cellules = 0;
+        for (long g = depart + 1; g <= cible; g++) {
+            cellules += appliquer(deltas.get((int) (g - premiere - 1)), rejeu);
+        }
+        for (long g = depart; g > cible; g--) {
+            cellules += appliquer(deltas.get((int) (g - premiere - 1)), rejeu);
+        }
+        boolean reconstruit = true;
+        if (rejeu) {
+            reconstruit = grille.positionnerRejoue(cible);
+            if (!reconstruit && cible > premiere) {
+                reexaminer(deltas.get((int) (cible - premiere - 1)));
+            }
+        } else {
+            grille.positionner(cible);
+        }
+
+        jfr.end();
+        if (jfr.shouldCommit()) {
+            jfr.grille = grille.getClass().getSimpleName();
+            jfr.depart = courante;
+            jfr.cible = cible;
+            jfr.image = !rejeu;
+            jfr.deltas = (int) Math.abs(cible - depart);
+            jfr.cellules = cellules;
+            jfr.reconstruction = reconstruit;
+            jfr.commit();
+        }
+    }
+
+    /**
+     * Recule d'une génération.
+     * @return false si la génération courante est la plus ancienne conservée
+     */
+    public boolean reculer() {
+        long g = grille.getGeneration();
+        if (g <= premiere) return false;
+        allerA(g - 1);
+        return true;
+    }
+
+    /**
+     * Avance d'une génération déjà enregistrée (sans recalcul, donc avec le même tirage
+     * pour un automate aléatoire).
+     * @return false si la génération courante est la plus récente enregistrée
+     */
+    public boolean avancer() {
+        long g = grille.getGeneration();
+        if (g >= derniere) return false;
+        allerA(g + 1);
+        return true;
+    }
+
+    /** L'état courant a été remplacé : on oublie tout et on repart d'une image clé. */
+    void recommencer() {
+        deltas.clear();
+        for (CellularGrid.ImageCle im : images.values()) im.liberer();
+        images.clear();
+        octets = 0;
+        premiere = derniere = grille.getGeneration();
+        prendreImage();
+    }
+
+    /** Avant le calcul d'une génération : une suite recalculée remplace la suite enregistrée. */
+    void avantPas() {
+        long g = grille.getGeneration();
+        if (g < derniere) {
+            List<byte[]> fin = deltas.subList((int) (g - premiere), deltas.size());
+            for (byte[] d : fin) octets -= d.length;
+            fin.clear();
+            Map<Long, CellularGrid.ImageCle> imagesFin = images.tailMap(g, false);
+            for (CellularGrid.ImageCle im : imagesFin.values()) {
+                octets -= im.getTaille();
+                im.liberer();
+            }
+            imagesFin.clear();
+            derniere = g;
+        }
+        taille = 0;
+        dernierIndex = 0;
+    }
+
+    /** Changement d'une cellule pendant le calcul. */
+    void noter(long index, int masque) {
+        if (taille + 15 > tampon.length) {
+            tampon = Arrays.copyOf(tampon, 2 * tampon.length);
+        }
+        long ecart = index - dernierIndex;
+        ecrireVarint((ecart << 1) ^ (ecart >> 63));
+        ecrireVarint(masque & 0xFFFFFFFFL);
+        dernierIndex = index;
+    }
+
+    /** Génération calculée : on range son delta, éventuellement une image clé, puis on respecte le budget. */
+    void apresPas() {
+        byte[] d = Arrays.copyOf(tampon, taille);
+        deltas.add(d);
+        octets += d.length;
+        derniere = grille.getGeneration();
+        if (derniere % intervalle == 0) {
+            prendreImage();
+        }
+        while (octets > budget && images.size() > 1) {
+            oublierPremierIntervalle();
+        }
+    }
+
+    private void prendreImage() {
+        CellularGrid.ImageCle image;
+        try {
+            image = grille.prendreImageCle();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        images.put(grille.getGeneration(), image);
+        octets += image.getTaille();
+    }
+
+    /** Oublie les générations précédant la deuxième image clé, qui devient le début de l'historique. */
+    private void oublierPremierIntervalle() {
+        CellularGrid.ImageCle oubliee = images.pollFirstEntry().getValue();
+        octets -= oubliee.getTaille();
+        oubliee.liberer();
+        long nouvelle = images.firstKey();
+        List<byte[]> debut = deltas.subList(0, (int) (nouvelle - premiere));
+        for (byte[] d : debut) octets -= d.length;
+        debut.clear();
+        premiere = nouvelle;
+    }
+
+    /**
+     * Applique un delta : cellule par cellule avec l'empreinte et les structures dérivées
+     * ({@code rejeu}), ou seulement sur l'état, après la restauration d'une image clé.
+     * @return le nombre de cellules modifiées
+     */
+    private int appliquer(byte[] delta, boolean rejeu) {
+        int nb = 0;
+        int pos = 0;
+        long index = 0;
+        while (pos < delta.length) {
+            long v = 0;
+            int decalage = 0;
+            byte b;
+            do {
+                b = delta[pos++];
+                v |= (long) (b & 0x7F) << decalage;
+                decalage += 7;
+            } while (b < 0);
+            index += (v >>> 1) ^ -(v & 1);
+            int masque = 0;
+            decalage = 0;
+            do {
+                b = delta[pos++];
+                masque |= (b & 0x7F) << decalage;
+                decalage += 7;
+            } while (b < 0);
+            if (rejeu) grille.rejouer(index, masque);
+            else grille.appliquerMasque(index, masque);
+            nb++;
+        }
+        return nb;
+    }
+
+    /** Signale à la grille les cellules d'un delta, qui peuvent faire changer leurs voisines. */
+    private void reexaminer(byte[] delta) {
+        int pos = 0;
+        long index = 0;
+        while (pos < delta.length) {
+            long v = 0;
+            int decalage = 0;
+            byte b;
+            do {
+                b = delta[pos++];
+                v |= (long) (b & 0x7F) << decalage;
+                decalage += 7;
+            } while (b < 0);
+            index += (v >>> 1) ^ -(v & 1);
+            do {
+                b = delta[pos++];
+            } while (b < 0);            // masque inutile ici
+            grille.reexaminer(index);
+        }
+    }
+
+    private void ecrireVarint(long v) {
+        while ((v & ~0x7FL) != 0) {
+            tampon[taille++] = (byte) ((v & 0x7F) | 0x80);
+            v >>>= 7;
+        }
+        tampon[taille++] = (byte) v;
+    }
+}
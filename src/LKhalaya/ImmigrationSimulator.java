@@ -29,11 +29,13 @@ public class ImmigrationSimulator extends CellularSimulator {
     @Override
     protected void draw() {
         gui.reset();
-        for (int i = 0; i < grid.getRows(); i++) {
-            for (int j = 0; j < grid.getCols(); j++) {
+        int lignes = lignesAffichees();
+        int colonnes = colonnesAffichees();
+        for (int i = 0; i < lignes; i++) {
+            for (int j = 0; j < colonnes; j++) {
                 int cx = cellHalf + j * step;
                 int cy = cellHalf + i * step;
-                int state = grid.getState(i, j);
+                int state = grid.getState(ligneGrille(i), colonneGrille(j));
                 Color color = palette[state ];
                 gui.addGraphicalElement(new Rectangle(cx, cy, color, color, cellHalf));
             }
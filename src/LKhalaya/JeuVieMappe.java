@@ -0,0 +1,391 @@
+package LKhalaya;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.Random;
+
+/**
+ * Jeu de la vie (ou toute règle life-like de rayon 1) sur une grille torique stockée hors
+ * du tas, dans un fichier projeté en mémoire : un bit par cellule, 64 cellules par mot.
+ *
+ * Le calcul d'une génération parcourt la grille par bandes d'une ligne : seules trois
+ * lignes (voisines du dessus, courante, du dessous) sont copiées dans le tas, et chaque mot
+ * de 64 cellules est traité d'un bloc par additions bit à bit. L'occupation du tas reste
+ * donc proportionnelle à une ligne, quelle que soit la taille de la grille ; c'est le
+ * système qui pagine le fichier (trois zones : initiale, courante, suivante, puis une zone
+ * par image clé si un {@link HistoriqueGrille} est attaché).
+ *
+ * Le nombre de colonnes doit être un multiple de 64.
+ */
+public class JeuVieMappe extends CellularGrid implements GrilleVie, AutoCloseable {
+
+    /** Taille maximale d'une projection (les tampons NIO sont indexés par des int). */
+    private static final long TAILLE_SEGMENT = 1L << 30;
+
+    private final int mots;             // mots de 64 bits par ligne
+    private final RegleAutomate regle;
+    private final FileChannel canal;
+    private final long tailleZone;      // octets d'une zone
+    private final Zone init;
+    private Zone courante;
+    private Zone suivante;
+    private final int naissance;        // bit c = naissance avec c voisines
+    private final int survie;           // bit c = survie avec c voisines
+    private final ArrayDeque<Zone> zonesLibres = new ArrayDeque<>();   // zones d'images clés oubliées
+    private int nbZonesImages;          // zones d'images clés créées dans le fichier
+
+    // Tampons d'une bande (les seuls tableaux alloués dans le tas)
+    private long[] haut;
+    private long[] milieu;
+    private long[] bas;
+    private final long[] resultat;
+
+    /**
+     * Crée une grille Conway dans un fichier temporaire supprimé à la fin du programme.
+     */
+    public JeuVieMappe(int rows, int cols) throws IOException {
+        this(rows, cols, RegleAutomate.CONWAY, fichierTemporaire());
+    }
+
+    /**
+     * @param rows nombre de lignes
+     * @param cols nombre de colonnes (multiple de 64)
+     * @param regle règle life-like à deux états sur les 8 voisines
+     * @param fichier fichier de stockage (créé ou écrasé)
+     * @throws IllegalArgumentException si la règle ou les dimensions ne conviennent pas
+     */
+    public JeuVieMappe(int rows, int cols, RegleAutomate regle, Path fichier) throws IOException {
+        super(rows, cols);
+        if (cols <= 0 || cols % 64 != 0 || rows <= 0) {
+            throw new IllegalArgumentException("Le nombre de colonnes doit être un multiple de 64 : " + cols);
+        }
+        if (regle.getNbEtats() != 2 || !regle.getVoisinage().estMoore1() || regle.isCentreInclus()) {
+            throw new IllegalArgumentException("Règle life-like de rayon 1 attendue : " + regle);
+        }
+        this.regle = regle;
+        int n = 0;
+        int s = 0;
+        for (int c = 0; c <= 8; c++) {
+            if (regle.suivant(0, c) == 1) n |= 1 << c;
+            if (regle.suivant(1, c) == 1) s |= 1 << c;
+        }
+        this.naissance = n;
+        this.survie = s;
+        this.mots = cols / 64;
+
+        this.canal = FileChannel.open(fichier, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        this.tailleZone = (long) rows * mots * 8;
+        try {
+            this.init = new Zone(canal, 0, rows, mots);
+            this.courante = new Zone(canal, tailleZone, rows, mots);
+            this.suivante = new Zone(canal, 2 * tailleZone, rows, mots);
+        } catch (RuntimeException | Error e) {
+            // La projection a échoué (fichier trop grand, plus de mémoire...) : le canal ne sera jamais fermé
+            try {
+                canal.close();
+            } catch (IOException fermeture) {
+                e.addSuppressed(fermeture);
+            }
+            throw e;
+        }
+
+        this.haut = new long[mots];
+        this.milieu = new long[mots];
+        this.bas = new long[mots];
+        this.resultat = new long[mots];
+    }
+
+    private static Path fichierTemporaire() throws IOException {
+        Path p = Files.createTempFile("jeuvie", ".grille");
+        p.toFile().deleteOnExit();
+        return p;
+    }
+
+    /** @return la règle de l'automate */
+    public RegleAutomate getRegle() {
+        return regle;
+    }
+
+    /** Initialisation aléatoire (même tirage, cellule par cellule, que {@link JeuVie#randomInit}). */
+    public void randomInit(double aliveProb, long seed) {
+        Random r = new Random(seed);
+        for (int i = 0; i < rows; i++) {
+            for (int w = 0; w < mots; w++) {
+                long mot = 0;
+                for (int b = 0; b < 64; b++) {
+                    if (r.nextDouble() < aliveProb) mot |= 1L << b;
+                }
+                init.ecrire(i, w, mot);
+                courante.ecrire(i, w, mot);
+            }
+        }
+        redemarrerSuivi();
+    }
+
+    @Override
+    public void setAlive(int i, int j, boolean alive) {
+        i = Math.floorMod(i, rows);
+        j = Math.floorMod(j, cols);
+        int w = j >>> 6;
+        long bit = 1L << (j & 63);
+        long m = courante.lire(i, w);
+        courante.ecrire(i, w, alive ? m | bit : m & ~bit);
+        m = init.lire(i, w);
+        init.ecrire(i, w, alive ? m | bit : m & ~bit);
+    }
+
+    @Override
+    public boolean isAlive(int i, int j) {
+        return (courante.lire(i, j >>> 6) & (1L << (j & 63))) != 0;
+    }
+
+    @Override
+    public int getState(int i, int j) {
+        return isAlive(i, j) ? 1 : 0;
+    }
+
+    @Override
+    protected void reinitialiser() {
+        courante.copierDepuis(init);
+    }
+
+    /** Image : tous les mots de l'état courant, ligne par ligne. */
+    @Override
+    protected void sauvegarderEtat(DataOutput out) throws IOException {
+        long[] ligne = new long[mots];
+        for (int i = 0; i < rows; i++) {
+            courante.lireLigne(i, ligne);
+            for (long m : ligne) out.writeLong(m);
+        }
+    }
+
+    @Override
+    protected void restaurerEtat(DataInput in) throws IOException {
+        long[] ligne = new long[mots];
+        for (int i = 0; i < rows; i++) {
+            for (int w = 0; w < mots; w++) ligne[w] = in.readLong();
+            courante.ecrireLigne(i, ligne);
+        }
+    }
+
+    @Override
+    protected int appliquerMasque(long index, int masque) {
+        int i = (int) (index / cols);
+        int j = (int) (index % cols);
+        long mot = courante.lire(i, j >>> 6);
+        courante.ecrire(i, j >>> 6, mot ^ ((long) (masque & 1) << (j & 63)));
+        return (int) (mot >>> (j & 63)) & 1;
+    }
+
+    /** Pas de structure dérivée : tout est recalculé à chaque génération. */
+    @Override
+    protected void etatModifie() {
+    }
+
+    @Override
+    protected boolean celluleRejouee(long index, int ancien, int nouveau) {
+        return true;
+    }
+
+    /**
+     * Image clé copiée dans une zone du fichier, après les trois zones de calcul : elle ne
+     * passe pas par le tas. Les zones des images oubliées sont réutilisées.
+     */
+    @Override
+    protected ImageCle prendreImageCle() {
+        Zone zone = zonesLibres.poll();
+        if (zone == null) {
+            zone = new Zone(canal, (3 + nbZonesImages++) * tailleZone, rows, mots);
+        }
+        zone.copierDepuis(courante);
+        Zone image = zone;
+        return new ImageCle(tailleZone) {
+            @Override
+            protected void restaurer() {
+                courante.copierDepuis(image);
+            }
+
+            @Override
+            protected void liberer() {
+                zonesLibres.push(image);
+            }
+        };
+    }
+
+    /**
+     * Calcule une génération ligne par ligne : pour chaque mot, on additionne les 8 voisines
+     * en parallèle sur 64 cellules (compteur de 4 bits réparti sur 4 mots).
+     */
+    @Override
+    protected void calculerGeneration() {
+        courante.lireLigne(rows - 1, haut);
+        courante.lireLigne(0, milieu);
+        for (int i = 0; i < rows; i++) {
+            courante.lireLigne(i + 1 < rows ? i + 1 : 0, bas);
+            for (int w = 0; w < mots; w++) {
+                int g = (w == 0) ? mots - 1 : w - 1;
+                int d = (w == mots - 1) ? 0 : w + 1;
+                long c = milieu[w];
+                long s0 = 0, s1 = 0, s2 = 0, s3 = 0;
+                long x;
+                // Pour chacune des 8 voisines : s += x (addition bit à bit avec retenue)
+                for (int k = 0; k < 8; k++) {
+                    switch (k) {
+                        case 0: x = ouest(haut, w, g); break;
+                        case 1: x = haut[w]; break;
+                        case 2: x = est(haut, w, d); break;
+                        case 3: x = ouest(milieu, w, g); break;
+                        case 4: x = est(milieu, w, d); break;
+                        case 5: x = ouest(bas, w, g); break;
+                        case 6: x = bas[w]; break;
+                        default: x = est(bas, w, d); break;
+                    }
+                    long r0 = s0 & x;
+                    s0 ^= x;
+                    long r1 = s1 & r0;
+                    s1 ^= r0;
+                    long r2 = s2 & r1;
+                    s2 ^= r1;
+                    s3 |= r2;
+                }
+                long nait = 0;
+                long reste = 0;
+                for (int n = 0; n <= 8; n++) {
+                    if (((naissance | survie) >> n & 1) == 0) continue;
+                    long egal = ((n & 1) != 0 ? s0 : ~s0) & ((n & 2) != 0 ? s1 : ~s1)
+                            & ((n & 4) != 0 ? s2 : ~s2) & ((n & 8) != 0 ? s3 : ~s3);
+                    if ((naissance >> n & 1) != 0) nait |= egal;
+                    if ((survie >> n & 1) != 0) reste |= egal;
+                }
+                long suivant = (~c & nait) | (c & reste);
+                resultat[w] = suivant;
+                noterChangements(i, w, c ^ suivant, suivant);
+            }
+            suivante.ecrireLigne(i, resultat);
+            long[] tmp = haut;
+            haut = milieu;
+            milieu = bas;
+            bas = tmp;
+        }
+        Zone tmp = courante;
+        courante = suivante;
+        suivante = tmp;
+    }
+
+    /** Voisine de gauche (colonne - 1) de chaque cellule du mot w. */
+    private static long ouest(long[] ligne, int w, int g) {
+        return (ligne[w] << 1) | (ligne[g] >>> 63);
+    }
+
+    /** Voisine de droite (colonne + 1) de chaque cellule du mot w. */
+    private static long est(long[] ligne, int w, int d) {
+        return (ligne[w] >>> 1) | (ligne[d] << 63);
+    }
+
+    /** Signale à l'empreinte chacune des cellules modifiées du mot (coût proportionnel aux changements). */
+    private void noterChangements(int i, int w, long diff, long suivant) {
+        long base = (long) i * cols + ((long) w << 6);
+        while (diff != 0) {
+            int b = Long.numberOfTrailingZeros(diff);
+            diff &= diff - 1;
+            int nouveau = (int) (suivant >>> b) & 1;
+            noterChangement(base + b, 1 - nouveau, nouveau);
+        }
+    }
+
+    /** Empreinte complète : seules les cellules vivantes contribuent. */
+    @Override
+    protected long calculerEmpreinte() {
+        long h = 0;
+        long[] ligne = new long[mots];
+        for (int i = 0; i < rows; i++) {
+            courante.lireLigne(i, ligne);
+            for (int w = 0; w < mots; w++) {
+                long m = ligne[w];
+                while (m != 0) {
+                    int b = Long.numberOfTrailingZeros(m);
+                    m &= m - 1;
+                    h ^= cle((long) i * cols + ((long) w << 6) + b, 1);
+                }
+            }
+        }
+        return h;
+    }
+
+    /** Ferme le fichier (les projections sont libérées par le ramasse-miettes). */
+    @Override
+    public void close() throws IOException {
+        canal.close();
+    }
+
+    /**
+     * Zone de rows × mots mots de 64 bits, projetée en segments d'au plus 1 Gio
+     * contenant chacun un nombre entier de lignes.
+     */
+    private static final class Zone {
+        private final MappedByteBuffer[] segments;
+        private final int lignesParSegment;
+        private final int octetsParLigne;
+
+        Zone(FileChannel canal, long debut, int rows, int mots) {
+            this.octetsParLigne = mots * 8;
+            this.lignesParSegment = (int) Math.max(1, Math.min(rows, TAILLE_SEGMENT / octetsParLigne));
+            int nb = (rows + lignesParSegment - 1) / lignesParSegment;
+            this.segments = new MappedByteBuffer[nb];
+            try {
+                for (int k = 0; k < nb; k++) {
+                    int lignes = Math.min(lignesParSegment, rows - k * lignesParSegment);
+                    long position = debut + (long) k * lignesParSegment * octetsParLigne;
+                    segments[k] = canal.map(FileChannel.MapMode.READ_WRITE, position, (long) lignes * octetsParLigne);
+                    segments[k].order(ByteOrder.nativeOrder());
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        long lire(int i, int w) {
+            return segments[i / lignesParSegment].getLong((i % lignesParSegment) * octetsParLigne + w * 8);
+        }
+
+        void ecrire(int i, int w, long valeur) {
+            segments[i / lignesParSegment].putLong((i % lignesParSegment) * octetsParLigne + w * 8, valeur);
+        }
+
+        void lireLigne(int i, long[] dest) {
+            MappedByteBuffer seg = segments[i / lignesParSegment];
+            int base = (i % lignesParSegment) * octetsParLigne;
+            for (int w = 0; w < dest.length; w++) {
+                dest[w] = seg.getLong(base + w * 8);
+            }
+        }
+
+        void ecrireLigne(int i, long[] src) {
+            MappedByteBuffer seg = segments[i / lignesParSegment];
+            int base = (i % lignesParSegment) * octetsParLigne;
+            for (int w = 0; w < src.length; w++) {
+                seg.putLong(base + w * 8, src[w]);
+            }
+        }
+
+        void copierDepuis(Zone source) {
+            for (int k = 0; k < segments.length; k++) {
+                MappedByteBuffer src = source.segments[k].duplicate();
+                src.clear();
+                MappedByteBuffer dst = segments[k].duplicate();
+                dst.clear();
+                dst.put(src);
+            }
+        }
+    }
+}
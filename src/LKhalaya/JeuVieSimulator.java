@@ -11,18 +11,18 @@ import java.awt.Color;
  */
 public class JeuVieSimulator extends CellularSimulator {
 
-    private final JeuVie grid;
+    private final CellularGrid grid;
     private final Color aliveColor;
     private final Color deadColor;
 
     /**
      * @param gui l'interface graphique
-     * @param grid la grille du jeu de la vie
+     * @param grid la grille à dessiner (état 0 = morte, tout autre état = vivante)
      * @param cellHalf paramètre "size" du Rectangle du gui.jar (moitié de côté)
      * @param aliveColor couleur des cellules vivantes
      * @param deadColor couleur des cellules mortes
      */
-    public JeuVieSimulator(GUISimulator gui, JeuVie grid, int cellHalf, Color aliveColor, Color deadColor) {
+    public JeuVieSimulator(GUISimulator gui, CellularGrid grid, int cellHalf, Color aliveColor, Color deadColor) {
         super(gui, cellHalf);
         this.grid = grid;
         this.aliveColor = aliveColor;
@@ -39,11 +39,13 @@ public class JeuVieSimulator extends CellularSimulator {
     protected void draw() {
         gui.reset();
         // On dessine chaque cellule comme un petit carré
-        for (int i = 0; i < grid.getRows(); i++) {
-            for (int j = 0; j < grid.getCols(); j++) {
+        int lignes = lignesAffichees();
+        int colonnes = colonnesAffichees();
+        for (int i = 0; i < lignes; i++) {
+            for (int j = 0; j < colonnes; j++) {
                 int cx = cellHalf + j * step; // centre x
                 int cy = cellHalf + i * step; // centre y
-                Color fill = grid.isAlive(i, j) ? aliveColor : deadColor;
+                Color fill = grid.getState(ligneGrille(i), colonneGrille(j)) != 0 ? aliveColor : deadColor;
                 // bord = même couleur (tu peux mettre une autre couleur si tu veux un contour)
                 gui.addGraphicalElement(new Rectangle(cx, cy, fill, fill, cellHalf));
             }
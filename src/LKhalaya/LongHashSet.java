@@ -0,0 +1,186 @@
+package LKhalaya;
+
+import java.util.Arrays;
+import java.util.function.LongConsumer;
+
+/**
+ * Ensemble de {@code long} à adressage ouvert (sondage linéaire), sans boxing.
+ * Utilisé par les moteurs creux pour stocker des coordonnées empaquetées.
+ * La capacité est toujours une puissance de deux et le taux de remplissage reste sous 1/2.
+ */
+public class LongHashSet {
+    /** Valeur sentinelle d'une case libre (la clé elle-même est gérée à part). */
+    private static final long VIDE = Long.MIN_VALUE;
+
+    private long[] cles;
+    private int masque;
+    private int taille;
+    private boolean contientVide; // la clé VIDE est-elle présente ?
+
+    /** Crée un ensemble vide avec une petite capacité initiale. */
+    public LongHashSet() {
+        this(16);
+    }
+
+    /**
+     * @param capaciteAttendue nombre d'éléments prévus (évite les redimensionnements)
+     */
+    public LongHashSet(int capaciteAttendue) {
+        allouer(capacitePour(capaciteAttendue));
+    }
+
+    /** Mélange de bits (finaliseur de MurmurHash3) pour disperser les coordonnées voisines. */
+    static long melanger(long h) {
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+
+    /** @return la plus petite puissance de deux gardant n éléments sous un remplissage de 1/2 */
+    static int capacitePour(int n) {
+        int cap = 16;
+        while (cap < 2 * n) {
+            cap <<= 1;
+        }
+        return cap;
+    }
+
+    private void allouer(int capacite) {
+        cles = new long[capacite];
+        Arrays.fill(cles, VIDE);
+        masque = capacite - 1;
+    }
+
+    /**
+     * Ajoute une clé.
+     * @return true si la clé n'était pas déjà présente
+     */
+    public boolean add(long cle) {
+        if (cle == VIDE) {
+            if (contientVide) return false;
+            contientVide = true;
+            taille++;
+            return true;
+        }
+        int i = (int) melanger(cle) & masque;
+        while (cles[i] != VIDE) {
+            if (cles[i] == cle) return false;
+            i = (i + 1) & masque;
+        }
+        cles[i] = cle;
+        taille++;
+        if (2 * taille > cles.length) {
+            redimensionner(cles.length << 1);
+        }
+        return true;
+    }
+
+    /** @return true si la clé est présente */
+    public boolean contains(long cle) {
+        if (cle == VIDE) return contientVide;
+        int i = (int) melanger(cle) & masque;
+        long c;
+        while ((c = cles[i]) != VIDE) {
+            if (c == cle) return true;
+            i = (i + 1) & masque;
+        }
+        return false;
+    }
+
+    /**
+     * Retire une clé (suppression par décalage arrière, sans marqueur de tombe).
+     * @return true si la clé était présente
+     */
+    public boolean remove(long cle) {
+        if (cle == VIDE) {
+            if (!contientVide) return false;
+            contientVide = false;
+            taille--;
+            return true;
+        }
+        int i = (int) melanger(cle) & masque;
+        while (cles[i] != cle) {
+            if (cles[i] == VIDE) return false;
+            i = (i + 1) & masque;
+        }
+        // On recolle les éléments suivants de la grappe pour ne pas casser les sondages
+        int trou = i;
+        int j = (i + 1) & masque;
+        while (cles[j] != VIDE) {
+            int ideal = (int) melanger(cles[j]) & masque;
+            if (((j - ideal) & masque) >= ((j - trou) & masque)) {
+                cles[trou] = cles[j];
+                trou = j;
+            }
+            j = (j + 1) & masque;
+        }
+        cles[trou] = VIDE;
+        taille--;
+        return true;
+    }
+
+    /** @return le nombre d'éléments */
+    public int size() {
+        return taille;
+    }
+
+    /** @return true si l'ensemble est vide */
+    public boolean isEmpty() {
+        return taille == 0;
+    }
+
+    /** Vide l'ensemble en conservant sa capacité. */
+    public void clear() {
+        Arrays.fill(cles, VIDE);
+        contientVide = false;
+        taille = 0;
+    }
+
+    /** Remplace le contenu par celui d'un autre ensemble (copie de la table, sans rehachage). */
+    public void copierDepuis(LongHashSet autre) {
+        if (cles.length != autre.cles.length) {
+            cles = autre.cles.clone();
+            masque = autre.masque;
+        } else {
+            System.arraycopy(autre.cles, 0, cles, 0, cles.length);
+        }
+        contientVide = autre.contientVide;
+        taille = autre.taille;
+    }
+
+    /** Applique une action à chaque clé (ordre non spécifié). */
+    public void forEach(LongConsumer action) {
+        if (contientVide) action.accept(VIDE);
+        for (long c : cles) {
+            if (c != VIDE) action.accept(c);
+        }
+    }
+
+    /** @return une copie des clés dans un tableau (ordre non spécifié) */
+    public long[] toArray() {
+        long[] res = new long[taille];
+        int k = 0;
+        if (contientVide) res[k++] = VIDE;
+        for (long c : cles) {
+            if (c != VIDE) res[k++] = c;
+        }
+        return res;
+    }
+
+    private void redimensionner(int capacite) {
+        long[] anciennes = cles;
+        allouer(capacite);
+        for (long c : anciennes) {
+            if (c != VIDE) {
+                int i = (int) melanger(c) & masque;
+                while (cles[i] != VIDE) {
+                    i = (i + 1) & masque;
+                }
+                cles[i] = c;
+            }
+        }
+    }
+}
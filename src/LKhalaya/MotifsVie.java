@@ -0,0 +1,291 @@
+package LKhalaya;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Lecture et écriture de motifs du jeu de la vie aux formats RLE (.rle) et texte (.cells).
+ *
+ * La lecture est faite caractère par caractère dans un tampon de taille fixe et chaque cellule
+ * vivante est écrite directement dans la grille ({@link GrilleVie#setAlive}) : aucune chaîne
+ * n'est construite par ligne, et un motif de plusieurs mégaoctets se charge en une passe.
+ * Le motif est superposé à la grille (seules les cellules vivantes sont écrites), puis la
+ * grille est réinitialisée sur la configuration obtenue.
+ *
+ * La règle éventuellement indiquée dans l'en-tête RLE est ignorée à la lecture.
+ */
+public final class MotifsVie {
+
+    /** Longueur maximale d'une ligne RLE écrite (usage courant des éditeurs de motifs). */
+    private static final int LARGEUR_LIGNE = 70;
+
+    private MotifsVie() {
+    }
+
+    /**
+     * Charge un fichier de motif : format RLE si l'extension est .rle, texte sinon.
+     * @return le nombre de cellules vivantes placées
+     */
+    public static <G extends CellularGrid & GrilleVie> long lire(Path fichier, G grille, int ligne, int colonne)
+            throws IOException {
+        try (Reader in = Files.newBufferedReader(fichier, StandardCharsets.UTF_8)) {
+            if (fichier.toString().toLowerCase().endsWith(".rle")) {
+                return lireRle(in, grille, ligne, colonne);
+            }
+            return lireTexte(in, grille, ligne, colonne);
+        }
+    }
+
+    /**
+     * Enregistre la grille entière (pour le plan creux : le rectangle englobant ses cellules
+     * vivantes), au format RLE si l'extension est .rle, texte sinon.
+     */
+    public static <G extends CellularGrid & GrilleVie> void ecrire(Path fichier, G grille) throws IOException {
+        try (Writer out = Files.newBufferedWriter(fichier, StandardCharsets.UTF_8)) {
+            int[] zone = zone(grille);
+            if (fichier.toString().toLowerCase().endsWith(".rle")) {
+                ecrireRle(out, grille, zone[0], zone[1], zone[2], zone[3], regle(grille));
+            } else {
+                ecrireTexte(out, grille, zone[0], zone[1], zone[2], zone[3]);
+            }
+        }
+    }
+
+    /**
+     * Lit un motif RLE : lignes de commentaire (#...), en-tête (x = ..., y = ...), puis
+     * suites [nombre]symbole avec b (morte), o (vivante), $ (fin de ligne) et ! (fin).
+     * @param ligne ligne de la grille où placer le coin haut-gauche du motif
+     * @param colonne colonne de la grille où placer le coin haut-gauche du motif
+     * @return le nombre de cellules vivantes placées
+     * @throws IllegalArgumentException si le motif est mal formé
+     */
+    public static <G extends CellularGrid & GrilleVie> long lireRle(Reader in, G grille, int ligne, int colonne)
+            throws IOException {
+        Flux f = new Flux(in);
+        long vivantes = 0;
+        int i = ligne;
+        int j = colonne;
+        boolean corps = false;      // a-t-on commencé à lire les cellules ?
+        boolean debutLigne = true;
+        int n = 0;                  // nombre de répétitions en cours de lecture
+        int c;
+        lecture:
+        while ((c = f.lire()) >= 0) {
+            if (!corps && debutLigne && (c == '#' || c == 'x')) {
+                f.sauterLigne();    // commentaire ou en-tête
+                continue;
+            }
+            debutLigne = (c == '\n');
+            if (c >= '0' && c <= '9') {
+                if (n > (Integer.MAX_VALUE - 9) / 10) {
+                    throw new IllegalArgumentException("Motif RLE invalide ligne " + f.numero + " : répétition trop grande");
+                }
+                n = 10 * n + (c - '0');
+                corps = true;
+                continue;
+            }
+            int r = Math.max(n, 1);
+            switch (c) {
+                case 'b':
+                case '.':
+                    j += r;
+                    break;
+                case '$':
+                    i += r;
+                    j = colonne;
+                    break;
+                case '!':
+                    break lecture;
+                case ' ':
+                case '\t':
+                case '\r':
+                case '\n':
+                    continue;
+                default:
+                    // 'o' ou, pour un motif multi-états, toute autre lettre : vivante
+                    if (!Character.isLetter(c)) {
+                        throw new IllegalArgumentException("Motif RLE invalide ligne " + f.numero
+                                + " : caractère '" + (char) c + "'");
+                    }
+                    for (int k = 0; k < r; k++) {
+                        grille.setAlive(i, j++, true);
+                    }
+                    vivantes += r;
+            }
+            corps = true;
+            n = 0;
+        }
+        grille.reInit();
+        return vivantes;
+    }
+
+    /**
+     * Lit un motif texte : lignes de commentaire (!...), puis une ligne de texte par ligne de
+     * cellules, avec O ou * (vivante) et . (morte).
+     * @return le nombre de cellules vivantes placées
+     * @throws IllegalArgumentException si le motif est mal formé
+     */
+    public static <G extends CellularGrid & GrilleVie> long lireTexte(Reader in, G grille, int ligne, int colonne)
+            throws IOException {
+        Flux f = new Flux(in);
+        long vivantes = 0;
+        int i = ligne;
+        int j = colonne;
+        boolean debutLigne = true;
+        int c;
+        while ((c = f.lire()) >= 0) {
+            if (debutLigne && c == '!') {
+                f.sauterLigne();
+                continue;
+            }
+            debutLigne = false;
+            switch (c) {
+                case 'O':
+                case '*':
+                    grille.setAlive(i, j++, true);
+                    vivantes++;
+                    break;
+                case '.':
+                    j++;
+                    break;
+                case '\n':
+                    i++;
+                    j = colonne;
+                    debutLigne = true;
+                    break;
+                case '\r':
+                    break;
+                default:
+                    throw new IllegalArgumentException("Motif texte invalide ligne " + f.numero
+                            + " : caractère '" + (char) c + "'");
+            }
+        }
+        grille.reInit();
+        return vivantes;
+    }
+
+    /**
+     * Écrit une zone de la grille au format RLE (lignes d'au plus 70 caractères).
+     * Les cellules mortes en fin de ligne et les lignes vides finales ne sont pas écrites.
+     * @param ligne première ligne de la zone (coordonnées de {@link GrilleVie#isAlive})
+     * @param colonne première colonne de la zone
+     * @param hauteur nombre de lignes de la zone
+     * @param largeur nombre de colonnes de la zone
+     * @param regle règle indiquée dans l'en-tête
+     */
+    public static void ecrireRle(Writer out, GrilleVie grille, int ligne, int colonne, int hauteur, int largeur,
+                                 RegleAutomate regle) throws IOException {
+        out.write("x = " + largeur + ", y = " + hauteur + ", rule = " + regle + "\n");
+        Sortie s = new Sortie(out);
+        int finsDeLigne = 0;        // '$' en attente (lignes terminées, sans cellule vivante depuis)
+        for (int i = 0; i < hauteur; i++) {
+            int j = 0;
+            while (j < largeur) {
+                boolean vivante = grille.isAlive(ligne + i, colonne + j);
+                int debut = j;
+                while (j < largeur && grille.isAlive(ligne + i, colonne + j) == vivante) {
+                    j++;
+                }
+                if (!vivante && j == largeur) break;    // fin de ligne morte : inutile
+                if (finsDeLigne > 0) {
+                    s.suite(finsDeLigne, '$');
+                    finsDeLigne = 0;
+                }
+                s.suite(j - debut, vivante ? 'o' : 'b');
+            }
+            finsDeLigne++;
+        }
+        s.suite(1, '!');
+        out.write('\n');
+    }
+
+    /**
+     * Écrit une zone de la grille au format texte (une ligne de texte par ligne de cellules).
+     */
+    public static void ecrireTexte(Writer out, GrilleVie grille, int ligne, int colonne, int hauteur, int largeur)
+            throws IOException {
+        char[] tampon = new char[largeur + 1];
+        tampon[largeur] = '\n';
+        for (int i = 0; i < hauteur; i++) {
+            for (int j = 0; j < largeur; j++) {
+                tampon[j] = grille.isAlive(ligne + i, colonne + j) ? 'O' : '.';
+            }
+            out.write(tampon);
+        }
+    }
+
+    /** Zone à enregistrer : {ligne, colonne, hauteur, largeur}. */
+    private static int[] zone(CellularGrid grille) {
+        if (grille instanceof SparseJeuVie) {
+            int[] e = ((SparseJeuVie) grille).getEmprise();
+            if (e == null) return new int[]{0, 0, 0, 0};
+            return new int[]{e[0], e[1], e[2] - e[0] + 1, e[3] - e[1] + 1};
+        }
+        return new int[]{0, 0, grille.getRows(), grille.getCols()};
+    }
+
+    private static RegleAutomate regle(CellularGrid grille) {
+        if (grille instanceof AutomateGrid) return ((AutomateGrid) grille).getRegle();
+        if (grille instanceof JeuVieMappe) return ((JeuVieMappe) grille).getRegle();
+        return RegleAutomate.CONWAY;
+    }
+
+    /** Lecture caractère par caractère dans un tampon réutilisé. */
+    private static final class Flux {
+        private final Reader in;
+        private final char[] tampon = new char[1 << 16];
+        private int pos;
+        private int fin;
+        int numero = 1;             // numéro de la ligne en cours (messages d'erreur)
+
+        Flux(Reader in) {
+            this.in = in;
+        }
+
+        int lire() throws IOException {
+            if (pos == fin) {
+                fin = in.read(tampon, 0, tampon.length);
+                pos = 0;
+                if (fin <= 0) {
+                    fin = 0;
+                    return -1;
+                }
+            }
+            char c = tampon[pos++];
+            if (c == '\n') numero++;
+            return c;
+        }
+
+        void sauterLigne() throws IOException {
+            int c;
+            do {
+                c = lire();
+            } while (c >= 0 && c != '\n');
+        }
+    }
+
+    /** Écriture des suites RLE en respectant la longueur maximale des lignes. */
+    private static final class Sortie {
+        private final Writer out;
+        private int longueur;       // caractères déjà écrits sur la ligne
+
+        Sortie(Writer out) {
+            this.out = out;
+        }
+
+        void suite(int n, char symbole) throws IOException {
+            String nombre = n > 1 ? Integer.toString(n) : "";
+            if (longueur + nombre.length() + 1 > LARGEUR_LIGNE) {
+                out.write('\n');
+                longueur = 0;
+            }
+            out.write(nombre);
+            out.write(symbole);
+            longueur += nombre.length() + 1;
+        }
+    }
+}
@@ -0,0 +1,266 @@
+package LKhalaya;
+
+/**
+ * Règle d'automate cellulaire compilée en table de transition.
+ * L'état suivant d'une cellule ne dépend que de son état s et du nombre c de voisines
+ * dans un état « compté » propre à s : {@code suivant = table[s * (maxCompte + 1) + c]}.
+ *
+ * Notations acceptées par {@link #parse(String)} :
+ * <ul>
+ *   <li>{@code B3/S23} : règle « life-like » à deux états (Conway) ;</li>
+ *   <li>{@code B2/S/C3} : règle « Generations » à C états (1 = vivante, 2..C-1 = mourantes) ;</li>
+ *   <li>{@code R1/T3/C4/NM} : automate cyclique (Immigration) à C états, seuil T,
+ *       rayon R, voisinage de Moore (NM) ou de von Neumann (NN) ;</li>
+ *   <li>{@code R5,C0,M1,S34..58,B34..45,NM} : « Larger than Life » (rayon R, C0 ou C2 pour
+ *       deux états, M1 si la cellule se compte elle-même, intervalles de survie et naissance).</li>
+ * </ul>
+ */
+public class RegleAutomate {
+
+    /** Jeu de la vie de Conway. */
+    public static final RegleAutomate CONWAY = parse("B3/S23");
+
+    private final String nom;
+    private final int nbEtats;
+    private final Voisinage voisinage;
+    private final boolean centreInclus; // la cellule se compte-t-elle elle-même ?
+    private final int maxCompte;        // nombre maximal de cellules comptées
+    private final int[] etatCompte;     // pour chaque état, l'état des voisines à compter
+    private final byte[] table;         // table[s * (maxCompte + 1) + c] = état suivant
+
+    private RegleAutomate(String nom, int nbEtats, Voisinage voisinage, boolean centreInclus,
+                          int[] etatCompte, byte[] table) {
+        this.nom = nom;
+        this.nbEtats = nbEtats;
+        this.voisinage = voisinage;
+        this.centreInclus = centreInclus;
+        this.maxCompte = tailleComptee(voisinage, centreInclus);
+        this.etatCompte = etatCompte;
+        this.table = table;
+    }
+
+    private static int tailleComptee(Voisinage voisinage, boolean centreInclus) {
+        return voisinage.taille() + (centreInclus ? 1 : 0);
+    }
+
+    /**
+     * Compile une règle life-like ou Generations sur les 8 voisines.
+     * @param naissance naissance[c] vrai si une cellule morte naît avec c voisines vivantes
+     * @param survie survie[c] vrai si une cellule vivante survit avec c voisines vivantes
+     * @param nbEtats 2 pour une règle life-like, plus pour Generations
+     */
+    public static RegleAutomate generations(String nom, boolean[] naissance, boolean[] survie, int nbEtats) {
+        return generations(nom, naissance, survie, nbEtats, Voisinage.MOORE_1, false);
+    }
+
+    /**
+     * Compile une règle life-like ou Generations sur un voisinage quelconque.
+     * @param centreInclus true si la cellule compte dans son propre voisinage
+     */
+    public static RegleAutomate generations(String nom, boolean[] naissance, boolean[] survie, int nbEtats,
+                                            Voisinage voisinage, boolean centreInclus) {
+        verifierEtats(nbEtats, 2);
+        int maxCompte = tailleComptee(voisinage, centreInclus);
+        int[] etatCompte = new int[nbEtats];
+        byte[] table = new byte[nbEtats * (maxCompte + 1)];
+        for (int s = 0; s < nbEtats; s++) {
+            etatCompte[s] = 1; // on compte toujours les voisines vivantes
+            for (int c = 0; c <= maxCompte; c++) {
+                int suivant;
+                if (s == 0) {
+                    suivant = (c < naissance.length && naissance[c]) ? 1 : 0;
+                } else if (s == 1) {
+                    suivant = (c < survie.length && survie[c]) ? 1 : (nbEtats > 2 ? 2 : 0);
+                } else {
+                    suivant = (s + 1 < nbEtats) ? s + 1 : 0; // la cellule mourante vieillit
+                }
+                table[s * (maxCompte + 1) + c] = (byte) suivant;
+            }
+        }
+        return new RegleAutomate(nom, nbEtats, voisinage, centreInclus, etatCompte, table);
+    }
+
+    /**
+     * Compile un automate cyclique sur les 8 voisines : une cellule dans l'état s passe à
+     * (s + 1) mod nbEtats si au moins 'seuil' voisines sont déjà dans cet état suivant.
+     */
+    public static RegleAutomate cyclique(int nbEtats, int seuil) {
+        return cyclique(nbEtats, seuil, Voisinage.MOORE_1);
+    }
+
+    /** Compile un automate cyclique sur un voisinage quelconque. */
+    public static RegleAutomate cyclique(int nbEtats, int seuil, Voisinage voisinage) {
+        verifierEtats(nbEtats, 2);
+        int maxCompte = voisinage.taille();
+        int[] etatCompte = new int[nbEtats];
+        byte[] table = new byte[nbEtats * (maxCompte + 1)];
+        for (int s = 0; s < nbEtats; s++) {
+            int suivant = (s + 1) % nbEtats;
+            etatCompte[s] = suivant;
+            for (int c = 0; c <= maxCompte; c++) {
+                table[s * (maxCompte + 1) + c] = (byte) (c >= seuil ? suivant : s);
+            }
+        }
+        String nom = "R" + voisinage.getRayon() + "/T" + seuil + "/C" + nbEtats
+                + (voisinage.getForme() == Voisinage.Forme.MOORE ? "/NM" : "/NN");
+        return new RegleAutomate(nom, nbEtats, voisinage, false, etatCompte, table);
+    }
+
+    /**
+     * Lit une règle en notation texte (voir la documentation de la classe).
+     * @throws IllegalArgumentException si la notation est invalide
+     */
+    public static RegleAutomate parse(String spec) {
+        String s = spec.trim().toUpperCase();
+        // Avec des virgules (Larger than Life), les nombres sont entiers ; sinon ce sont des chiffres
+        boolean entiers = s.indexOf(',') >= 0;
+        String[] morceaux = s.split(entiers ? "," : "/", -1);
+
+        // Premier passage : paramètres qui fixent la taille du voisinage
+        int nbEtats = 2;
+        int seuil = -1;
+        int rayon = 1;
+        boolean vonNeumann = false;
+        boolean centreInclus = false;
+        for (String morceau : morceaux) {
+            if (morceau.isEmpty()) {
+                throw new IllegalArgumentException("Règle invalide : " + spec);
+            }
+            String reste = morceau.substring(1);
+            switch (morceau.charAt(0)) {
+                case 'C':
+                    nbEtats = lireEntier(reste, spec);
+                    if (entiers && nbEtats == 0) nbEtats = 2; // C0 = deux états en notation LtL
+                    break;
+                case 'T':
+                    seuil = lireEntier(reste, spec);
+                    break;
+                case 'R':
+                    rayon = lireEntier(reste, spec);
+                    break;
+                case 'M':
+                    centreInclus = lireEntier(reste, spec) != 0;
+                    break;
+                case 'N':
+                    if (reste.equals("M")) vonNeumann = false;
+                    else if (reste.equals("N")) vonNeumann = true;
+                    else throw new IllegalArgumentException("Voisinage inconnu : " + spec);
+                    break;
+                case 'B':
+                case 'S':
+                    break;
+                default:
+                    throw new IllegalArgumentException("Règle invalide : " + spec);
+            }
+        }
+        if (rayon < 1) {
+            throw new IllegalArgumentException("Règle invalide (rayon) : " + spec);
+        }
+        Voisinage voisinage = vonNeumann ? Voisinage.vonNeumann(rayon) : Voisinage.moore(rayon);
+        int maxCompte = tailleComptee(voisinage, centreInclus);
+
+        // Second passage : ensembles de naissance et de survie
+        boolean[] naissance = null;
+        boolean[] survie = null;
+        for (String morceau : morceaux) {
+            char c = morceau.charAt(0);
+            if (c != 'B' && c != 'S') continue;
+            boolean[] cible = (c == 'B') ? naissance : survie;
+            if (cible == null) cible = new boolean[maxCompte + 1];
+            String reste = morceau.substring(1);
+            if (entiers) lireIntervalle(reste, cible, spec);
+            else lireChiffres(reste, cible, spec);
+            if (c == 'B') naissance = cible;
+            else survie = cible;
+        }
+
+        if (seuil >= 0) {
+            if (naissance != null || survie != null || centreInclus) {
+                throw new IllegalArgumentException("Règle invalide : " + spec);
+            }
+            return cyclique(nbEtats, seuil, voisinage);
+        }
+        if (naissance == null || survie == null) {
+            throw new IllegalArgumentException("Règle invalide (B et S attendus) : " + spec);
+        }
+        return generations(s, naissance, survie, nbEtats, voisinage, centreInclus);
+    }
+
+    private static void lireChiffres(String chiffres, boolean[] res, String spec) {
+        for (int k = 0; k < chiffres.length(); k++) {
+            int d = chiffres.charAt(k) - '0';
+            if (d < 0 || d > 9 || d >= res.length) {
+                throw new IllegalArgumentException("Règle invalide : " + spec);
+            }
+            res[d] = true;
+        }
+    }
+
+    /** Lit « a..b » ou « a » (intervalle vide accepté : « S » seul). */
+    private static void lireIntervalle(String texte, boolean[] res, String spec) {
+        if (texte.isEmpty()) return;
+        int sep = texte.indexOf("..");
+        int debut = lireEntier(sep < 0 ? texte : texte.substring(0, sep), spec);
+        int fin = sep < 0 ? debut : lireEntier(texte.substring(sep + 2), spec);
+        if (debut < 0 || fin >= res.length || debut > fin) {
+            throw new IllegalArgumentException("Intervalle hors voisinage : " + spec);
+        }
+        for (int c = debut; c <= fin; c++) {
+            res[c] = true;
+        }
+    }
+
+    private static int lireEntier(String texte, String spec) {
+        try {
+            return Integer.parseInt(texte);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Règle invalide : " + spec, e);
+        }
+    }
+
+    private static void verifierEtats(int nbEtats, int min) {
+        if (nbEtats < min || nbEtats > 256) {
+            throw new IllegalArgumentException("Nombre d'états hors limites : " + nbEtats);
+        }
+    }
+
+    /** @return l'état suivant d'une cellule dans l'état s ayant c voisines comptées */
+    public int suivant(int s, int c) {
+        return table[s * (maxCompte + 1) + c] & 0xFF;
+    }
+
+    /** Accès direct à la table compilée pour les noyaux de calcul du paquetage. */
+    byte[] table() {
+        return table;
+    }
+
+    /** @return le nombre d'états de l'automate */
+    public int getNbEtats() {
+        return nbEtats;
+    }
+
+    /** @return le voisinage de la règle */
+    public Voisinage getVoisinage() {
+        return voisinage;
+    }
+
+    /** @return true si la cellule se compte elle-même */
+    public boolean isCentreInclus() {
+        return centreInclus;
+    }
+
+    /** @return le nombre maximal de cellules comptées (taille du voisinage, centre éventuel compris) */
+    public int getMaxCompte() {
+        return maxCompte;
+    }
+
+    /** @return l'état des voisines à compter pour une cellule dans l'état s */
+    public int getEtatCompte(int s) {
+        return etatCompte[s];
+    }
+
+    @Override
+    public String toString() {
+        return nom;
+    }
+}
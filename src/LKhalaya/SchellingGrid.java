@@ -1,122 +1,367 @@
 package LKhalaya;
 
-import java.awt.Point;
-import java.util.ArrayList;
-import java.util.Collections;
-import java.util.List;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
 import java.util.Random;
 
 /**
  * Modèle de ségrégation de Schelling.
  * Chaque cellule peut être vide (0) ou habitée par une famille de couleur c (1..nColors).
+ *
+ * La grille maintient pour chaque cellule le nombre de voisins de même couleur et le nombre
+ * total de voisins, ainsi que deux ensembles indexés (tableaux d'entiers + position de chaque
+ * élément) : les familles insatisfaites et les logements vides. Un déménagement ne met à jour
+ * que le voisinage des deux cellules concernées ; un pas coûte donc O(nombre de déménagements).
+ *
+ * Le voisinage (fenêtre de tolérance) est configurable : Moore ou von Neumann de rayon r.
+ * Les compteurs initiaux sont obtenus par sommes cumulées ({@link CompteurVoisinage}),
+ * puis chaque déménagement les met à jour sur les voisinages des deux cellules, en O(r²).
+ * Les couleurs sont stockées compactées ({@link EtatsCompacts}) : 4 bits par cellule
+ * jusqu'à 15 couleurs.
  */
 public class SchellingGrid extends CellularGrid {
     private final int nColors;          // nombre de couleurs (familles)
     private final int K;                // seuil de tolérance
     private final double vacantRatio;   // proportion de logements vides
-    private final int[][] init;
-    private int[][] current;
-    private List<Point> emptyHouses;    // positions vides disponibles
-    private final Random rand = new Random();
+    private final EtatsCompacts init;   // couleurs initiales, indice i * cols + j
+    private final EtatsCompacts current;
+    private final Tirage rand = new Tirage();
+    private final Voisinage voisinage;  // fenêtre de tolérance
+    private final int[] decalI;         // décalages (di, dj) des voisines
+    private final int[] decalJ;
+
+    private final char[] memeCouleur;   // voisins de la couleur de la cellule (si habitée), non signé 16 bits
+    private final char[] totalVoisins;  // voisins habités (maintenu aussi pour les cellules vides)
+
+    private final int[] insatisfaites;  // ensemble indexé des familles insatisfaites
+    private final int[] posInsatisfaite;// position dans 'insatisfaites' ou -1
+    private int nbInsatisfaites;
+    private final int[] vides;          // ensemble indexé des logements vides
+    private final int[] posVide;        // position dans 'vides' ou -1
+    private int nbVides;
+
+    private final int[] partantes;      // tampons du pas courant
+    private final int[] arrivees;
+    private final int[] voisines;
 
     public SchellingGrid(int rows, int cols, int nColors, int K, double vacantRatio) {
+        this(rows, cols, nColors, K, vacantRatio, Voisinage.MOORE_1);
+    }
+
+    /**
+     * @param voisinage voisinage dans lequel une famille compte ses voisins
+     * @throws IllegalArgumentException si le voisinage compte plus de 65535 cellules
+     *         ou s'il y a plus de 255 couleurs
+     */
+    public SchellingGrid(int rows, int cols, int nColors, int K, double vacantRatio, Voisinage voisinage) {
         super(rows, cols);
+        if (voisinage.taille() > Character.MAX_VALUE) {
+            throw new IllegalArgumentException("Voisinage trop grand : " + voisinage);
+        }
         this.nColors = nColors;
         this.K = K;
         this.vacantRatio = vacantRatio;
-        this.init = new int[rows][cols];
-        this.current = new int[rows][cols];
+        this.voisinage = voisinage;
+        int r = voisinage.getRayon();
+        this.decalI = new int[voisinage.taille()];
+        this.decalJ = new int[voisinage.taille()];
+        int k = 0;
+        for (int di = -r; di <= r; di++) {
+            for (int dj = -r; dj <= r; dj++) {
+                if (voisinage.contient(di, dj)) {
+                    decalI[k] = di;
+                    decalJ[k++] = dj;
+                }
+            }
+        }
+        this.voisines = new int[k];
+        int n = rows * cols;
+        this.init = new EtatsCompacts(n, nColors + 1);
+        this.current = new EtatsCompacts(n, nColors + 1);
+        this.memeCouleur = new char[n];
+        this.totalVoisins = new char[n];
+        this.insatisfaites = new int[n];
+        this.posInsatisfaite = new int[n];
+        this.vides = new int[n];
+        this.posVide = new int[n];
+        this.partantes = new int[n];
+        this.arrivees = new int[n];
         randomInit();
     }
 
     private void randomInit() {
-        emptyHouses = new ArrayList<>();
         int total = rows * cols;
         int vacantCount = (int) (total * vacantRatio);
 
-        // Crée une liste de toutes les positions
-        List<Point> allPositions = new ArrayList<>();
-        for (int i = 0; i < rows; i++)
-            for (int j = 0; j < cols; j++)
-                allPositions.add(new Point(i, j));
-
-        Collections.shuffle(allPositions, rand);
+        // Permutation aléatoire de toutes les positions (indices linéaires)
+        int[] allPositions = new int[total];
+        for (int k = 0; k < total; k++) allPositions[k] = k;
+        for (int k = total - 1; k > 0; k--) {
+            int r = rand.nextInt(k + 1);
+            int tmp = allPositions[k];
+            allPositions[k] = allPositions[r];
+            allPositions[r] = tmp;
+        }
 
         // Les premières sont vides
-        for (int i = 0; i < total; i++) {
-            Point p = allPositions.get(i);
-            if (i < vacantCount) {
-                init[p.x][p.y] = 0;
-                emptyHouses.add(new Point(p));
-            } else {
-                init[p.x][p.y] = 1 + rand.nextInt(nColors); // couleur entre 1 et nColors
+        for (int k = 0; k < total; k++) {
+            int p = allPositions[k];
+            int color = 0;
+            if (k >= vacantCount) {
+                color = 1 + rand.nextInt(nColors); // couleur entre 1 et nColors
             }
-            current[p.x][p.y] = init[p.x][p.y];
+            init.set(p, color);
+            current.set(p, color);
         }
+        reconstruire();
+        redemarrerSuivi();
     }
 
     @Override
-    public void reInit() {
-        for (int i = 0; i < rows; i++) {
-            System.arraycopy(init[i], 0, current[i], 0, cols);
-        }
+    protected void reinitialiser() {
+        current.copierDepuis(init);
+        reconstruire();
     }
 
+    /**
+     * Déménagement : chaque famille insatisfaite (au début du pas) prend une maison vide
+     * (au début du pas). Les deux échantillons sont tirés sans remise par Fisher-Yates partiel,
+     * ce qui revient à mélanger les deux listes et à apparier leurs premiers éléments.
+     */
     @Override
-    public void step() {
-        List<Point> unhappy = new ArrayList<>();
-
-        // Trouver les familles insatisfaites
-        for (int i = 0; i < rows; i++) {
-            for (int j = 0; j < cols; j++) {
-                int color = current[i][j];
-                if (color == 0) continue; // vide
-                if (isUnhappy(i, j, color)) unhappy.add(new Point(i, j));
-            }
+    protected void calculerGeneration() {
+        int moves = Math.min(nbInsatisfaites, nbVides);
+        for (int m = 0; m < moves; m++) {
+            echanger(insatisfaites, posInsatisfaite, m, m + rand.nextInt(nbInsatisfaites - m));
+            echanger(vides, posVide, m, m + rand.nextInt(nbVides - m));
         }
+        // On fige les paires avant de modifier les ensembles
+        System.arraycopy(insatisfaites, 0, partantes, 0, moves);
+        System.arraycopy(vides, 0, arrivees, 0, moves);
 
-        // Déménagement : chaque famille insatisfaite prend une maison vide
-        Collections.shuffle(unhappy, rand);
-        Collections.shuffle(emptyHouses, rand);
-
-        int moves = Math.min(unhappy.size(), emptyHouses.size());
         for (int m = 0; m < moves; m++) {
-            Point oldPos = unhappy.get(m);
-            Point newPos = emptyHouses.get(m);
+            demenager(partantes[m], arrivees[m]);
+        }
+    }
+
+    /** La famille en 'depart' s'installe en 'arrivee' ; seuls les deux voisinages sont mis à jour. */
+    private void demenager(int depart, int arrivee) {
+        int color = etat(depart);
 
-            // La famille déménage
-            int color = current[oldPos.x][oldPos.y];
-            current[newPos.x][newPos.y] = color;
-            current[oldPos.x][oldPos.y] = 0;
+        // Le logement quitté devient vide
+        current.set(depart, 0);
+        noterChangement(depart, color, 0);
+        retirer(insatisfaites, posInsatisfaite, depart, false);
+        ajouterVide(depart);
+        remplirVoisines(depart);
+        for (int v : voisines) {
+            totalVoisins[v]--;
+            if (etat(v) == color) memeCouleur[v]--;
+        }
+        for (int v : voisines) reevaluer(v);
+
+        // Le nouveau logement est occupé
+        current.set(arrivee, color);
+        noterChangement(arrivee, 0, color);
+        retirer(vides, posVide, arrivee, true);
+        remplirVoisines(arrivee);
+        int meme = 0;
+        for (int v : voisines) {
+            totalVoisins[v]++;
+            int e = etat(v);
+            if (e == color) {
+                memeCouleur[v]++;
+                meme++;
+            }
+        }
+        memeCouleur[arrivee] = (char) meme;
+        for (int v : voisines) reevaluer(v);
+        reevaluer(arrivee);
+    }
 
-            // Mise à jour des logements vides
-            emptyHouses.set(m, oldPos);
+    /**
+     * Recalcule compteurs et ensembles à partir de l'état courant (initialisation, reInit).
+     * Les comptes sont obtenus par sommes cumulées, une couleur à la fois (le total est la somme
+     * des comptes par couleur) : O(nColors) par cellule quel que soit le rayon.
+     */
+    private void reconstruire() {
+        nbInsatisfaites = 0;
+        nbVides = 0;
+        int n = rows * cols;
+        for (int idx = 0; idx < n; idx++) {
+            posInsatisfaite[idx] = -1;
+            posVide[idx] = -1;
         }
+        CompteurVoisinage compteur = new CompteurVoisinage(rows, cols, voisinage, false);
+        byte[] marques = new byte[n];
+        int[] comptes = new int[n];
+        Arrays.fill(totalVoisins, (char) 0);
+        for (int color = 1; color <= nColors; color++) {
+            current.indicatrice(color, marques);
+            compteur.compter(marques, comptes);
+            for (int idx = 0; idx < n; idx++) {
+                totalVoisins[idx] += (char) comptes[idx];
+                if (marques[idx] != 0) memeCouleur[idx] = (char) comptes[idx];
+            }
+        }
+        for (int idx = 0; idx < n; idx++) {
+            int color = etat(idx);
+            if (color == 0) ajouterVide(idx);
+            else reevaluer(idx);
+        }
+    }
+
+    @Override
+    protected void sauvegarderEtat(DataOutput out) throws IOException {
+        current.ecrire(out);
     }
 
-    private boolean isUnhappy(int i, int j, int color) {
-        int diff = 0;
-        int total = 0;
+    @Override
+    protected void restaurerEtat(DataInput in) throws IOException {
+        current.lire(in);
+    }
 
-        for (int di = -1; di <= 1; di++) {
-            for (int dj = -1; dj <= 1; dj++) {
-                if (di == 0 && dj == 0) continue;
-                int ni = (i + di + rows) % rows;
-                int nj = (j + dj + cols) % cols;
+    @Override
+    protected int appliquerMasque(long index, int masque) {
+        int ancien = current.get((int) index);
+        current.set((int) index, ancien ^ masque);
+        return ancien;
+    }
 
-                int neighbor = current[ni][nj];
-                if (neighbor != 0) {
-                    total++;
-                    if (neighbor != color) diff++;
-                }
+    /**
+     * Pas de mise à jour cellule par cellule lors d'un déplacement dans l'historique : l'ordre
+     * des deux ensembles décide des tirages suivants, et seule la reconstruction le rend
+     * indépendant du chemin suivi pour atteindre la génération.
+     */
+    @Override
+    protected void etatModifie() {
+        reconstruire();
+    }
+
+    /** Les tirages dépendent du générateur et de l'ordre des deux ensembles indexés. */
+    @Override
+    protected void sauvegarderSuite(DataOutput out) throws IOException {
+        out.writeLong(rand.graine);
+        out.writeInt(nbInsatisfaites);
+        for (int k = 0; k < nbInsatisfaites; k++) out.writeInt(insatisfaites[k]);
+        out.writeInt(nbVides);
+        for (int k = 0; k < nbVides; k++) out.writeInt(vides[k]);
+    }
+
+    @Override
+    protected void restaurerSuite(DataInput in) throws IOException {
+        rand.graine = in.readLong();
+        relireOrdre(in, insatisfaites, posInsatisfaite, nbInsatisfaites);
+        relireOrdre(in, vides, posVide, nbVides);
+    }
+
+    /** Remet les éléments d'un ensemble indexé (reconstruit) dans l'ordre sauvegardé. */
+    private static void relireOrdre(DataInput in, int[] ensemble, int[] pos, int taille) throws IOException {
+        int n = in.readInt();
+        if (n != taille) {
+            throw new IOException("Instantané incohérent : " + n + " éléments au lieu de " + taille);
+        }
+        for (int k = 0; k < n; k++) {
+            int idx = in.readInt();
+            ensemble[k] = idx;
+            pos[idx] = k;
+        }
+    }
+
+    /** Les déménagements sont tirés au hasard : seul un état figé (aucun déménagement) est détecté. */
+    @Override
+    protected boolean estDeterministe() {
+        return false;
+    }
+
+    /** Met à jour l'appartenance d'une cellule à l'ensemble des insatisfaites. */
+    private void reevaluer(int idx) {
+        if (etat(idx) != 0 && isUnhappy(idx)) {
+            if (posInsatisfaite[idx] < 0) {
+                posInsatisfaite[idx] = nbInsatisfaites;
+                insatisfaites[nbInsatisfaites++] = idx;
             }
+        } else {
+            retirer(insatisfaites, posInsatisfaite, idx, false);
         }
-        return total > 0 && diff > K;
     }
 
+    /** Une famille est insatisfaite si elle a des voisins et plus de K voisins d'une autre couleur. */
+    private boolean isUnhappy(int idx) {
+        int total = totalVoisins[idx];
+        return total > 0 && total - memeCouleur[idx] > K;
+    }
+
+    private void ajouterVide(int idx) {
+        if (posVide[idx] < 0) {
+            posVide[idx] = nbVides;
+            vides[nbVides++] = idx;
+        }
+    }
+
+    /** Retire un élément d'un ensemble indexé en le remplaçant par le dernier (O(1)). */
+    private void retirer(int[] ensemble, int[] pos, int idx, boolean estVides) {
+        int p = pos[idx];
+        if (p < 0) return;
+        int dernier = estVides ? --nbVides : --nbInsatisfaites;
+        int autre = ensemble[dernier];
+        ensemble[p] = autre;
+        pos[autre] = p;
+        pos[idx] = -1;
+    }
+
+    /** Échange deux positions d'un ensemble indexé en gardant les positions cohérentes. */
+    private static void echanger(int[] ensemble, int[] pos, int a, int b) {
+        int x = ensemble[a];
+        int y = ensemble[b];
+        ensemble[a] = y;
+        ensemble[b] = x;
+        pos[y] = a;
+        pos[x] = b;
+    }
+
+    private int etat(int idx) {
+        return current.get(idx);
+    }
+
+    /** Remplit 'voisines' avec les indices linéaires des voisines (grille torique). */
+    private void remplirVoisines(int idx) {
+        int i = idx / cols;
+        int j = idx % cols;
+        for (int k = 0; k < voisines.length; k++) {
+            int ni = Math.floorMod(i + decalI[k], rows);
+            int nj = Math.floorMod(j + decalJ[k], cols);
+            voisines[k] = ni * cols + nj;
+        }
+    }
+
+    @Override
     public int getState(int i, int j) {
-        return current[i][j];
+        return current.get(i * cols + j);
+    }
+
+    /**
+     * Même générateur congruentiel que java.util.Random, dont l'état (48 bits) est
+     * accessible pour être sauvegardé.
+     */
+    private static final class Tirage extends Random {
+        private static final long serialVersionUID = 1L;
+        private static final long MULTIPLICATEUR = 0x5DEECE66DL;
+        private static final long MASQUE = (1L << 48) - 1;
+        long graine;
+
+        Tirage() {
+            graine = (System.nanoTime() ^ MULTIPLICATEUR) & MASQUE;
+        }
+
+        @Override
+        protected int next(int bits) {
+            graine = (graine * MULTIPLICATEUR + 0xBL) & MASQUE;
+            return (int) (graine >>> (48 - bits));
+        }
     }
 
 
-}
\ No newline at end of file
+}
@@ -26,9 +26,11 @@ public class SchellingSimulator extends CellularSimulator {
     @Override
     protected void draw() {
         gui.reset();
-        for (int i = 0; i < grid.getRows(); i++) {
-            for (int j = 0; j < grid.getCols(); j++) {
-                int state = grid.getState(i, j);
+        int lignes = lignesAffichees();
+        int colonnes = colonnesAffichees();
+        for (int i = 0; i < lignes; i++) {
+            for (int j = 0; j < colonnes; j++) {
+                int state = grid.getState(ligneGrille(i), colonneGrille(j));
                 int cx = cellHalf + j * step;
                 int cy = cellHalf + i * step;
 
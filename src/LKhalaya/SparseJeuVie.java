@@ -0,0 +1,245 @@
+package LKhalaya;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Jeu de la vie de Conway sur un plan non borné, en représentation creuse.
+ * Seules les cellules vivantes sont stockées (coordonnées empaquetées dans un {@code long})
+ * dans un {@link LongHashSet}. Une génération ne visite que les cellules vivantes et leurs
+ * voisines : le coût d'un pas est proportionnel à la population, pas à la surface.
+ *
+ * Les dimensions {@code rows × cols} héritées de {@link CellularGrid} décrivent seulement
+ * la fenêtre affichée, dont le coin haut-gauche est réglable avec {@link #setOrigine}.
+ * Les coordonnées sont des {@code int} : le plan est en pratique un tore de 2^32 de côté.
+ */
+public class SparseJeuVie extends CellularGrid implements GrilleVie {
+
+    private final LongHashSet init;     // cellules vivantes au départ
+    private LongHashSet current;        // cellules vivantes courantes
+    private LongHashSet next;           // tampon réutilisé pour la génération suivante
+
+    private int origineLigne;           // coin haut-gauche de la fenêtre affichée
+    private int origineColonne;
+
+    // Table de comptage (adressage ouvert) : valeur = 2 * voisines + (vivante ? 1 : 0), 0 = case libre
+    private long[] clesCompte = new long[0];
+    private byte[] valeursCompte = new byte[0];
+    private int masqueCompte;
+
+    /**
+     * Crée un plan vide.
+     * @param rows nombre de lignes de la fenêtre affichée
+     * @param cols nombre de colonnes de la fenêtre affichée
+     */
+    public SparseJeuVie(int rows, int cols) {
+        super(rows, cols);
+        this.init = new LongHashSet();
+        this.current = new LongHashSet();
+        this.next = new LongHashSet();
+    }
+
+    /** Empaquette (ligne, colonne) dans un long : ligne sur les 32 bits de poids fort. */
+    public static long pack(int ligne, int colonne) {
+        return ((long) ligne << 32) | (colonne & 0xFFFFFFFFL);
+    }
+
+    /** @return la ligne d'une coordonnée empaquetée */
+    public static int ligne(long cle) {
+        return (int) (cle >> 32);
+    }
+
+    /** @return la colonne d'une coordonnée empaquetée */
+    public static int colonne(long cle) {
+        return (int) cle;
+    }
+
+    /**
+     * Initialisation aléatoire de la fenêtre affichée (même tirage que {@link JeuVie#randomInit}).
+     * Les cellules hors fenêtre sont mortes.
+     */
+    public void randomInit(double aliveProb, long seed) {
+        init.clear();
+        Random r = new Random(seed);
+        for (int i = 0; i < rows; i++) {
+            for (int j = 0; j < cols; j++) {
+                if (r.nextDouble() < aliveProb) {
+                    init.add(pack(origineLigne + i, origineColonne + j));
+                }
+            }
+        }
+        reInit();
+    }
+
+    /**
+     * Place ou retire une cellule dans la configuration initiale et courante.
+     * Appeler {@link #reInit()} une fois le motif posé.
+     * @param ligne ligne absolue sur le plan
+     * @param colonne colonne absolue sur le plan
+     * @param alive true pour une cellule vivante
+     */
+    @Override
+    public void setAlive(int ligne, int colonne, boolean alive) {
+        long cle = pack(ligne, colonne);
+        if (alive) {
+            init.add(cle);
+            current.add(cle);
+        } else {
+            init.remove(cle);
+            current.remove(cle);
+        }
+    }
+
+    /** Déplace la fenêtre affichée : la cellule (0, 0) affichée devient (ligne, colonne). */
+    public void setOrigine(int ligne, int colonne) {
+        this.origineLigne = ligne;
+        this.origineColonne = colonne;
+    }
+
+    /** @return le nombre de cellules vivantes sur tout le plan */
+    public int getPopulation() {
+        return current.size();
+    }
+
+    /**
+     * @return le rectangle englobant les cellules vivantes, dans les coordonnées de la fenêtre
+     *         (celles de {@link #isAlive}) : {ligneMin, colonneMin, ligneMax, colonneMax},
+     *         ou null si le plan est vide
+     */
+    public int[] getEmprise() {
+        if (current.isEmpty()) return null;
+        int[] e = {Integer.MAX_VALUE, Integer.MAX_VALUE, Integer.MIN_VALUE, Integer.MIN_VALUE};
+        current.forEach(c -> {
+            int l = ligne(c) - origineLigne;
+            int k = colonne(c) - origineColonne;
+            e[0] = Math.min(e[0], l);
+            e[1] = Math.min(e[1], k);
+            e[2] = Math.max(e[2], l);
+            e[3] = Math.max(e[3], k);
+        });
+        return e;
+    }
+
+    @Override
+    public boolean isAlive(int i, int j) {
+        return current.contains(pack(origineLigne + i, origineColonne + j));
+    }
+
+    @Override
+    public int getState(int i, int j) {
+        return isAlive(i, j) ? 1 : 0;
+    }
+
+    @Override
+    protected void reinitialiser() {
+        current.copierDepuis(init);
+    }
+
+    /** Image : nombre de cellules vivantes, puis leurs clés. */
+    @Override
+    protected void sauvegarderEtat(DataOutput out) throws IOException {
+        out.writeInt(current.size());
+        for (long c : current.toArray()) {
+            out.writeLong(c);
+        }
+    }
+
+    @Override
+    protected void restaurerEtat(DataInput in) throws IOException {
+        current.clear();
+        int n = in.readInt();
+        for (int k = 0; k < n; k++) {
+            current.add(in.readLong());
+        }
+    }
+
+    @Override
+    protected int appliquerMasque(long index, int masque) {
+        if (masque == 0) return current.contains(index) ? 1 : 0;
+        if (current.remove(index)) return 1;
+        current.add(index);
+        return 0;
+    }
+
+    /** Pas de structure dérivée à suivre. */
+    @Override
+    protected boolean celluleRejouee(long index, int ancien, int nouveau) {
+        return true;
+    }
+
+    /** Pas de structure dérivée : les comptes sont recalculés à chaque génération. */
+    @Override
+    protected void etatModifie() {
+    }
+
+    /** Calcule une génération (B3/S23) à partir des seules cellules vivantes et de leurs voisines. */
+    @Override
+    protected void calculerGeneration() {
+        preparerCompte(9 * current.size());
+        current.forEach(this::compterAutour);
+
+        next.clear();
+        for (int s = 0; s < valeursCompte.length; s++) {
+            int v = valeursCompte[s];
+            // 3 voisines (naissance ou survie) ou 2 voisines et déjà vivante
+            if (v == 6 || v == 7 || v == 5) {
+                next.add(clesCompte[s]);
+                if (v == 6) noterChangement(clesCompte[s], 0, 1);   // naissance
+            } else if ((v & 1) != 0) {
+                noterChangement(clesCompte[s], 1, 0);               // mort
+            }
+        }
+
+        LongHashSet tmp = current;
+        current = next;
+        next = tmp;
+    }
+
+    /** L'empreinte porte sur tout le plan : on parcourt les cellules vivantes. */
+    @Override
+    protected long calculerEmpreinte() {
+        long[] h = new long[1];
+        current.forEach(c -> h[0] ^= cle(c, 1));
+        return h[0];
+    }
+
+    /** Ajoute la contribution d'une cellule vivante à elle-même et à ses 8 voisines. */
+    private void compterAutour(long cle) {
+        int l = ligne(cle);
+        int c = colonne(cle);
+        for (int dl = -1; dl <= 1; dl++) {
+            for (int dc = -1; dc <= 1; dc++) {
+                incrementer(pack(l + dl, c + dc), (dl == 0 && dc == 0) ? 1 : 2);
+            }
+        }
+    }
+
+    /** Dimensionne et vide la table de comptage pour au plus n cellules candidates. */
+    private void preparerCompte(int n) {
+        int cap = LongHashSet.capacitePour(n);
+        // On réalloue si trop petit, ou si largement surdimensionné après une extinction
+        if (cap > valeursCompte.length || cap * 8 < valeursCompte.length) {
+            clesCompte = new long[cap];
+            valeursCompte = new byte[cap];
+            masqueCompte = cap - 1;
+        } else {
+            Arrays.fill(valeursCompte, (byte) 0);
+        }
+    }
+
+    private void incrementer(long cle, int delta) {
+        int i = (int) LongHashSet.melanger(cle) & masqueCompte;
+        while (valeursCompte[i] != 0) {
+            if (clesCompte[i] == cle) {
+                valeursCompte[i] += delta;
+                return;
+            }
+            i = (i + 1) & masqueCompte;
+        }
+        clesCompte[i] = cle;
+        valeursCompte[i] = (byte) delta;
+    }
+}
@@ -0,0 +1,30 @@
+package LKhalaya;
+
+import gui.GUISimulator;
+
+import java.awt.Color;
+import java.io.IOException;
+
+/**
+ * Jeu de la vie sur une grille 16384x16384 stockée hors du tas (fichier projeté) :
+ * seule une fenêtre de 60x80 cellules est dessinée.
+ */
+public class TestConwayMappe {
+
+    public static void main(String[] args) throws IOException {
+        GUISimulator gui = new GUISimulator(800, 600, Color.BLACK);
+
+        JeuVieMappe grid = new JeuVieMappe(16384, 16384);
+        grid.randomInit(0.3, 42L);
+
+        JeuVieSimulator sim = new JeuVieSimulator(
+                gui,
+                grid,
+                5,
+                Color.decode("#1f77b4"), // vivante (bleu)
+                Color.decode("#222222")  // morte (gris très foncé)
+        );
+        // Fenêtre au centre de la grille
+        sim.setFenetre(8192, 8192, 60, 80);
+    }
+}
@@ -0,0 +1,48 @@
+package LKhalaya;
+
+import gui.GUISimulator;
+
+import java.awt.Color;
+
+/**
+ * Jeu de la vie sur plan non borné (moteur creux) : un canon à planeurs de Gosper.
+ * Les planeurs quittent la fenêtre mais continuent d'exister sur le plan.
+ */
+public class TestSparseConway {
+
+    // Canon de Gosper, une chaîne par ligne ('O' = vivante)
+    private static final String[] CANON = {
+            "........................O...........",
+            "......................O.O...........",
+            "............OO......OO............OO",
+            "...........O...O....OO............OO",
+            "OO........O.....O...OO..............",
+            "OO........O...O.OO....O.O...........",
+            "..........O.....O.......O...........",
+            "...........O...O....................",
+            "............OO......................"
+    };
+
+    public static void main(String[] args) {
+        GUISimulator gui = new GUISimulator(800, 600, Color.BLACK);
+
+        // Fenêtre affichée de 60x80 cellules sur un plan non borné
+        SparseJeuVie grid = new SparseJeuVie(60, 80);
+        for (int i = 0; i < CANON.length; i++) {
+            for (int j = 0; j < CANON[i].length(); j++) {
+                if (CANON[i].charAt(j) == 'O') {
+                    grid.setAlive(5 + i, 5 + j, true);
+                }
+            }
+        }
+        grid.reInit();
+
+        new JeuVieSimulator(
+                gui,
+                grid,
+                5,
+                Color.decode("#1f77b4"), // vivante (bleu)
+                Color.decode("#222222")  // morte (gris très foncé)
+        );
+    }
+}
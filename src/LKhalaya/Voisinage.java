@@ -0,0 +1,93 @@
+package LKhalaya;
+
+/**
+ * Voisinage d'une cellule : carré de Moore ou losange de von Neumann, de rayon r.
+ * La cellule centrale n'en fait pas partie.
+ */
+public final class Voisinage {
+
+    /** Forme du voisinage. */
+    public enum Forme {
+        /** Carré : max(|di|, |dj|) ≤ r. */
+        MOORE,
+        /** Losange : |di| + |dj| ≤ r. */
+        VON_NEUMANN
+    }
+
+    /** Voisinage de Moore de rayon 1 (les 8 voisines). */
+    public static final Voisinage MOORE_1 = new Voisinage(Forme.MOORE, 1);
+
+    private final Forme forme;
+    private final int rayon;
+
+    /**
+     * @param forme forme du voisinage
+     * @param rayon rayon (au moins 1)
+     */
+    public Voisinage(Forme forme, int rayon) {
+        if (rayon < 1) {
+            throw new IllegalArgumentException("Le rayon doit être au moins 1 : " + rayon);
+        }
+        this.forme = forme;
+        this.rayon = rayon;
+    }
+
+    /** @return un voisinage de Moore de rayon r */
+    public static Voisinage moore(int rayon) {
+        return rayon == 1 ? MOORE_1 : new Voisinage(Forme.MOORE, rayon);
+    }
+
+    /** @return un voisinage de von Neumann de rayon r */
+    public static Voisinage vonNeumann(int rayon) {
+        return new Voisinage(Forme.VON_NEUMANN, rayon);
+    }
+
+    /** @return la forme du voisinage */
+    public Forme getForme() {
+        return forme;
+    }
+
+    /** @return le rayon du voisinage */
+    public int getRayon() {
+        return rayon;
+    }
+
+    /** @return le nombre de voisines (cellule centrale exclue) */
+    public int taille() {
+        if (forme == Forme.MOORE) {
+            return (2 * rayon + 1) * (2 * rayon + 1) - 1;
+        }
+        return 2 * rayon * (rayon + 1);
+    }
+
+    /** @return true si le décalage (di, dj) désigne une voisine */
+    public boolean contient(int di, int dj) {
+        if (di == 0 && dj == 0) return false;
+        if (forme == Forme.MOORE) {
+            return Math.abs(di) <= rayon && Math.abs(dj) <= rayon;
+        }
+        return Math.abs(di) + Math.abs(dj) <= rayon;
+    }
+
+    /** @return true pour le voisinage de Moore de rayon 1 */
+    public boolean estMoore1() {
+        return forme == Forme.MOORE && rayon == 1;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (!(o instanceof Voisinage)) return false;
+        Voisinage v = (Voisinage) o;
+        return forme == v.forme && rayon == v.rayon;
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * forme.hashCode() + rayon;
+    }
+
+    @Override
+    public String toString() {
+        return (forme == Forme.MOORE ? "NM" : "NN") + " r=" + rayon;
+    }
+}
@@ -1,6 +1,8 @@
 package multi_agents.EvenT;
 
 import multi_agents.logic.BoidSystem;
+import multi_agents.mesures.MesuresSysteme;
+import multi_agents.mesures.PasJfr;
 import multi_agents.simulation.BoidSimulateur;
 
 /**
@@ -27,6 +29,20 @@ public class BoidmàjEvent extends Event {
         this.delay = delay;
     }
 
+    /**
+     * @return le système de boids mis à jour par cet événement
+     */
+    public BoidSystem getSystem() {
+        return system;
+    }
+
+    /**
+     * @return le délai entre deux mises à jour
+     */
+    public long getDelay() {
+        return delay;
+    }
+
     /**
      * Exécute cet événement : on fait une étape de simulation, on redessine,
      * puis on se replanifie automatiquement pour continuer la boucle.
@@ -34,9 +50,27 @@ public class BoidmàjEvent extends Event {
      */
     @Override
     public void execute() {
+        PasJfr jfr = new PasJfr();
+        jfr.begin();
+        int avant = system.size();
+        MesuresSysteme mesures = system.getMesures();
+        long debut = mesures != null ? System.nanoTime() : 0;
         system.step(); // On fait avancer le système d'un pas
+        if (mesures != null) {
+            mesures.noterPas(getDate(), System.nanoTime() - debut, system.size());
+        }
+        simulator.noterEtape(system); // Enregistrement des trajectoires (s'il est actif)
         simulator.draw(); // On redessine tout à l'écran
-        // On se replanifie pour la prochaine fois (date actuelle + delay)
-        simulator.getManager().addEvent(new BoidmàjEvent(getDate() + delay, system, simulator, delay));
+        // On se replanifie pour la prochaine fois (date actuelle + delay, multiplié par la durée du pas)
+        simulator.getManager().addEvent(new BoidmàjEvent(getDate() + delay * system.getPas(), system, simulator, delay));
+        jfr.end();
+        if (jfr.shouldCommit()) {
+            jfr.date = getDate();
+            jfr.systeme = system.getNom();
+            jfr.avant = avant;
+            jfr.apres = system.size();
+            jfr.delai = delay;
+            jfr.commit();
+        }
     }
 }
@@ -5,6 +5,7 @@ package multi_agents.EvenT;
  */
 public abstract class Event {
     private final long date;
+    long numero;    // ordre d'insertion, attribué par l'EventManager (départage des dates égales)
 
     /**
      * Constructeur qui initialise un événement avec sa date d'exécution
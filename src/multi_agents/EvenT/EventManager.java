@@ -1,24 +1,34 @@
 package multi_agents.EvenT;
 
-import java.util.PriorityQueue;
+import java.util.ArrayList;
 import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
 
 /**
  * Gestionnaire d'événements pour notre simulation 
  * Il gère une file de priorité où les événements sont triés par date
- * À chaque appel de next(), on exécute l'événement le plus ancien de la file
+ * À chaque appel de next(), on exécute l'événement le plus ancien de la file.
+ * Les événements de même date s'exécutent dans leur ordre d'ajout : l'ordre d'exécution
+ * ne dépend donc que de la suite des ajouts (simulation reproductible).
  */
 public class EventManager {
     private long currentDate;
     private PriorityQueue<Event> events;
+    private long nbAjouts;      // numéro du prochain événement ajouté
+
+    /** Ordre d'exécution : par date, puis par ordre d'ajout */
+    private static final Comparator<Event> ORDRE =
+            Comparator.comparingLong(Event::getDate).thenComparingLong(e -> e.numero);
 
     /**
      * Constructeur qui initialise le gestionnaire
      */
     public EventManager() {
         this.currentDate = 0;
-        // On utilise une PriorityQueue qui trie automatiquement les événements par date
-        this.events = new PriorityQueue<>(Comparator.comparingLong(Event::getDate));
+        // On utilise une PriorityQueue qui trie automatiquement les événements par date,
+        // puis par ordre d'ajout
+        this.events = new PriorityQueue<>(ORDRE);
     }
 
     /**
@@ -29,6 +39,7 @@ public class EventManager {
         if (e.getDate() < currentDate) {
             throw new IllegalArgumentException("Impossible d'ajouter un événement dans le passé: " + e.getDate() + " < " + currentDate);
         }
+        e.numero = nbAjouts++;
         events.add(e);
     }
 
@@ -58,10 +69,47 @@ public class EventManager {
         return events.isEmpty();
     }
 
+    /**
+     * @return le nombre d'événements en attente
+     */
+    public int getTaille() {
+        return events.size();
+    }
+
     /**
      * @return la date actuelle (en pas de temps)
      */
     public long getCurrentDate() {
         return currentDate;
     }
+
+    /**
+     * @return la date du prochain événement, ou Long.MAX_VALUE s'il n'y en a plus
+     */
+    public long getProchaineDate() {
+        Event e = events.peek();
+        return e == null ? Long.MAX_VALUE : e.getDate();
+    }
+
+    /**
+     * @return les événements en attente, dans leur ordre d'exécution (copie)
+     */
+    public List<Event> getEvents() {
+        List<Event> copie = new ArrayList<>(events);
+        copie.sort(ORDRE);
+        return copie;
+    }
+
+    /**
+     * Remplace la file par des événements en attente (reprise d'une simulation sauvegardée).
+     * @param date la date courante
+     * @param enAttente les événements, dans leur ordre d'exécution
+     */
+    public void restaurer(long date, List<Event> enAttente) {
+        events.clear();
+        currentDate = date;
+        for (Event e : enAttente) {
+            addEvent(e);
+        }
+    }
 }
@@ -0,0 +1,134 @@
+package multi_agents.EvenT;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Format binaire des instantanés de simulation (boids, balles, grilles cellulaires) : un
+ * en-tête commun (signature "JPOO", version du format, type de simulation) suivi de l'état
+ * propre à la simulation, en ordre d'octets big-endian. Chaque type a sa propre version.
+ *
+ * Les fichiers sont projetés en mémoire : l'écriture d'un instantané se réduit à remplir
+ * un tampon de la taille exacte du fichier, sans copie intermédiaire.
+ */
+public final class Instantane {
+
+    /** Signature des fichiers d'instantané ("JPOO"). */
+    public static final int SIGNATURE = 0x4A504F4F;
+
+    /** Types de simulation. */
+    public static final byte BOIDS = 1;
+    public static final byte BALLES = 2;
+    public static final byte GRILLE = 3;
+    public static final byte TRAJECTOIRES = 4;
+    public static final byte POPULATIONS = 5;
+
+    /**
+     * Version de chaque format ; à incrémenter (en ramenant la plus ancienne version lue à la
+     * même valeur) quand la structure des données de ce format, et d'aucun autre, change.
+     */
+    public static final short VERSION_BOIDS = 10;
+    public static final short VERSION_BALLES = 9;
+    public static final short VERSION_GRILLE = 9;
+    public static final short VERSION_TRAJECTOIRES = 9;
+    public static final short VERSION_POPULATIONS = 9;
+
+    /**
+     * Plus ancienne version lue de chaque format. Jusqu'à la version 9, tous les formats
+     * partageaient un même numéro, incrémenté au moindre changement de l'un d'eux : un fichier
+     * dont la structure n'a pas changé depuis peut en porter un plus petit.
+     */
+    private static final short DEPUIS_BOIDS = 10;
+    private static final short DEPUIS_BALLES = 9;
+    private static final short DEPUIS_GRILLE = 1;
+    private static final short DEPUIS_TRAJECTOIRES = 2;
+    private static final short DEPUIS_POPULATIONS = 2;
+
+    /** Taille de l'en-tête : signature, version, type. */
+    public static final int TAILLE_ENTETE = 4 + 2 + 1;
+
+    private Instantane() {
+    }
+
+    /**
+     * @param type le type de simulation
+     * @return la version écrite dans les fichiers de ce type
+     */
+    public static short version(byte type) {
+        switch (type) {
+            case BOIDS: return VERSION_BOIDS;
+            case BALLES: return VERSION_BALLES;
+            case GRILLE: return VERSION_GRILLE;
+            case TRAJECTOIRES: return VERSION_TRAJECTOIRES;
+            case POPULATIONS: return VERSION_POPULATIONS;
+            default: throw new IllegalArgumentException("Type d'instantané inconnu : " + type);
+        }
+    }
+
+    /**
+     * @param type le type de simulation
+     * @param version la version lue dans un fichier de ce type
+     * @return true si les données de ce fichier ont la structure actuelle du format
+     */
+    public static boolean lisible(byte type, short version) {
+        short depuis;
+        switch (type) {
+            case BOIDS: depuis = DEPUIS_BOIDS; break;
+            case BALLES: depuis = DEPUIS_BALLES; break;
+            case GRILLE: depuis = DEPUIS_GRILLE; break;
+            case TRAJECTOIRES: depuis = DEPUIS_TRAJECTOIRES; break;
+            case POPULATIONS: depuis = DEPUIS_POPULATIONS; break;
+            default: return false;
+        }
+        return version >= depuis && version <= version(type);
+    }
+
+    /**
+     * Crée (ou écrase) un fichier d'instantané, écrit son en-tête et le projette en mémoire.
+     * @param fichier le fichier
+     * @param type le type de simulation
+     * @param taille la taille exacte des données qui suivent l'en-tête
+     * @return le tampon à remplir, positionné après l'en-tête
+     */
+    public static MappedByteBuffer creer(Path fichier, byte type, long taille) throws IOException {
+        long total = TAILLE_ENTETE + taille;
+        if (total > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Instantané trop grand : " + total + " octets");
+        }
+        try (FileChannel canal = FileChannel.open(fichier, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            MappedByteBuffer out = canal.map(FileChannel.MapMode.READ_WRITE, 0, total);
+            out.putInt(SIGNATURE).putShort(version(type)).put(type);
+            return out;
+        }
+    }
+
+    /**
+     * Projette un fichier d'instantané en lecture et vérifie son en-tête.
+     * @param fichier le fichier
+     * @param type le type de simulation attendu
+     * @return le tampon, positionné après l'en-tête
+     * @throws IOException si le fichier n'est pas un instantané de ce type, dans une version lisible
+     */
+    public static ByteBuffer ouvrir(Path fichier, byte type) throws IOException {
+        try (FileChannel canal = FileChannel.open(fichier, StandardOpenOption.READ)) {
+            ByteBuffer in = canal.map(FileChannel.MapMode.READ_ONLY, 0, canal.size());
+            if (in.remaining() < TAILLE_ENTETE || in.getInt() != SIGNATURE) {
+                throw new IOException("Ce fichier n'est pas un instantané : " + fichier);
+            }
+            short version = in.getShort();
+            byte t = in.get();
+            if (t != type) {
+                throw new IOException("Type d'instantané inattendu : " + t + " (attendu " + type + ")");
+            }
+            if (!lisible(type, version)) {
+                throw new IOException("Version d'instantané non prise en charge : " + version);
+            }
+            return in;
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package multi_agents.TestTest;
+
+import multi_agents.simulation.Balayage;
+import multi_agents.simulation.Balayage.Axe;
+import multi_agents.simulation.Balayage.Configuration;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+
+/**
+ * Test du balayage de paramètres, sans affichage :
+ * - grille sur la vitesse des prédateurs et le nombre initial de proies, 4 graines par configuration
+ * - les simulations tournent en parallèle et s'arrêtent à l'extinction d'une des espèces
+ * - on affiche la synthèse par configuration ; le détail est écrit en CSV si un fichier est donné en argument
+ */
+public class TestBalayage {
+    public static void main(String[] args) throws Exception {
+        Balayage balayage = new Balayage(800, 600, 5000, 10);
+        List<Configuration> configurations = Balayage.grille(Configuration.ecosysteme(),
+                new Axe("predateurs.Vmax", (c, v) -> c.predateurs.Vmax = v, 3.0, 4.0, 5.0),
+                new Axe("proies.nbBoids", (c, v) -> c.proies.nbBoids = (int) v, 30, 60));
+
+        long debut = System.nanoTime();
+        List<Balayage.Resultat> resultats = balayage.executer(configurations, 1, 2, 3, 4);
+        System.out.println(resultats.size() + " simulations en " + (System.nanoTime() - debut) / 1_000_000 + " ms");
+        for (Balayage.Synthese s : Balayage.synthetiser(configurations.size(), resultats)) {
+            System.out.println(s + "  " + configurations.get(s.configuration));
+        }
+        if (args.length > 0) {
+            Path fichier = Paths.get(args[0]);
+            Balayage.ecrireCsv(fichier, configurations, resultats);
+            System.out.println("Résultats : " + fichier);
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package multi_agents.TestTest;
+
+import gui.GUISimulator;
+import multi_agents.logic.PredateurBoidSystem;
+import multi_agents.logic.ProieBoidSystem;
+import multi_agents.simulation.BoidSimulateur;
+import multi_agents.simulation.RejeuTrajectoires;
+
+import java.awt.Color;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * Test de l'enregistrement et du rejeu des trajectoires :
+ * - on simule d'abord un écosystème sans affichage en enregistrant chaque pas
+ * - puis on rejoue l'enregistrement dans la fenêtre (Next avance, Restart revient au début)
+ * Le fichier est donné en argument (par défaut un fichier temporaire).
+ */
+public class TestRejeu {
+    public static void main(String[] args) throws Exception {
+        int width = 800;
+        int height = 600;
+        int nbPas = 3000;
+        Path fichier = args.length > 0 ? Paths.get(args[0]) : Files.createTempFile("boids", ".traj");
+
+        // Simulation sans interface graphique
+        BoidSimulateur simulator = new BoidSimulateur(null);
+        ProieBoidSystem proies = new ProieBoidSystem(30, width, height,
+                80.0, 20.0, 3.0, 0.15, Math.PI * 1.5, 1.0, 1.2, 1.5);
+        PredateurBoidSystem predateurs = new PredateurBoidSystem(10, width, height,
+                120.0, 25.0, 4.0, 0.2, Math.PI * 1.8, 0.8, 0.9, 1.2);
+        simulator.addSystem(proies, new Color(50, 150, 255), 1);
+        simulator.addSystem(predateurs, new Color(255, 80, 80), 1);
+        simulator.linkSystems();
+
+        simulator.enregistrer(fichier);
+        while (simulator.getManager().getCurrentDate() < nbPas && !simulator.getManager().isFinished()) {
+            simulator.next();
+        }
+        simulator.arreterEnregistrement();
+        System.out.println("Enregistré : " + fichier + " (" + Files.size(fichier) / 1024 + " Ko)");
+
+        // Rejeu
+        GUISimulator gui = new GUISimulator(width, height, Color.BLACK);
+        new RejeuTrajectoires(gui, fichier);
+    }
+}
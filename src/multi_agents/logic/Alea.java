@@ -0,0 +1,55 @@
+package multi_agents.logic;
+
+/**
+ * Générateur pseudo-aléatoire SplitMix64 dont l'état tient dans un seul long.
+ * Contrairement à Math.random(), son état peut être lu et restauré : une simulation
+ * sauvegardée puis reprise tire exactement les mêmes nombres.
+ */
+public class Alea {
+    private long etat;
+
+    /**
+     * Crée un générateur avec une graine différente à chaque exécution.
+     */
+    public Alea() {
+        this(System.nanoTime() ^ Double.doubleToLongBits(Math.random()));
+    }
+
+    /**
+     * @param graine la graine (deux générateurs de même graine tirent la même suite)
+     */
+    public Alea(long graine) {
+        this.etat = graine;
+    }
+
+    /**
+     * @return un long uniforme
+     */
+    public long nextLong() {
+        long z = (etat += 0x9E3779B97F4A7C15L);
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    /**
+     * @return un double uniforme dans [0, 1), comme Math.random()
+     */
+    public double nextDouble() {
+        return (nextLong() >>> 11) * 0x1.0p-53;
+    }
+
+    /**
+     * @return l'état interne (à sauvegarder)
+     */
+    public long getEtat() {
+        return etat;
+    }
+
+    /**
+     * @param etat un état obtenu par {@link #getEtat()}
+     */
+    public void setEtat(long etat) {
+        this.etat = etat;
+    }
+}
@@ -0,0 +1,351 @@
+package multi_agents.logic;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Arbre quaternaire des boids d'un système, reconstruit à chaque pas, pour le flocking par
+ * agrégats (Barnes-Hut). Chaque nœud garde le nombre de ses boids et les sommes de leurs
+ * positions et vitesses, ce qui suffit à la cohésion et à l'alignement (des moyennes) :
+ * un nœud entièrement dans le rayon et le cône de vision compte d'un bloc, exactement.
+ * Seuls les nœuds à cheval sur le bord de la vision sont approchés : s'ils sont assez petits
+ * vus de loin (côté / distance à leur centre de masse inférieur à l'ouverture), ils sont vus
+ * ou non d'un bloc selon leur centre de masse ; sinon ils sont ouverts jusqu'aux feuilles, où
+ * chaque boid est testé comme dans {@link LaLoi}. La séparation, non linéaire, reste exacte.
+ *
+ * Les nœuds sont rangés dans des tableaux ; les 4 fils d'un nœud sont consécutifs et ses boids
+ * sont boids[debut[k]] ... boids[fin[k] - 1].
+ */
+final class ArbreBoids {
+    /** Nombre de boids au-delà duquel une feuille est partagée */
+    private static final int CAPACITE = 8;
+    /** Profondeur maximale (des boids confondus ne peuvent pas être séparés) */
+    private static final int PROFONDEUR_MAX = 24;
+
+    private Boid[] boids = new Boid[0];
+    private int noeuds;
+    private double[] x0 = new double[0];   // coin et côté du carré de chaque nœud
+    private double[] y0 = new double[0];
+    private double[] cote = new double[0];
+    private int[] debut = new int[0];
+    private int[] fin = new int[0];
+    private int[] fils = new int[0];        // premier des 4 fils, -1 pour une feuille
+    private double[] sx = new double[0];    // sommes des positions
+    private double[] sy = new double[0];
+    private double[] svx = new double[0];   // sommes des vitesses
+    private double[] svy = new double[0];
+    private int[] pile = new int[64];
+
+    // Résultats de la dernière recherche (voir, separer)
+    private double px, py, vx, vy;
+    private int vus;
+    private double ex, ey;
+    private int proches;
+    private int examines;       // nœuds pris d'un bloc et boids testés dans les feuilles, par voir et separer
+
+    /**
+     * Range les boids donnés (qui ne bougent pas jusqu'à la prochaine construction).
+     */
+    void construire(List<Boid> liste) {
+        int n = liste.size();
+        if (boids.length < n) boids = new Boid[n];
+        double xmin = Double.MAX_VALUE, ymin = Double.MAX_VALUE;
+        double xmax = -Double.MAX_VALUE, ymax = -Double.MAX_VALUE;
+        for (int i = 0; i < n; i++) {
+            Boid b = liste.get(i);
+            boids[i] = b;
+            xmin = Math.min(xmin, b.position.x);
+            ymin = Math.min(ymin, b.position.y);
+            xmax = Math.max(xmax, b.position.x);
+            ymax = Math.max(ymax, b.position.y);
+        }
+        noeuds = 0;
+        if (n == 0) return;
+        nouveauNoeud();
+        construire(0, 0, n, xmin, ymin, Math.max(Math.max(xmax - xmin, ymax - ymin), 1e-9), 0);
+    }
+
+    private void construire(int k, int d, int f, double x, double y, double c, int profondeur) {
+        x0[k] = x;
+        y0[k] = y;
+        cote[k] = c;
+        debut[k] = d;
+        fin[k] = f;
+        if (f - d <= CAPACITE || profondeur == PROFONDEUR_MAX) {
+            fils[k] = -1;
+            double a = 0, b = 0, va = 0, vb = 0;
+            for (int i = d; i < f; i++) {
+                a += boids[i].position.x;
+                b += boids[i].position.y;
+                va += boids[i].vitesse.x;
+                vb += boids[i].vitesse.y;
+            }
+            sx[k] = a;
+            sy[k] = b;
+            svx[k] = va;
+            svy[k] = vb;
+            return;
+        }
+        // Partage en quadrants : d'abord selon x, puis chaque moitié selon y
+        double h = c / 2;
+        int mx = partager(d, f, x + h, true);
+        int m0 = partager(d, mx, y + h, false);
+        int m1 = partager(mx, f, y + h, false);
+        int premier = noeuds;
+        for (int i = 0; i < 4; i++) nouveauNoeud();
+        fils[k] = premier;
+        construire(premier, d, m0, x, y, h, profondeur + 1);
+        construire(premier + 1, m0, mx, x, y + h, h, profondeur + 1);
+        construire(premier + 2, mx, m1, x + h, y, h, profondeur + 1);
+        construire(premier + 3, m1, f, x + h, y + h, h, profondeur + 1);
+        sx[k] = sy[k] = svx[k] = svy[k] = 0;
+        for (int i = premier; i < premier + 4; i++) {
+            sx[k] += sx[i];
+            sy[k] += sy[i];
+            svx[k] += svx[i];
+            svy[k] += svy[i];
+        }
+    }
+
+    /** Range avant les autres les boids de [d, f) sous la limite ; @return le début des autres */
+    private int partager(int d, int f, double limite, boolean selonX) {
+        int i = d;
+        int j = f - 1;
+        while (i <= j) {
+            Boid b = boids[i];
+            if ((selonX ? b.position.x : b.position.y) < limite) {
+                i++;
+            } else {
+                boids[i] = boids[j];
+                boids[j--] = b;
+            }
+        }
+        return i;
+    }
+
+    private void nouveauNoeud() {
+        if (noeuds == fils.length) {
+            int t = Math.max(16, 2 * noeuds);
+            x0 = Arrays.copyOf(x0, t);
+            y0 = Arrays.copyOf(y0, t);
+            cote = Arrays.copyOf(cote, t);
+            debut = Arrays.copyOf(debut, t);
+            fin = Arrays.copyOf(fin, t);
+            fils = Arrays.copyOf(fils, t);
+            sx = Arrays.copyOf(sx, t);
+            sy = Arrays.copyOf(sy, t);
+            svx = Arrays.copyOf(svx, t);
+            svy = Arrays.copyOf(svy, t);
+        }
+        noeuds++;
+    }
+
+    /**
+     * Cherche les voisins de b pour la cohésion et l'alignement (résultats lus par
+     * {@link #cohesion} et {@link #alignement}).
+     * @param rayon le rayon de vision
+     * @param angleVision l'angle de vision
+     * @param ouverture le critère d'ouverture (0 : aucun nœud n'est approché)
+     */
+    void voir(Boid b, double rayon, double angleVision, double ouverture) {
+        px = py = vx = vy = 0;
+        vus = 0;
+        examines = 0;
+        if (noeuds == 0) return;
+        double cosVision = Math.cos(angleVision / 2);
+        double dvx = direction(b.vitesse.x, b.vitesse.y, true);
+        double dvy = direction(b.vitesse.x, b.vitesse.y, false);
+        double r2 = rayon * rayon;
+        int sommet = 0;
+        pile[sommet++] = 0;
+        while (sommet > 0) {
+            int k = pile[--sommet];
+            if (fin[k] == debut[k] || distance2(b, k) >= r2) continue;
+            if (!contient(k, b)) {
+                if (dedans(b, k, r2, dvx, dvy, cosVision, angleVision)) {
+                    // Nœud entièrement vu : ses sommes sont exactement celles de ses boids
+                    examines++;
+                    ajouter(k);
+                    continue;
+                }
+                if (ouverture > 0) {
+                    int n = fin[k] - debut[k];
+                    double gx = sx[k] / n - b.position.x;
+                    double gy = sy[k] / n - b.position.y;
+                    double d = Math.sqrt(gx * gx + gy * gy);
+                    if (cote[k] < ouverture * d) {
+                        // Nœud lointain à cheval sur le bord de la vision : vu ou non selon son centre de masse
+                        examines++;
+                        if (d < rayon && visible(dvx, dvy, gx, gy, d, cosVision)) {
+                            ajouter(k);
+                        }
+                        continue;
+                    }
+                }
+            }
+            if (fils[k] >= 0) {
+                sommet = empiler(sommet, fils[k]);
+                continue;
+            }
+            examines += fin[k] - debut[k];
+            for (int i = debut[k]; i < fin[k]; i++) {
+                Boid o = boids[i];
+                if (o == b) continue;
+                double dx = o.position.x - b.position.x;
+                double dy = o.position.y - b.position.y;
+                double d = Math.sqrt(dx * dx + dy * dy);
+                if (d < rayon && visible(dvx, dvy, dx, dy, d, cosVision)) {
+                    px += o.position.x;
+                    py += o.position.y;
+                    vx += o.vitesse.x;
+                    vy += o.vitesse.y;
+                    vus++;
+                }
+            }
+        }
+    }
+
+    private void ajouter(int k) {
+        px += sx[k];
+        py += sy[k];
+        vx += svx[k];
+        vy += svy[k];
+        vus += fin[k] - debut[k];
+    }
+
+    /**
+     * @return true si le carré du nœud k (qui ne contient pas b) est entièrement dans le rayon
+     *         et le cône de vision de b
+     */
+    private boolean dedans(Boid b, int k, double r2, double dvx, double dvy, double cosVision, double angleVision) {
+        for (int c = 0; c < 4; c++) {
+            double dx = x0[k] + ((c & 1) == 0 ? 0 : cote[k]) - b.position.x;
+            double dy = y0[k] + ((c & 2) == 0 ? 0 : cote[k]) - b.position.y;
+            double d2 = dx * dx + dy * dy;
+            if (d2 >= r2 || !visible(dvx, dvy, dx, dy, Math.sqrt(d2), cosVision)) return false;
+        }
+        if (angleVision <= Math.PI) return true;   // cône convexe : les coins suffisent
+        // Cône rentrant : le carré peut encore traverser l'angle mort sans qu'aucun coin n'y soit,
+        // mais il coupe alors la demi-droite qui part de b vers l'arrière
+        return dvx == 0 && dvy == 0 || !coupeArriere(b, k, -dvx, -dvy);
+    }
+
+    /** @return true si la demi-droite partant de b dans la direction (ux, uy) coupe le carré k */
+    private boolean coupeArriere(Boid b, int k, double ux, double uy) {
+        double tmin = 0;
+        double tmax = Double.MAX_VALUE;
+        double[] o = {b.position.x, b.position.y};
+        double[] u = {ux, uy};
+        double[] min = {x0[k], y0[k]};
+        for (int a = 0; a < 2; a++) {
+            if (u[a] == 0) {
+                if (o[a] < min[a] || o[a] > min[a] + cote[k]) return false;
+            } else {
+                double t1 = (min[a] - o[a]) / u[a];
+                double t2 = (min[a] + cote[k] - o[a]) / u[a];
+                tmin = Math.max(tmin, Math.min(t1, t2));
+                tmax = Math.min(tmax, Math.max(t1, t2));
+            }
+        }
+        return tmin <= tmax;
+    }
+
+    /**
+     * Séparation exacte : cherche les boids à moins de distance de b (résultat lu par {@link #separation}).
+     * @param angleVision l'angle de vision
+     */
+    void separer(Boid b, double distance, double angleVision) {
+        double cosVision = Math.cos(angleVision / 2);
+        ex = ey = 0;
+        proches = 0;
+        if (noeuds == 0) return;
+        double dvx = direction(b.vitesse.x, b.vitesse.y, true);
+        double dvy = direction(b.vitesse.x, b.vitesse.y, false);
+        double d2 = distance * distance;
+        int sommet = 0;
+        pile[sommet++] = 0;
+        while (sommet > 0) {
+            int k = pile[--sommet];
+            if (fin[k] == debut[k] || distance2(b, k) >= d2) continue;
+            if (fils[k] >= 0) {
+                sommet = empiler(sommet, fils[k]);
+                continue;
+            }
+            examines += fin[k] - debut[k];
+            for (int i = debut[k]; i < fin[k]; i++) {
+                Boid o = boids[i];
+                if (o == b) continue;
+                double dx = o.position.x - b.position.x;
+                double dy = o.position.y - b.position.y;
+                double d = Math.sqrt(dx * dx + dy * dy);
+                if (d < distance && visible(dvx, dvy, dx, dy, d, cosVision)) {
+                    if (d > 0) {
+                        ex -= dx / d;
+                        ey -= dy / d;
+                    }
+                    proches++;
+                }
+            }
+        }
+    }
+
+    /**
+     * @return les candidats examinés par {@link #voir} et {@link #separer} pour le dernier boid :
+     *         nœuds pris d'un bloc et boids des feuilles ouvertes
+     */
+    int getExamines() {
+        return examines;
+    }
+
+    /**
+     * @return la cohésion de b après {@link #voir}, calculée comme {@link LaLoi#cohesion}
+     */
+    Vecteur2D cohesion(Boid b) {
+        return new Vecteur2D(px, py).div(vus).sub(b.position).normalize();
+    }
+
+    /**
+     * @return l'alignement après {@link #voir}, calculé comme {@link LaLoi#alignment}
+     */
+    Vecteur2D alignement() {
+        return new Vecteur2D(vx, vy).div(vus).normalize();
+    }
+
+    /**
+     * @return la séparation après {@link #separer}, calculée comme {@link LaLoi#separation}
+     */
+    Vecteur2D separation() {
+        return new Vecteur2D(ex, ey).div(proches).normalize();
+    }
+
+    private int empiler(int sommet, int premier) {
+        if (sommet + 4 > pile.length) pile = Arrays.copyOf(pile, 2 * pile.length);
+        for (int i = 0; i < 4; i++) pile[sommet++] = premier + i;
+        return sommet;
+    }
+
+    /** @return le carré de la distance de b au carré du nœud k (0 si b est dedans) */
+    private double distance2(Boid b, int k) {
+        double dx = Math.max(0, Math.max(x0[k] - b.position.x, b.position.x - x0[k] - cote[k]));
+        double dy = Math.max(0, Math.max(y0[k] - b.position.y, b.position.y - y0[k] - cote[k]));
+        return dx * dx + dy * dy;
+    }
+
+    private boolean contient(int k, Boid b) {
+        return b.position.x >= x0[k] && b.position.x <= x0[k] + cote[k]
+                && b.position.y >= y0[k] && b.position.y <= y0[k] + cote[k];
+    }
+
+    /** Une composante de la direction (vx, vy) normalisée, nulle si la vitesse est nulle */
+    private static double direction(double vx, double vy, boolean selonX) {
+        double n = Math.sqrt(vx * vx + vy * vy);
+        if (n == 0) return 0;
+        return (selonX ? vx : vy) / n;
+    }
+
+    /** Test du cône de vision de {@link LaLoi} pour un voisin à (dx, dy), à distance d */
+    private static boolean visible(double dvx, double dvy, double dx, double dy, double d, double cosVision) {
+        double cos = d == 0 ? 0 : (dvx * dx + dvy * dy) / d;
+        return cos > cosVision;
+    }
+}
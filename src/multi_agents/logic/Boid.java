@@ -1,9 +1,17 @@
 package multi_agents.logic;
 
+import java.nio.ByteBuffer;
+
 /**
  * Classe représentant un boid (agent autonome) dans une simulation de flocking
  */
 public class Boid {
+    /** Taille d'un boid dans un instantané : identifiant, position, vitesse, Vmax, Fmax, énergie, âge, vivant, niveaux de détail. */
+    public static final int TAILLE_INSTANTANE = 4 + 7 * 8 + 4 + 1 + 4 + 2 * 8;
+
+    /** Numéro du boid dans son système (attribué à la création, stable jusqu'à sa mort) */
+    int id;
+
     /** Position du boid  */
     Vecteur2D position;
     
@@ -28,15 +36,24 @@ public class Boid {
     /** Indique si le boid est vivant (mort si énergie <= 0) */
     private boolean vivant;
 
+    /** Niveaux de détail : force gardée entre deux calculs, et pas restant avant le prochain calcul */
+    Vecteur2D forceTenue;
+    int attente;
+
     /**
-     * Constructeur qui initialise un boid 
+     * Constructeur qui initialise un boid ; sa vitesse initiale (entre -1 et 1 pour chaque
+     * composante) est tirée par un générateur donné (simulation reproductible).
      * @param x la position initiale en x
      * @param y la position initiale en y
+     * @param alea le générateur aléatoire
      */
-    public Boid(double x, double y) {
-        this.position = new Vecteur2D(x, y);
-        // Vitesse aléatoire entre -1 et 1 pour chaque composante
-        this.vitesse = new Vecteur2D(Math.random() * 2 - 1, Math.random() * 2 - 1);
+    public Boid(double x, double y, Alea alea) {
+        this(new Vecteur2D(x, y), new Vecteur2D(alea.nextDouble() * 2 - 1, alea.nextDouble() * 2 - 1));
+    }
+
+    private Boid(Vecteur2D position, Vecteur2D vitesse) {
+        this.position = position;
+        this.vitesse = vitesse;
         this.acceleration = new Vecteur2D(0, 0);
         this.Vmax = 3.0;
         this.Fmax = 0.1;
@@ -59,11 +76,27 @@ public class Boid {
      * @param height la hauteur de la zone de simulation
      */
     public void màj(int width, int height) {
+        màj(width, height, 1, Integrateur.EULER);
+    }
+
+    /**
+     * Met à jour la position et la vitesse du boid sur un pas de dt unités de temps.
+     * @param width la largeur de la zone de simulation
+     * @param height la hauteur de la zone de simulation
+     * @param dt la durée du pas
+     * @param integrateur le schéma d'intégration
+     */
+    public void màj(int width, int height, int dt, Integrateur integrateur) {
         // Mise à jour avec steering : vitesse += accélération (limitée)
-        vitesse = vitesse.add(acceleration).limit(Vmax);
+        Vecteur2D avant = vitesse;
+        vitesse = vitesse.add(acceleration.mult(dt)).limit(Vmax);
 
-        // Puis on met à jour la position avec la nouvelle vitesse
-        position = position.add(vitesse);
+        // Puis on met à jour la position avec la nouvelle vitesse (ou la moyenne des deux pour Verlet)
+        if (integrateur == Integrateur.VERLET) {
+            position = position.add(avant.add(vitesse).mult(dt / 2.0));
+        } else {
+            position = position.add(vitesse.mult(dt));
+        }
         
         if (position.x < 0) {
             position.x = 0;
@@ -85,7 +118,7 @@ public class Boid {
         acceleration = new Vecteur2D(0, 0);
         
         // Mise à jour des états internes
-        age++;  // Le boid vieillit
+        age += dt;  // Le boid vieillit
     }
     
     /**
@@ -126,6 +159,15 @@ public class Boid {
         return vitesse;
     }
 
+    /**
+     * Renvoie le numéro du boid dans son système ; il suit le boid d'une étape à l'autre
+     * même quand d'autres boids disparaissent de la liste.
+     * @return l'identifiant du boid
+     */
+    public int getId() {
+        return id;
+    }
+
     /**
      * Renvoie la vitesse maximale du boid
      * @return la vitesse maximale
@@ -171,6 +213,45 @@ public class Boid {
         return vivant;
     }
     
+    /**
+     * Écrit l'état du boid (l'accélération, remise à zéro à chaque mise à jour, n'en fait pas partie).
+     * @param out le tampon de destination ({@link #TAILLE_INSTANTANE} octets)
+     */
+    public void ecrire(ByteBuffer out) {
+        out.putInt(id);
+        out.putDouble(position.x).putDouble(position.y);
+        out.putDouble(vitesse.x).putDouble(vitesse.y);
+        out.putDouble(Vmax).putDouble(Fmax).putDouble(energie);
+        out.putInt(age);
+        out.put((byte) (vivant ? 1 : 0));
+        // Niveaux de détail (NaN si le boid ne garde pas de force)
+        out.putInt(attente);
+        out.putDouble(forceTenue == null ? Double.NaN : forceTenue.x);
+        out.putDouble(forceTenue == null ? Double.NaN : forceTenue.y);
+    }
+
+    /**
+     * Relit un boid écrit par {@link #ecrire(ByteBuffer)}.
+     * @param in le tampon source
+     * @return le boid reconstruit
+     */
+    public static Boid lire(ByteBuffer in) {
+        int id = in.getInt();
+        Vecteur2D position = new Vecteur2D(in.getDouble(), in.getDouble());
+        Boid b = new Boid(position, new Vecteur2D(in.getDouble(), in.getDouble()));
+        b.id = id;
+        b.Vmax = in.getDouble();
+        b.Fmax = in.getDouble();
+        b.energie = in.getDouble();
+        b.age = in.getInt();
+        b.vivant = in.get() != 0;
+        b.attente = in.getInt();
+        double fx = in.getDouble();
+        double fy = in.getDouble();
+        b.forceTenue = Double.isNaN(fx) ? null : new Vecteur2D(fx, fy);
+        return b;
+    }
+
     @Override
     public String toString() {
         return String.format("Boid[pos=%s, vel=%s, energie=%.2f, age=%d, vivant=%b]", 
@@ -1,6 +1,11 @@
 package multi_agents.logic;
 
+import multi_agents.mesures.MesuresSysteme;
+import multi_agents.mesures.PhaseJfr;
+
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 /**
@@ -23,6 +28,55 @@ public abstract class BoidSystem {
     // Liste des autres systèmes pour les interactions inter-groupes
     protected List<BoidSystem> interGroups;
 
+    /** Générateur de tous les tirages du système (sauvegardé avec lui) */
+    protected final Alea alea = new Alea();
+
+    /** Identifiant du prochain boid créé (naissances comprises) */
+    protected int prochainId;
+
+    /** Mesures du système (null si elles ne sont pas activées) */
+    protected MesuresSysteme mesures;
+
+    /** Fraction de la distance de séparation (et de Vmax) qu'un pas adaptatif peut parcourir (et changer) */
+    public static final double TOLERANCE_PAS = 0.5;
+
+    /** Schéma d'intégration et pas de temps (en unités de temps, donc en multiples du délai des événements) */
+    protected Integrateur integrateur = Integrateur.EULER;
+    protected int pasMax = 1;
+    protected int pas = 1;
+    /** Plus grandes vitesse et accélération observées au dernier pas (pour choisir le suivant ; -1 : pas observées) */
+    protected double vitesseObservee = -1;
+    protected double accelerationObservee = -1;
+
+    /** Niveaux de détail : au plus un calcul complet toutes les periodeDetail étapes pour un boid isolé */
+    protected int periodeDetail = 1;
+    protected double toleranceDetail;
+    private GrilleBoids grille;
+    private int calcules;
+    /** Écart relatif toléré entre le côté des cases de la grille des niveaux de détail et la portée voulue */
+    private static final double TOLERANCE_GRILLE = 0.25;
+
+    /** Flocking par agrégats (Barnes-Hut) : arbre (null pour le calcul par liste) et critère d'ouverture */
+    private ArbreBoids arbre;
+    protected double ouverture;
+
+    /** Listes de voisins de Verlet (null pour parcourir tous les boids) */
+    private VoisinsBoids voisins;
+
+    /** Voisins candidats examinés par chaque boid au pas courant (les nbCandidats premiers comptent) */
+    private int[] candidats = new int[0];
+    private int nbCandidats;
+
+    /** Tri des boids dans l'ordre de Morton toutes les periodeTri étapes (0 : jamais) */
+    protected int periodeTri;
+    private int etapesDepuisTri;
+    private TriMorton tri;
+
+    /** Naissances, morts de faim et captures cumulées depuis la création du système */
+    protected long naissances;
+    protected long morts;
+    protected long captures;
+
     /**
      * Constructeur qui initialise un système avec un certain nombre de boids
      * @param nbBoids le nombre de boids à créer dans ce système
@@ -54,9 +108,10 @@ public abstract class BoidSystem {
         this.poiDESeparation = poiDESeparation;
         this.interGroups = new ArrayList<>();
         for (int i = 0; i < nbBoids; i++) {
-            double x = Math.random() * width;
-            double y = Math.random() * height;
-            Boid b = new Boid(x, y);
+            double x = alea.nextDouble() * width;
+            double y = alea.nextDouble() * height;
+            Boid b = new Boid(x, y, alea);
+            b.id = prochainId++;
             b.Vmax = Vmax;
             b.Fmax = Fmax;
             boids.add(b);
@@ -85,16 +140,25 @@ public abstract class BoidSystem {
      */
     public void reInit(int nbBoids) {
         boids.clear();
+        prochainId = 0;
         for (int i = 0; i < nbBoids; i++) {
-            double x = Math.random() * width;
-            double y = Math.random() * height;
-            Boid b = new Boid(x, y);
+            double x = alea.nextDouble() * width;
+            double y = alea.nextDouble() * height;
+            Boid b = new Boid(x, y, alea);
+            b.id = prochainId++;
             b.Vmax = Vmax;
             b.Fmax = Fmax;
             boids.add(b);
         }
     }
 
+    /**
+     * @return "predateurs" ou "proies", pour nommer le système dans les mesures
+     */
+    public String getNom() {
+        return estpredateur() ? "predateurs" : "proies";
+    }
+
     /**
      * @return la liste des boids
      */
@@ -109,6 +173,423 @@ public abstract class BoidSystem {
         return boids.size();
     }
 
+    /**
+     * @return le générateur aléatoire du système (par exemple pour fixer sa graine avant un reInit)
+     */
+    public Alea getAlea() {
+        return alea;
+    }
+
+    /**
+     * @return le nombre cumulé de naissances
+     */
+    public long getNaissances() {
+        return naissances;
+    }
+
+    /**
+     * @return le nombre cumulé de morts de faim
+     */
+    public long getMorts() {
+        return morts;
+    }
+
+    /**
+     * @return le nombre cumulé de proies capturées par ce système
+     */
+    public long getCaptures() {
+        return captures;
+    }
+
+    /**
+     * Choisit le schéma d'intégration et le pas de temps du système. Avec pasMax = 1 (par défaut),
+     * chaque pas dure une unité de temps. Au-delà, le pas est adaptatif : quand la nuée est calme,
+     * il grandit (jusqu'à pasMax) tant qu'un boid ne parcourt pas plus de
+     * {@link #TOLERANCE_PAS} fois la distance de séparation et que sa vitesse ne change pas de
+     * plus de {@link #TOLERANCE_PAS} fois Vmax ; le système fait alors moins de pas pour la même
+     * durée simulée (l'événement suivant est placé à date + délai * pas).
+     * @param integrateur le schéma d'intégration
+     * @param pasMax le plus grand pas autorisé (au moins 1)
+     */
+    public void setIntegrateur(Integrateur integrateur, int pasMax) {
+        if (pasMax < 1) {
+            throw new IllegalArgumentException("Le pas maximal doit être au moins 1 : " + pasMax);
+        }
+        this.integrateur = integrateur;
+        this.pasMax = pasMax;
+        this.pas = Math.min(pas, pasMax);
+    }
+
+    /**
+     * @return le schéma d'intégration
+     */
+    public Integrateur getIntegrateur() {
+        return integrateur;
+    }
+
+    /**
+     * @return le plus grand pas autorisé
+     */
+    public int getPasMax() {
+        return pasMax;
+    }
+
+    /**
+     * @return la durée du dernier pas (ou du premier, avant tout pas)
+     */
+    public int getPas() {
+        return pas;
+    }
+
+    /**
+     * Choisit la durée du pas qui commence, d'après les vitesses et accélérations du pas précédent.
+     * Le pas au plus double d'un pas à l'autre, et revient à 1 dès que la nuée s'agite. Une
+     * nuée immobile (ni vitesse ni accélération) passe directement au plus grand pas ; avant
+     * la première observation, le pas est 1.
+     * @return la durée du pas
+     */
+    protected int choisirPas() {
+        if (pasMax == 1 || vitesseObservee < 0) {
+            pas = 1;
+            return pas;
+        }
+        if (vitesseObservee == 0 && accelerationObservee == 0) {
+            pas = pasMax;
+            return pas;
+        }
+        double limite = pasMax;
+        if (vitesseObservee > 0) {
+            limite = Math.min(limite, TOLERANCE_PAS * distanceSep / vitesseObservee);
+        }
+        if (accelerationObservee > 0) {
+            limite = Math.min(limite, TOLERANCE_PAS * Vmax / accelerationObservee);
+        }
+        pas = Math.max(1, Math.min((int) limite, 2 * pas));
+        return pas;
+    }
+
+    /**
+     * @param p une probabilité par unité de temps
+     * @return la probabilité correspondante sur le pas courant
+     */
+    protected double parPas(double p) {
+        return pas == 1 ? p : 1 - Math.pow(1 - p, pas);
+    }
+
+    /**
+     * Active les niveaux de détail. Un boid qui a une menace ou une proie à portée (à la marge
+     * d'un pas près) est calculé à chaque pas. Les autres ne le sont qu'une fois toutes les
+     * k / (1 + v) étapes, v étant le nombre de congénères dans son rayon de vision : un boid
+     * isolé une fois toutes les k étapes, un boid au milieu d'un groupe dense à chaque pas.
+     * Entre deux calculs, un boid garde la même force (estime à l'aveugle) et continue
+     * d'avancer, de vieillir et de se fatiguer normalement. Comme la force d'un boid est limitée
+     * par Fmax, l'écart de position dû à cette estimation reste inférieur à Fmax * (k * pas)² :
+     * k est choisi pour qu'il ne dépasse pas la tolérance ; l'estimation se dégrade avec le
+     * nombre de congénères qui bougent pendant ce temps, d'où la période réduite d'autant.
+     * Un boid dont la période raccourcit (une menace approche, le groupe se resserre) est
+     * recalculé au plus tard à la fin de sa nouvelle période.
+     * @param periodeMax le plus grand k autorisé (1 pour désactiver les niveaux de détail)
+     * @param tolerance l'écart de position toléré
+     */
+    public void setNiveauxDetail(int periodeMax, double tolerance) {
+        if (periodeMax < 1 || tolerance < 0) {
+            throw new IllegalArgumentException("Niveaux de détail invalides : période " + periodeMax
+                    + ", tolérance " + tolerance);
+        }
+        this.periodeDetail = periodeMax;
+        this.toleranceDetail = tolerance;
+        this.grille = null;
+    }
+
+    /**
+     * @return le nombre de boids entièrement calculés au dernier pas
+     */
+    public int getBoidsCalcules() {
+        return calcules;
+    }
+
+    /**
+     * Choisit le calcul du flocking. Par défaut, chaque boid parcourt la liste de tous les
+     * autres ({@link LaLoi}). Avec l'arbre, utile quand le rayon de vision contient des centaines
+     * de boids, les boids sont rangés dans un arbre quaternaire dont chaque nœud garde le nombre,
+     * la somme des positions et celle des vitesses de ses boids : un nœud entièrement vu compte
+     * d'un bloc pour la cohésion et l'alignement, et la séparation, à courte portée, ne visite
+     * que les nœuds proches. Le résultat est exact avec une ouverture nulle ; avec une ouverture
+     * positive, les nœuds à cheval sur le bord de la vision et vus sous un angle plus petit
+     * (côté / distance &lt; ouverture) sont vus ou non d'un bloc selon leur centre de masse :
+     * plus l'ouverture est grande, plus le pas est rapide et moins il est précis.
+     * @param arbre true pour calculer le flocking avec l'arbre
+     * @param ouverture le critère d'ouverture (0 pour le calcul exact)
+     */
+    public void setArbre(boolean arbre, double ouverture) {
+        if (ouverture < 0) {
+            throw new IllegalArgumentException("Ouverture négative : " + ouverture);
+        }
+        this.arbre = arbre ? new ArbreBoids() : null;
+        this.ouverture = ouverture;
+    }
+
+    /**
+     * @return true si le flocking est calculé avec l'arbre
+     */
+    public boolean isArbre() {
+        return arbre != null;
+    }
+
+    /**
+     * @return le critère d'ouverture de l'arbre
+     */
+    public double getOuverture() {
+        return ouverture;
+    }
+
+    /**
+     * Active les listes de voisins de Verlet : chaque boid garde la liste des boids à moins de
+     * rayonVision + peau, et les lois du flocking ne parcourent que cette liste. Les listes ne
+     * sont reconstruites que lorsqu'un boid s'est déplacé de plus de peau / 2, ou que des boids
+     * sont nés ou ont disparu : une grande peau les reconstruit moins souvent mais les allonge.
+     * Les forces sont exactement celles du parcours de tous les boids. L'arbre
+     * ({@link #setArbre}), s'il est actif, passe avant les listes.
+     * @param actif true pour utiliser les listes
+     * @param peau la marge ajoutée au rayon de vision
+     */
+    public void setListesVoisins(boolean actif, double peau) {
+        if (peau < 0) {
+            throw new IllegalArgumentException("Peau négative : " + peau);
+        }
+        this.voisins = actif ? new VoisinsBoids(peau) : null;
+    }
+
+    /**
+     * @return la peau des listes de voisins, ou -1 si elles ne sont pas utilisées
+     */
+    public double getPeau() {
+        return voisins == null ? -1 : voisins.getPeau();
+    }
+
+    /**
+     * @return le nombre de constructions des listes de voisins (0 si elles ne sont pas utilisées)
+     */
+    public long getReconstructions() {
+        return voisins == null ? 0 : voisins.getReconstructions();
+    }
+
+    /**
+     * Active le tri périodique des boids dans l'ordre de Morton de leur position. Avec les
+     * naissances ajoutées en fin de liste et les retraits, l'ordre de la liste n'a vite plus
+     * rien à voir avec les positions, et les parcours de voisins sautent partout en mémoire ;
+     * après le tri, des voisins dans l'espace sont voisins dans la liste (et, une fois les
+     * objets recopiés par le ramasse-miettes, en mémoire). Les identifiants des boids ne
+     * changent pas ; les listes de voisins, indexées par rang, sont reconstruites au pas suivant.
+     * Le tri change l'ordre des calculs (et des tirages) : la simulation reste reproductible,
+     * mais diffère de celle sans tri.
+     * @param periode le nombre d'étapes entre deux tris (0 pour ne jamais trier, par défaut)
+     */
+    public void setTriMorton(int periode) {
+        if (periode < 0) {
+            throw new IllegalArgumentException("Période de tri négative : " + periode);
+        }
+        this.periodeTri = periode;
+        this.etapesDepuisTri = 0;
+    }
+
+    /**
+     * @return le nombre d'étapes entre deux tris dans l'ordre de Morton (0 si les boids ne sont pas triés)
+     */
+    public int getPeriodeTri() {
+        return periodeTri;
+    }
+
+    /**
+     * Trie les boids dans l'ordre de Morton si la période est écoulée (à appeler en début
+     * d'étape, avant tout calcul indexé par rang).
+     */
+    protected void ordonner() {
+        if (periodeTri == 0 || ++etapesDepuisTri < periodeTri) return;
+        etapesDepuisTri = 0;
+        if (tri == null) tri = new TriMorton();
+        tri.trier(boids, width, height);
+    }
+
+    /**
+     * Choisit les boids à calculer à ce pas (niveaux de détail).
+     * @param cibles les systèmes dont la présence à portée oblige à calculer un boid (menaces ou proies)
+     * @param portee la portée à laquelle ces systèmes sont perçus
+     * @return pour chaque boid true s'il faut le calculer, ou null si les niveaux de détail
+     *         sont désactivés (tous les boids sont calculés)
+     */
+    protected boolean[] choisirCalculs(List<BoidSystem> cibles, double portee) {
+        nbCandidats = boids.size();
+        if (candidats.length < nbCandidats) candidats = new int[nbCandidats];
+        Arrays.fill(candidats, 0, nbCandidats, 0);
+        if (periodeDetail == 1) {
+            calcules = boids.size();
+            return null;
+        }
+        int k = (int) Math.min(periodeDetail, Math.max(1, Math.sqrt(toleranceDetail / Fmax) / pas));
+        double vitesseAutres = Vmax;
+        List<List<Boid>> listes = new ArrayList<>();
+        listes.add(boids);
+        for (BoidSystem sys : cibles) {
+            vitesseAutres = Math.max(vitesseAutres, sys.Vmax);
+            listes.add(sys.boids);
+        }
+        // Marge d'un pas : un boid jugé isolé ne peut pas être rejoint avant le pas suivant
+        double marge = pas * (Vmax + vitesseAutres);
+        double distanceVoisins = Math.max(rayonVision, distanceSep) + marge;
+        double distanceCibles = portee + marge;
+        double taille = Math.max(distanceVoisins, distanceCibles);
+        // Les distances suivent le pas : une grille un peu trop grande reste bonne
+        if (grille == null || grille.getTaille() < taille || grille.getTaille() > taille * (1 + TOLERANCE_GRILLE)) {
+            grille = new GrilleBoids(width, height, taille * (1 + TOLERANCE_GRILLE / 2));
+        }
+        grille.remplir(listes);
+
+        boolean[] calculs = new boolean[boids.size()];
+        calcules = 0;
+        for (int i = 0; i < boids.size(); i++) {
+            Boid b = boids.get(i);
+            int voisins = grille.voisinage(b, distanceVoisins, distanceCibles, boids.size(), k);
+            candidats[i] += grille.getExamines();
+            int periode = voisins < 0 ? 1 : Math.max(1, k / (1 + voisins));
+            b.attente = Math.min(b.attente, periode - 1);
+            if (b.attente > 0 && b.forceTenue != null) {
+                b.attente--;
+            } else {
+                b.attente = periode - 1;
+                calculs[i] = true;
+            }
+            if (calculs[i]) calcules++;
+        }
+        return calculs;
+    }
+
+    /**
+     * Ajoute des voisins candidats à ceux qu'examine le boid i pendant le pas courant
+     * (boids d'autres systèmes parcourus par la fuite ou la chasse).
+     */
+    protected final void ajouterCandidats(int i, int n) {
+        candidats[i] += n;
+    }
+
+    /**
+     * Enregistre dans les mesures, boid par boid, les voisins candidats réellement examinés
+     * pendant le pas : cases de la grille des niveaux de détail, boids de la liste de Verlet
+     * (ou de tout le système), nœuds et feuilles de l'arbre, boids des autres systèmes.
+     * Un boid non calculé n'a examiné que les cases de la grille.
+     */
+    protected void noterCandidats() {
+        if (mesures == null) return;
+        for (int i = 0; i < nbCandidats; i++) {
+            mesures.noterCandidats(candidats[i], 1);
+        }
+    }
+
+    /**
+     * Complète les forces des boids non calculés par la force qu'ils gardent, et retient celle
+     * des boids calculés.
+     * @param accelerations les forces (null pour les boids non calculés)
+     * @param calculs le résultat de {@link #choisirCalculs}, ou null
+     */
+    protected void tenirForces(List<Vecteur2D> accelerations, boolean[] calculs) {
+        if (calculs == null) return;
+        for (int i = 0; i < boids.size(); i++) {
+            Boid b = boids.get(i);
+            if (calculs[i]) {
+                b.forceTenue = accelerations.get(i);
+            } else {
+                accelerations.set(i, b.forceTenue);
+            }
+        }
+    }
+
+    /**
+     * @return les mesures du système, ou null si elles ne sont pas activées
+     */
+    public MesuresSysteme getMesures() {
+        return mesures;
+    }
+
+    /**
+     * @param mesures les mesures à alimenter (null pour les désactiver)
+     */
+    public void setMesures(MesuresSysteme mesures) {
+        this.mesures = mesures;
+    }
+
+    /**
+     * @return la taille en octets de l'état écrit par {@link #ecrireEtat(ByteBuffer)}
+     */
+    public int tailleInstantane() {
+        return 8 * 8 + 2 * 4 + 8 + 4 + 3 * 4 + 2 * 8 + 4 + 8 + 1 + 8 + 8 + 2 * 4 + 3 * 8 + 4 + boids.size() * Boid.TAILLE_INSTANTANE;
+    }
+
+    /**
+     * Écrit l'état complet du système : paramètres, état du générateur, compteur d'identifiants,
+     * intégration, niveaux de détail, arbre, listes de voisins, tri, naissances, morts et captures
+     * cumulées, et boids.
+     * @param out le tampon de destination
+     */
+    public void ecrireEtat(ByteBuffer out) {
+        out.putDouble(rayonVision).putDouble(distanceSep).putDouble(Vmax).putDouble(Fmax);
+        out.putDouble(angleVision).putDouble(poiDECohesion).putDouble(poiDEAlignement).putDouble(poiDESeparation);
+        out.putInt(width).putInt(height);
+        out.putLong(alea.getEtat());
+        out.putInt(prochainId);
+        out.putInt(integrateur.ordinal()).putInt(pasMax).putInt(pas);
+        out.putDouble(vitesseObservee).putDouble(accelerationObservee);
+        out.putInt(periodeDetail).putDouble(toleranceDetail);
+        out.put((byte) (arbre != null ? 1 : 0)).putDouble(ouverture);
+        out.putDouble(getPeau());
+        out.putInt(periodeTri).putInt(etapesDepuisTri);
+        out.putLong(naissances).putLong(morts).putLong(captures);
+        out.putInt(boids.size());
+        for (Boid b : boids) {
+            b.ecrire(out);
+        }
+    }
+
+    /**
+     * Remplace l'état du système par celui écrit par {@link #ecrireEtat(ByteBuffer)}.
+     * @param in le tampon source
+     */
+    public void lireEtat(ByteBuffer in) {
+        rayonVision = in.getDouble();
+        distanceSep = in.getDouble();
+        Vmax = in.getDouble();
+        Fmax = in.getDouble();
+        angleVision = in.getDouble();
+        poiDECohesion = in.getDouble();
+        poiDEAlignement = in.getDouble();
+        poiDESeparation = in.getDouble();
+        width = in.getInt();
+        height = in.getInt();
+        alea.setEtat(in.getLong());
+        prochainId = in.getInt();
+        integrateur = Integrateur.values()[in.getInt()];
+        pasMax = in.getInt();
+        pas = in.getInt();
+        vitesseObservee = in.getDouble();
+        accelerationObservee = in.getDouble();
+        periodeDetail = in.getInt();
+        toleranceDetail = in.getDouble();
+        grille = null;
+        arbre = in.get() != 0 ? new ArbreBoids() : null;
+        ouverture = in.getDouble();
+        double peau = in.getDouble();
+        voisins = peau < 0 ? null : new VoisinsBoids(peau);     // listes reconstruites au premier pas
+        periodeTri = in.getInt();
+        etapesDepuisTri = in.getInt();
+        naissances = in.getLong();
+        morts = in.getLong();
+        captures = in.getLong();
+        int n = in.getInt();
+        boids.clear();
+        for (int i = 0; i < n; i++) {
+            boids.add(Boid.lire(in));
+        }
+    }
+
     /**
      * @param others la liste des autres systèmes
      */
@@ -118,15 +599,114 @@ public abstract class BoidSystem {
 
     
     /**
-     * Méthode pour mettre à jour tous les boids avec leurs accélérations respectives
+     * Forces de flocking de chaque boid : cohésion, alignement et séparation, pondérées.
+     * @param isoles si non null, reçoit pour chaque boid true s'il n'a pas de voisin (cohésion quasi nulle)
+     * @return la force de chaque boid, dans l'ordre de la liste
+     */
+    protected List<Vecteur2D> flocking(boolean[] isoles) {
+        return flocking(isoles, null);
+    }
+
+    /**
+     * Forces de flocking des boids à calculer.
+     * @param isoles si non null, reçoit pour chaque boid calculé true s'il n'a pas de voisin
+     * @param calculs les boids à calculer (null pour tous), voir {@link #choisirCalculs}
+     * @return la force de chaque boid, dans l'ordre de la liste (null pour un boid non calculé)
+     */
+    protected List<Vecteur2D> flocking(boolean[] isoles, boolean[] calculs) {
+        List<Vecteur2D> forces = new ArrayList<>(boids.size());
+        if (arbre != null) {
+            arbre.construire(boids);
+        } else if (voisins != null) {
+            voisins.preparer(boids, Math.max(rayonVision, distanceSep), width, height);
+        }
+        for (int i = 0; i < boids.size(); i++) {
+            if (calculs != null && !calculs[i]) {
+                forces.add(null);
+                continue;
+            }
+            Boid b = boids.get(i);
+            Vecteur2D cohesion;
+            Vecteur2D alignment;
+            Vecteur2D separation;
+            if (arbre != null) {
+                arbre.voir(b, rayonVision, angleVision, ouverture);
+                arbre.separer(b, distanceSep, angleVision);
+                cohesion = arbre.cohesion(b).mult(poiDECohesion);
+                alignment = arbre.alignement().mult(poiDEAlignement);
+                separation = arbre.separation().mult(poiDESeparation);
+                candidats[i] += arbre.getExamines();
+            } else {
+                List<Boid> proches = voisins != null ? voisins.voisins(i) : boids;
+                candidats[i] += voisins != null ? proches.size() : proches.size() - 1;
+                cohesion = LaLoi.cohesion(b, proches, rayonVision, angleVision).mult(poiDECohesion);
+                alignment = LaLoi.alignment(b, proches, rayonVision, angleVision).mult(poiDEAlignement);
+                separation = LaLoi.separation(b, proches, distanceSep, angleVision).mult(poiDESeparation);
+            }
+            if (isoles != null) {
+                isoles[i] = cohesion.norm() < 0.01;
+            }
+            forces.add(cohesion.add(alignment).add(separation));
+        }
+        return forces;
+    }
+
+    /**
+     * Début d'une phase de {@link #step()} : événement JFR, qui ne coûte rien si
+     * l'enregistrement de cet événement n'est pas activé.
+     * @return l'événement à terminer par {@link #finPhase}
+     */
+    protected static PhaseJfr debutPhase() {
+        PhaseJfr jfr = new PhaseJfr();
+        jfr.begin();
+        return jfr;
+    }
+
+    /**
+     * Fin d'une phase de {@link #step()}.
+     * @param jfr l'événement rendu par {@link #debutPhase()}
+     * @param phase le nom de la phase
+     * @param autres le nombre de boids des autres systèmes examinés par chaque boid
+     * @param naissances les naissances de la phase
+     * @param morts les morts de la phase
+     * @param captures les captures de la phase
+     */
+    protected void finPhase(PhaseJfr jfr, String phase, int autres, int naissances, int morts, int captures) {
+        jfr.end();
+        if (jfr.shouldCommit()) {
+            jfr.systeme = getNom();
+            jfr.phase = phase;
+            jfr.boids = boids.size();
+            jfr.autres = autres;
+            jfr.naissances = naissances;
+            jfr.morts = morts;
+            jfr.captures = captures;
+            jfr.commit();
+        }
+    }
+
+    /**
+     * Méthode pour mettre à jour tous les boids avec leurs accélérations respectives,
+     * sur la durée du pas courant
      * @param accelerations liste des vecteurs d'accélération (un par boid)
      */
     protected void màjBoids(List<Vecteur2D> accelerations) {
+        double vitesse = 0;
+        double acceleration = 0;
         for (int i = 0; i < boids.size(); i++) {
             Boid b = boids.get(i);
             Vecteur2D acc = accelerations.get(i);
             b.limiterForce(acc);
-            b.màj(width, height);
+            if (pasMax > 1) {
+                acceleration = Math.max(acceleration, Math.min(acc.norm(), b.Fmax));
+            }
+            b.màj(width, height, pas, integrateur);
+            if (pasMax > 1) {
+                vitesse = Math.max(vitesse, b.vitesse.norm());
+            }
         }
+        // Sans pas adaptatif, rien n'est observé
+        vitesseObservee = pasMax > 1 ? vitesse : -1;
+        accelerationObservee = pasMax > 1 ? acceleration : -1;
     }
 }
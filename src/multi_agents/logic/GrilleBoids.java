@@ -0,0 +1,154 @@
+package multi_agents.logic;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Grille uniforme des boids d'un ou plusieurs systèmes, reconstruite à chaque pas (tri par
+ * dénombrement) : elle dit, en ne regardant que les cases voisines de la sienne, combien de
+ * boids un boid a à moins d'un côté de case (niveaux de détail), ou lesquels (listes de voisins).
+ * Les boids de la case k sont boids[debut[k]] ... boids[debut[k + 1] - 1].
+ */
+final class GrilleBoids {
+    private final double taille;
+    private final int colonnes;
+    private final int lignes;
+    private final int[] debut;
+    private Boid[] boids = new Boid[0];
+    private int[] rangs = new int[0];       // rang de boids[a] dans la suite des listes remplies
+    private int[] cases = new int[0];
+    private int examines;       // boids examinés par le dernier appel à voisinage
+
+    /**
+     * @param width la largeur de la zone
+     * @param height la hauteur de la zone
+     * @param taille le côté d'une case
+     */
+    GrilleBoids(int width, int height, double taille) {
+        this.taille = taille;
+        this.colonnes = Math.max(1, (int) Math.ceil(width / taille) + 1);
+        this.lignes = Math.max(1, (int) Math.ceil(height / taille) + 1);
+        this.debut = new int[colonnes * lignes + 1];
+    }
+
+    /**
+     * @return le côté d'une case
+     */
+    double getTaille() {
+        return taille;
+    }
+
+    /**
+     * Range les boids des listes données (qui ne changent pas jusqu'au prochain remplissage).
+     */
+    void remplir(List<List<Boid>> listes) {
+        int n = 0;
+        for (List<Boid> l : listes) n += l.size();
+        if (boids.length < n) {
+            boids = new Boid[n];
+            rangs = new int[n];
+            cases = new int[n];
+        }
+        Arrays.fill(debut, 0);
+        int i = 0;
+        for (List<Boid> l : listes) {
+            for (Boid b : l) {
+                int k = caseDe(b);
+                cases[i++] = k;
+                debut[k + 1]++;
+            }
+        }
+        for (int k = 0; k < colonnes * lignes; k++) {
+            debut[k + 1] += debut[k];
+        }
+        i = 0;
+        for (List<Boid> l : listes) {
+            for (Boid b : l) {
+                int a = debut[cases[i]]++;
+                boids[a] = b;
+                rangs[a] = i++;
+            }
+        }
+        // Le remplissage a décalé chaque début sur la case suivante
+        System.arraycopy(debut, 0, debut, 1, colonnes * lignes);
+        debut[0] = 0;
+    }
+
+    /**
+     * @return le nombre de boids examinés par le dernier appel à {@link #voisinage}
+     */
+    int getExamines() {
+        return examines;
+    }
+
+    /**
+     * Voisinage de b, pour les niveaux de détail. Les distances ne dépassent pas le côté d'une
+     * case : les boids cherchés sont forcément dans la case de b ou l'une des 8 cases voisines.
+     * @param distanceVoisins portée des congénères (boids de rang inférieur à premiereCible)
+     * @param distanceCibles portée des boids des autres listes (menaces ou proies)
+     * @param premiereCible rang du premier boid qui n'est pas un congénère
+     * @param max nombre de congénères au-delà duquel on ne compte plus
+     * @return -1 si une cible est à portée, sinon le nombre de congénères à portée (au plus max)
+     */
+    int voisinage(Boid b, double distanceVoisins, double distanceCibles, int premiereCible, int max) {
+        int cx = colonne(b);
+        int cy = ligne(b);
+        double v2 = distanceVoisins * distanceVoisins;
+        double c2 = distanceCibles * distanceCibles;
+        int voisins = 0;
+        examines = 0;
+        for (int y = Math.max(0, cy - 1); y <= Math.min(lignes - 1, cy + 1); y++) {
+            int k0 = y * colonnes + Math.max(0, cx - 1);
+            int k1 = y * colonnes + Math.min(colonnes - 1, cx + 1);
+            for (int j = debut[k0]; j < debut[k1 + 1]; j++) {
+                examines++;
+                Boid o = boids[j];
+                double dx = o.position.x - b.position.x;
+                double dy = o.position.y - b.position.y;
+                double d2 = dx * dx + dy * dy;
+                if (rangs[j] >= premiereCible) {
+                    if (d2 < c2) return -1;
+                } else if (o != b && d2 < v2 && voisins < max) {
+                    voisins++;
+                }
+            }
+        }
+        return voisins;
+    }
+
+    /**
+     * Écrit dans dest les rangs (dans la suite des listes remplies) des autres boids à moins
+     * d'un côté de case de b, dans l'ordre des cases.
+     * @param dest de quoi recevoir tous les boids remplis
+     * @return le nombre de rangs écrits
+     */
+    int proches(Boid b, int[] dest) {
+        int cx = colonne(b);
+        int cy = ligne(b);
+        double t2 = taille * taille;
+        int total = 0;
+        for (int y = Math.max(0, cy - 1); y <= Math.min(lignes - 1, cy + 1); y++) {
+            int k0 = y * colonnes + Math.max(0, cx - 1);
+            int k1 = y * colonnes + Math.min(colonnes - 1, cx + 1);
+            for (int j = debut[k0]; j < debut[k1 + 1]; j++) {
+                Boid o = boids[j];
+                double dx = o.position.x - b.position.x;
+                double dy = o.position.y - b.position.y;
+                if (o != b && dx * dx + dy * dy < t2) dest[total++] = rangs[j];
+            }
+        }
+        return total;
+    }
+
+    private int caseDe(Boid b) {
+        return ligne(b) * colonnes + colonne(b);
+    }
+
+    private int colonne(Boid b) {
+        return Math.min(colonnes - 1, Math.max(0, (int) (b.position.x / taille)));
+    }
+
+    private int ligne(Boid b) {
+        return Math.min(lignes - 1, Math.max(0, (int) (b.position.y / taille)));
+    }
+}
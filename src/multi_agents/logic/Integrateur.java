@@ -0,0 +1,16 @@
+package multi_agents.logic;
+
+/**
+ * Schéma d'intégration du mouvement des boids sur un pas de durée dt.
+ * Dans les deux cas la vitesse devient v' = limite(v + a dt, Vmax) ; ils diffèrent par la
+ * vitesse avec laquelle on avance la position.
+ */
+public enum Integrateur {
+    /** Euler semi-implicite : x' = x + v' dt (le schéma historique des boids). */
+    EULER,
+    /**
+     * Verlet (vitesse) à force constante sur le pas : x' = x + (v + v') dt / 2, qui reste
+     * précis au second ordre quand dt grandit.
+     */
+    VERLET
+}
@@ -124,13 +124,15 @@ public class LaLoi {
     }
 
     /**
-     * Comportement de vagabondage : le boid explore aléatoirement
+     * Comportement de vagabondage : le boid explore aléatoirement, dans une direction tirée
+     * par le générateur du système (simulation reproductible)
      * @param b le boid qu'on considère
-     * @param VagabondStrength l'intensité du vagabondage 
+     * @param VagabondStrength l'intensité du vagabondage
+     * @param alea le générateur aléatoire
      * @return un vecteur aléatoire pour l'exploration
      */
-    public static Vecteur2D Vagabond(Boid b, double VagabondStrength) {
-        double theta = Math.random() * 2 * Math.PI;
+    public static Vecteur2D Vagabond(Boid b, double VagabondStrength, Alea alea) {
+        double theta = alea.nextDouble() * 2 * Math.PI;
         Vecteur2D randomDir = new Vecteur2D(Math.cos(theta), Math.sin(theta));
         return randomDir.mult(VagabondStrength);
     }
@@ -1,5 +1,7 @@
 package multi_agents.logic;
 
+import multi_agents.mesures.PhaseJfr;
+
 import java.util.ArrayList;
 import java.util.List;
 
@@ -37,26 +39,70 @@ public class PredateurBoidSystem extends BoidSystem {
      * Effectue une étape de simulation pour tous les prédateurs
      * Les prédateurs perdent de l'énergie plus rapidement que les proies (métabolisme actif)
      * Manger une proie restaure leur énergie. Les prédateurs affamés meurent.
+     * Chaque phase (métabolisme, flocking, chasse, intégration, captures et morts) est une
+     * méthode, mesurée par un événement JFR.
      */
     @Override
     public void step() {
-        List<Vecteur2D> accelerations = new ArrayList<>();
-        List<Boid> proieAattraper = new ArrayList<>();
-        
+        choisirPas();
+        ordonner();
+        PhaseJfr phase = debutPhase();
+        // Métabolisme : les prédateurs perdent de l'énergie (plus vite que les proies), selon la durée du pas
         for (Boid predateur : boids) {
-            // Métabolisme : les prédateurs perdent de l'énergie (plus vite que les proies)
-            predateur.fatigue(0.5);
-            
-            // Les trois règles de flocking
-            Vecteur2D cohesion = LaLoi.cohesion(predateur, boids, rayonVision, angleVision);
-            Vecteur2D alignment = LaLoi.alignment(predateur, boids, rayonVision, angleVision);
-            Vecteur2D separation = LaLoi.separation(predateur, boids, distanceSep, angleVision);
+            predateur.fatigue(0.5 * pas);
+        }
+        finPhase(phase, "metabolisme", 0, 0, 0, 0);
+
+        phase = debutPhase();
+        int proies = 0;         // proies examinées par chaque prédateur
+        List<BoidSystem> systemesProies = new ArrayList<>();
+        for (BoidSystem sys : interGroups) {
+            if (sys.estproie()) {
+                proies += sys.size();
+                systemesProies.add(sys);
+            }
+        }
+        // Les proies sont vues (et poursuivies) jusqu'à deux fois le rayon de vision
+        boolean[] calculs = choisirCalculs(systemesProies, rayonVision * 2);
+        List<Vecteur2D> accelerations = flocking(null, calculs);
+        finPhase(phase, "flocking", 0, 0, 0, 0);
+
+        phase = debutPhase();
+        List<Boid> proieAattraper = chasse(accelerations, calculs);
+        tenirForces(accelerations, calculs);
+        finPhase(phase, "chasse", proies, 0, 0, 0);
+
+        // On met à jour tous les boids
+        phase = debutPhase();
+        màjBoids(accelerations);
+        finPhase(phase, "integration", 0, 0, 0, 0);
+
+        phase = debutPhase();
+        int avant = boids.size();
+        int captures = capturesEtMorts(proieAattraper);
+        int morts = avant - boids.size();
+        finPhase(phase, "captures-morts", 0, 0, morts, captures);
+        this.captures += captures;
+        this.morts += morts;
 
-            cohesion = cohesion.mult(poiDECohesion);
-            alignment = alignment.mult(poiDEAlignement);
-            separation = separation.mult(poiDESeparation);
+        if (mesures != null) {
+            mesures.noterCaptures(captures);
+            mesures.noterMorts(morts);
+            noterCandidats();
+        }
+    }
 
-            // Comportement de chasse via interGroups
+    /**
+     * Comportement de chasse via interGroups : chaque prédateur poursuit la proie la plus
+     * proche (force ajoutée à son flocking) et la capture s'il l'atteint.
+     * @param calculs les prédateurs à calculer (null pour tous)
+     * @return les proies capturées
+     */
+    private List<Boid> chasse(List<Vecteur2D> accelerations, boolean[] calculs) {
+        List<Boid> proieAattraper = new ArrayList<>();
+        for (int i = 0; i < boids.size(); i++) {
+            if (calculs != null && !calculs[i]) continue;
+            Boid predateur = boids.get(i);
             Vecteur2D pursuit = new Vecteur2D(0, 0);
             Boid proieProche = null;
             double minDist = Double.MAX_VALUE;
@@ -64,6 +110,7 @@ public class PredateurBoidSystem extends BoidSystem {
             // On parcourt tous les autres systèmes pour trouver des proies
             for (BoidSystem sys : interGroups) {
                 if (sys.estproie()) {
+                    ajouterCandidats(i, sys.size());
                     for (Boid proie : sys.getBoids()) {
                         double dist = predateur.position.distance(proie.position);
                         if (dist < minDist) {
@@ -85,22 +132,26 @@ public class PredateurBoidSystem extends BoidSystem {
                 }
             }
             // On combine toutes les forces
-            Vecteur2D acc = cohesion.add(alignment).add(separation).add(pursuit);
-            accelerations.add(acc);
+            accelerations.set(i, accelerations.get(i).add(pursuit));
         }
-        // On retire les proies capturées de leurs systèmes
+        return proieAattraper;
+    }
+
+    /**
+     * Retire les proies capturées de leurs systèmes et les prédateurs morts (énergie épuisée).
+     * @return le nombre de proies effectivement retirées
+     */
+    private int capturesEtMorts(List<Boid> proieAattraper) {
+        int captures = 0;
         for (Boid proie : proieAattraper) {
             for (BoidSystem sys : interGroups) {
-                if (sys.estproie()) {
-                    sys.getBoids().remove(proie);
+                if (sys.estproie() && sys.getBoids().remove(proie)) {
+                    captures++;
                 }
             }
         }
-        
-        // On met à jour tous les boids
-        màjBoids(accelerations);
-        // Retirer les prédateurs morts (énergie épuisée)
         boids.removeIf(predateur -> !predateur.estvivant());
+        return captures;
     }
     
     /**
@@ -1,5 +1,7 @@
 package multi_agents.logic;
 
+import multi_agents.mesures.PhaseJfr;
+
 import java.util.ArrayList;
 import java.util.List;
 
@@ -39,21 +41,68 @@ public class ProieBoidSystem extends BoidSystem {
      * Les proies perdent de l'énergie au fil du temps (métabolisme)
      * Si une proie survit assez longtemps et a assez d'énergie, elle se reproduit
      * Les proies mortes (énergie épuisée) sont retirées du système
+     * Chaque phase (flocking, fuite, métabolisme, intégration, naissances et morts) est une
+     * méthode, mesurée par un événement JFR. Le flocking et la fuite ne tirent rien : le
+     * métabolisme fait, proie par proie, les tirages de la reproduction puis celui du
+     * vagabondage, dans le même ordre que lorsque tout le pas tenait en une boucle.
      */
     @Override
     public void step() {
-        List<Vecteur2D> accelerations = new ArrayList<>();
+        choisirPas();
+        ordonner();
+        PhaseJfr phase = debutPhase();
+        boolean[] calculs = choisirCalculs(predateurs(), rayonVision);
+        boolean[] isoles = new boolean[boids.size()];
+        List<Vecteur2D> accelerations = flocking(isoles, calculs);
+        finPhase(phase, "flocking", 0, 0, 0, 0);
+
+        phase = debutPhase();
+        int predateurs = fuite(accelerations, calculs);
+        finPhase(phase, "fuite", predateurs, 0, 0, 0);
+
+        phase = debutPhase();
+        List<Boid> newBoids = metabolisme(accelerations, isoles, calculs);
+        tenirForces(accelerations, calculs);
+        finPhase(phase, "metabolisme", 0, 0, 0, 0);
+
+        // On met à jour tous les boids avec la méthode utilitaire
+        phase = debutPhase();
+        màjBoids(accelerations);
+        finPhase(phase, "integration", 0, 0, 0, 0);
+
+        phase = debutPhase();
+        int morts = naissancesEtMorts(newBoids);
+        finPhase(phase, "naissances-morts", 0, newBoids.size(), morts, 0);
+        naissances += newBoids.size();
+        this.morts += morts;
+
+        if (mesures != null) {
+            mesures.noterNaissances(newBoids.size());
+            mesures.noterMorts(morts);
+            noterCandidats();
+        }
+    }
+
+    /**
+     * Métabolisme : toutes les proies perdent de l'énergie, et celles qui en ont assez
+     * peuvent se reproduire (pertes et chances proportionnées à la durée du pas). Les proies
+     * isolées vagabondent (force ajoutée à leur flocking), juste après leurs propres tirages
+     * de reproduction.
+     * @param calculs les proies à calculer (null pour toutes)
+     * @return les nouveaux nés (ajoutés au système à la fin du pas)
+     */
+    private List<Boid> metabolisme(List<Vecteur2D> accelerations, boolean[] isoles, boolean[] calculs) {
         List<Boid> newBoids = new ArrayList<>();
-        
-        for (Boid boid : boids) {
-            // Métabolisme : toutes les proies perdent de l'énergie
-            boid.fatigue(0.1);
+        for (int i = 0; i < boids.size(); i++) {
+            Boid boid = boids.get(i);
+            boid.fatigue(0.1 * pas);
 
             // Reproduction : si la proie a assez d'énergie et d'âge
             // et que la chance de retrouver son amour eternel le permet (7% par frame)
-            if (boid.getenergie() > 80 && boid.getAge() > 50 && Math.random() < 0.07) {
+            if (boid.getenergie() > 80 && boid.getAge() > 50 && alea.nextDouble() < parPas(0.07)) {
                 // Créer un nouveau boid à proximité
-                Boid bebe = new Boid((boid.position.x + Math.random() * 10), (boid.position.y + Math.random()  * 10));
+                Boid bebe = new Boid((boid.position.x + alea.nextDouble() * 10), (boid.position.y + alea.nextDouble() * 10), alea);
+                bebe.id = prochainId++;
                 // Hériter des paramètres du parent
                 bebe.Vmax = boid.Vmax;
                 bebe.Fmax = boid.Fmax;
@@ -61,22 +110,37 @@ public class ProieBoidSystem extends BoidSystem {
                 // Le parent perd de l'énergie pour la reproduction
                 boid.fatigue(30.0);
             }
-            
-            // On calcule les trois forces de flocking avec champ de vision
-            Vecteur2D cohesion = LaLoi.cohesion(boid, boids, rayonVision, angleVision);
-            Vecteur2D alignment = LaLoi.alignment(boid, boids, rayonVision, angleVision);
-            Vecteur2D separation = LaLoi.separation(boid, boids, distanceSep, angleVision);
 
-            cohesion = cohesion.mult(poiDECohesion);
-            alignment = alignment.mult(poiDEAlignement);
-            separation = separation.mult(poiDESeparation);
+            if (calculs != null && !calculs[i]) continue;
+            // Comportement de vagabondage si pas de voisins (exploration)
+            Vecteur2D Vagabond = new Vecteur2D(0, 0);
+            if (isoles[i]) { // Si pas de cohésion, le boid est seul
+                Vagabond = LaLoi.Vagabond(boid, VagabondWeight, alea);
+            }
+            accelerations.set(i, accelerations.get(i).add(Vagabond));
+        }
+        return newBoids;
+    }
 
-            // Comportement de fuite des prédateurs (version interGroups)
+    /**
+     * Fuite des prédateurs (détectés via interGroups), ajoutée aux forces de flocking.
+     * @param calculs les proies à calculer (null pour toutes)
+     * @return le nombre de prédateurs examinés par chaque proie
+     */
+    private int fuite(List<Vecteur2D> accelerations, boolean[] calculs) {
+        int predateurs = 0;
+        for (BoidSystem sys : interGroups) {
+            if (sys.estpredateur()) predateurs += sys.size();
+        }
+        for (int i = 0; i < boids.size(); i++) {
+            if (calculs != null && !calculs[i]) continue;
+            Boid boid = boids.get(i);
             Vecteur2D fuite = new Vecteur2D(0, 0);
-            
+
             // On parcourt tous les autres systèmes pour détecter les prédateurs
             for (BoidSystem sys : interGroups) {
                 if (sys.estpredateur()) {
+                    ajouterCandidats(i, sys.size());
                     for (Boid predateur : sys.getBoids()) {
                         double dist = boid.position.distance(predateur.position);
                         // Si un prédateur est dans le rayon de détection
@@ -87,25 +151,32 @@ public class ProieBoidSystem extends BoidSystem {
                     }
                 }
             }
-
-            // Comportement de vagabondage si pas de voisins (exploration)
-            Vecteur2D Vagabond = new Vecteur2D(0, 0);
-            if (cohesion.norm() < 0.01) { // Si pas de cohésion, le boid est seul
-                Vagabond = LaLoi.Vagabond(boid, VagabondWeight);
-            }
             // On combine toutes les forces
-            Vecteur2D acc = cohesion.add(alignment).add(separation).add(fuite).add(Vagabond);
-            accelerations.add(acc);
+            accelerations.set(i, accelerations.get(i).add(fuite));
         }
-        
-        // On met à jour tous les boids avec la méthode utilitaire
-        màjBoids(accelerations);
-        
-        // Ajouter les nouveaux boids nés
+        return predateurs;
+    }
+
+    /**
+     * @return les systèmes de prédateurs parmi interGroups
+     */
+    private List<BoidSystem> predateurs() {
+        List<BoidSystem> predateurs = new ArrayList<>();
+        for (BoidSystem sys : interGroups) {
+            if (sys.estpredateur()) predateurs.add(sys);
+        }
+        return predateurs;
+    }
+
+    /**
+     * Ajoute les nouveaux nés et retire les proies mortes (énergie épuisée).
+     * @return le nombre de proies mortes
+     */
+    private int naissancesEtMorts(List<Boid> newBoids) {
         boids.addAll(newBoids);
-        
-        // Retirer les boids morts (énergie épuisée)
+        int avant = boids.size();
         boids.removeIf(boid -> !boid.estvivant());
+        return avant - boids.size();
     }
     
     /**
@@ -0,0 +1,79 @@
+package multi_agents.logic;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Tri des boids d'un système selon l'ordre de Morton (courbe en Z) de leur position : des boids
+ * proches dans l'espace deviennent proches dans la liste. Les positions sont ramenées à 16 bits
+ * par axe, les bits des deux coordonnées entrelacés en une clé de 32 bits, et les clés triées
+ * par base (4 passes de 8 bits, tri stable en temps linéaire).
+ */
+final class TriMorton {
+    private int[] cles = new int[0];
+    private int[] indices = new int[0];
+    private int[] clesTri = new int[0];
+    private int[] indicesTri = new int[0];
+    private Boid[] copie = new Boid[0];
+    private final int[] compte = new int[257];
+
+    /**
+     * Range la liste dans l'ordre de Morton.
+     * @param boids les boids (réordonnés sur place)
+     * @param width la largeur de la zone
+     * @param height la hauteur de la zone
+     */
+    void trier(List<Boid> boids, int width, int height) {
+        int n = boids.size();
+        if (cles.length < n) {
+            cles = new int[n];
+            indices = new int[n];
+            clesTri = new int[n];
+            indicesTri = new int[n];
+            copie = new Boid[n];
+        }
+        double ex = 65535.0 / Math.max(width, 1);
+        double ey = 65535.0 / Math.max(height, 1);
+        for (int i = 0; i < n; i++) {
+            Boid b = boids.get(i);
+            copie[i] = b;
+            indices[i] = i;
+            int x = (int) Math.min(65535, Math.max(0, b.position.x * ex));
+            int y = (int) Math.min(65535, Math.max(0, b.position.y * ey));
+            cles[i] = entrelacer(x) | entrelacer(y) << 1;
+        }
+        for (int decalage = 0; decalage < 32; decalage += 8) {
+            Arrays.fill(compte, 0);
+            for (int i = 0; i < n; i++) {
+                compte[(cles[i] >>> decalage & 0xFF) + 1]++;
+            }
+            for (int c = 0; c < 256; c++) {
+                compte[c + 1] += compte[c];
+            }
+            for (int i = 0; i < n; i++) {
+                int p = compte[cles[i] >>> decalage & 0xFF]++;
+                clesTri[p] = cles[i];
+                indicesTri[p] = indices[i];
+            }
+            int[] t = cles;
+            cles = clesTri;
+            clesTri = t;
+            t = indices;
+            indices = indicesTri;
+            indicesTri = t;
+        }
+        for (int i = 0; i < n; i++) {
+            boids.set(i, copie[indices[i]]);
+            copie[indices[i]] = null;
+        }
+    }
+
+    /** @return les 16 bits de v écartés sur les bits pairs */
+    private static int entrelacer(int v) {
+        v = (v | v << 8) & 0x00FF00FF;
+        v = (v | v << 4) & 0x0F0F0F0F;
+        v = (v | v << 2) & 0x33333333;
+        v = (v | v << 1) & 0x55555555;
+        return v;
+    }
+}
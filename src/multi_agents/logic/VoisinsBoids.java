@@ -0,0 +1,143 @@
+package multi_agents.logic;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Listes de voisins (listes de Verlet) des boids d'un système. Chaque boid garde les numéros
+ * des boids à moins de rayon + peau au moment de la construction, rangés par ordre croissant
+ * dans un seul tableau : les voisins du boid i sont voisins[debut[i]] ... voisins[debut[i + 1] - 1].
+ * Tant qu'aucun boid ne s'est déplacé de plus d'une demi-peau depuis, deux boids à moins de
+ * rayon l'un de l'autre sont forcément dans leurs listes : les listes ne sont reconstruites
+ * (par une {@link GrilleBoids} de cases de côté rayon + peau) qu'à ce moment-là, ou quand la
+ * liste des boids a changé (naissances, morts, captures).
+ */
+final class VoisinsBoids {
+    private final double peau;
+    private double rayon = -1;
+    private int n;
+    private Boid[] boids = new Boid[0];     // les boids à la construction, dans l'ordre de la liste
+    private double[] x0 = new double[0];    // leurs positions à la construction
+    private double[] y0 = new double[0];
+    private int[] debut = new int[1];
+    private int[] voisins = new int[0];
+    private long reconstructions;
+
+    private GrilleBoids grille;             // grille de construction
+    private int[] proches = new int[0];     // voisins d'un boid, avant leur tri
+
+    private final Vue vue = new Vue();
+
+    /**
+     * @param peau la marge ajoutée au rayon des listes
+     */
+    VoisinsBoids(double peau) {
+        this.peau = peau;
+    }
+
+    /**
+     * @return la marge ajoutée au rayon des listes
+     */
+    double getPeau() {
+        return peau;
+    }
+
+    /**
+     * @return le nombre de constructions des listes depuis la création
+     */
+    long getReconstructions() {
+        return reconstructions;
+    }
+
+    /**
+     * Reconstruit les listes si elles ne sont plus sûres pour ce rayon.
+     * @param liste les boids du système
+     * @param rayon la plus grande distance d'interaction
+     * @param width la largeur de la zone
+     * @param height la hauteur de la zone
+     */
+    void preparer(List<Boid> liste, double rayon, int width, int height) {
+        if (rayon != this.rayon || aChange(liste) || aBouge()) {
+            construire(liste, rayon, width, height);
+        }
+    }
+
+    /**
+     * @return les voisins du boid i (valable jusqu'à l'appel suivant), dans l'ordre de la liste
+     */
+    List<Boid> voisins(int i) {
+        vue.debut = debut[i];
+        vue.fin = debut[i + 1];
+        return vue;
+    }
+
+    private boolean aChange(List<Boid> liste) {
+        if (liste.size() != n) return true;
+        for (int i = 0; i < n; i++) {
+            if (liste.get(i) != boids[i]) return true;
+        }
+        return false;
+    }
+
+    private boolean aBouge() {
+        double limite = peau * peau / 4;
+        for (int i = 0; i < n; i++) {
+            double dx = boids[i].position.x - x0[i];
+            double dy = boids[i].position.y - y0[i];
+            if (dx * dx + dy * dy > limite) return true;
+        }
+        return false;
+    }
+
+    private void construire(List<Boid> liste, double rayon, int width, int height) {
+        this.rayon = rayon;
+        n = liste.size();
+        if (boids.length < n) {
+            boids = new Boid[n];
+            x0 = new double[n];
+            y0 = new double[n];
+            proches = new int[n];
+        }
+        if (debut.length < n + 1) debut = new int[n + 1];
+        double taille = rayon + peau;
+        if (grille == null || grille.getTaille() != taille) {
+            grille = new GrilleBoids(width, height, taille);
+        }
+        grille.remplir(Collections.singletonList(liste));
+
+        int total = 0;
+        for (int i = 0; i < n; i++) {
+            Boid b = liste.get(i);
+            boids[i] = b;
+            x0[i] = b.position.x;
+            y0[i] = b.position.y;
+            debut[i] = total;
+            int nb = grille.proches(b, proches);
+            if (total + nb > voisins.length) voisins = Arrays.copyOf(voisins, Math.max(16, Math.max(2 * total, total + nb)));
+            System.arraycopy(proches, 0, voisins, total, nb);
+            total += nb;
+            // Dans l'ordre de la liste, pour que les lois fassent leurs sommes dans le même ordre
+            Arrays.sort(voisins, debut[i], total);
+        }
+        debut[n] = total;
+        reconstructions++;
+    }
+
+    /** Vue sur la liste d'un boid, réutilisée d'un boid à l'autre (pas de copie) */
+    private final class Vue extends AbstractList<Boid> {
+        int debut;
+        int fin;
+
+        @Override
+        public Boid get(int k) {
+            return boids[voisins[debut + k]];
+        }
+
+        @Override
+        public int size() {
+            return fin - debut;
+        }
+    }
+}
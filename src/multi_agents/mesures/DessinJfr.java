@@ -0,0 +1,19 @@
+package multi_agents.mesures;
+
+import jdk.jfr.Category;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Événement Java Flight Recorder : un dessin complet d'un simulateur.
+ */
+@Name("multi_agents.Dessin")
+@Label("Dessin")
+@Category({"Simulation", "Affichage"})
+public class DessinJfr extends jdk.jfr.Event {
+    @Label("Simulateur")
+    public String simulateur;
+
+    @Label("Éléments graphiques")
+    public int elements;
+}
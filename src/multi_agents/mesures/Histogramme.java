@@ -0,0 +1,108 @@
+package multi_agents.mesures;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Histogramme de valeurs positives (durées en nanosecondes, effectifs...) à classes
+ * logarithmiques, dans l'esprit de HdrHistogram : chaque puissance de deux est découpée
+ * en 32 classes, soit une précision relative d'environ 3 % de 0 à Long.MAX_VALUE,
+ * avec un tableau fixe de moins de 2000 compteurs.
+ *
+ * L'enregistrement est sans verrou (incréments atomiques) : il peut être fait par le fil
+ * de la simulation pendant qu'un autre fil (JMX) lit les quantiles. Une lecture concurrente
+ * voit un état cohérent à quelques enregistrements près.
+ */
+public class Histogramme {
+    /** log2 du nombre de classes par puissance de deux. */
+    private static final int PRECISION = 5;
+    private static final int SOUS_CLASSES = 1 << PRECISION;
+
+    private final AtomicLongArray classes = new AtomicLongArray((64 - PRECISION) * SOUS_CLASSES);
+    private final LongAdder nombre = new LongAdder();
+    private final LongAdder somme = new LongAdder();
+    private final AtomicLong max = new AtomicLong();
+
+    /**
+     * Enregistre une valeur.
+     * @param valeur la valeur (les valeurs négatives comptent pour 0)
+     */
+    public void enregistrer(long valeur) {
+        enregistrer(valeur, 1);
+    }
+
+    /**
+     * Enregistre plusieurs fois la même valeur.
+     * @param valeur la valeur (les valeurs négatives comptent pour 0)
+     * @param fois le nombre d'occurrences
+     */
+    public void enregistrer(long valeur, long fois) {
+        if (fois <= 0) return;
+        long v = Math.max(0, valeur);
+        classes.addAndGet(classe(v), fois);
+        nombre.add(fois);
+        somme.add(v * fois);
+        if (v > max.get()) {
+            max.accumulateAndGet(v, Math::max);
+        }
+    }
+
+    /** @return le nombre de valeurs enregistrées */
+    public long getNombre() {
+        return nombre.sum();
+    }
+
+    /** @return la moyenne des valeurs enregistrées (0 s'il n'y en a pas) */
+    public double getMoyenne() {
+        long n = nombre.sum();
+        return n == 0 ? 0 : (double) somme.sum() / n;
+    }
+
+    /** @return la plus grande valeur enregistrée */
+    public long getMax() {
+        return max.get();
+    }
+
+    /**
+     * @param q le quantile voulu, entre 0 et 1 (0,99 pour le 99e centile)
+     * @return une valeur v telle qu'une proportion q des valeurs enregistrées est inférieure
+     *         ou égale à v (à la précision des classes près ; 0 s'il n'y a pas de valeur)
+     */
+    public long getQuantile(double q) {
+        long n = nombre.sum();
+        if (n == 0) return 0;
+        long rang = Math.max(1, (long) Math.ceil(q * n));
+        long cumul = 0;
+        for (int i = 0; i < classes.length(); i++) {
+            cumul += classes.get(i);
+            if (cumul >= rang) {
+                return Math.min(borneSuperieure(i), getMax());
+            }
+        }
+        return getMax();
+    }
+
+    /** Remet l'histogramme à zéro (les enregistrements concurrents peuvent être perdus ou gardés). */
+    public void reinitialiser() {
+        for (int i = 0; i < classes.length(); i++) {
+            classes.set(i, 0);
+        }
+        nombre.reset();
+        somme.reset();
+        max.set(0);
+    }
+
+    /** Numéro de classe : g = nombre de bits de poids faible ignorés, puis les PRECISION + 1 bits suivants. */
+    private static int classe(long v) {
+        int g = Math.max(0, 63 - Long.numberOfLeadingZeros(v) - PRECISION);
+        return (g << PRECISION) + (int) (v >>> g);
+    }
+
+    /** Plus grande valeur de la classe i. */
+    private static long borneSuperieure(int i) {
+        int g = Math.max(0, (i >> PRECISION) - 1);
+        long m = i - ((long) g << PRECISION);
+        return ((m + 1) << g) - 1;
+    }
+}
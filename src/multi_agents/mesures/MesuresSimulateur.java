@@ -0,0 +1,87 @@
+package multi_agents.mesures;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Mesures d'un simulateur : file d'événements (profondeur, débit) et durée des dessins.
+ *
+ * Les compteurs sont alimentés par le fil de la simulation et lus par JMX sans verrou.
+ */
+public class MesuresSimulateur implements MesuresSimulateurMBean {
+    private final Histogramme dureeDessin = new Histogramme();
+    private final LongAdder evenements = new LongAdder();
+    private volatile int profondeurFile;
+    private volatile long date;
+    private volatile long debut = System.nanoTime();
+
+    /**
+     * Enregistre l'exécution d'un événement.
+     * @param date la date courante après l'événement
+     * @param profondeurFile le nombre d'événements restant dans la file
+     */
+    public void noterEvenement(long date, int profondeurFile) {
+        evenements.increment();
+        this.date = date;
+        this.profondeurFile = profondeurFile;
+    }
+
+    /**
+     * @param duree durée d'un dessin en nanosecondes
+     */
+    public void noterDessin(long duree) {
+        dureeDessin.enregistrer(duree);
+    }
+
+    @Override
+    public long getDate() {
+        return date;
+    }
+
+    @Override
+    public int getProfondeurFile() {
+        return profondeurFile;
+    }
+
+    @Override
+    public long getEvenements() {
+        return evenements.sum();
+    }
+
+    @Override
+    public double getEvenementsParSeconde() {
+        double secondes = (System.nanoTime() - debut) / 1e9;
+        return secondes > 0 ? evenements.sum() / secondes : 0;
+    }
+
+    @Override
+    public long getDessins() {
+        return dureeDessin.getNombre();
+    }
+
+    @Override
+    public double getDureeDessinMoyenne() {
+        return dureeDessin.getMoyenne();
+    }
+
+    @Override
+    public long getDureeDessinMediane() {
+        return dureeDessin.getQuantile(0.5);
+    }
+
+    @Override
+    public long getDureeDessin99() {
+        return dureeDessin.getQuantile(0.99);
+    }
+
+    @Override
+    public long getDureeDessinMax() {
+        return dureeDessin.getMax();
+    }
+
+    @Override
+    public void reinitialiser() {
+        dureeDessin.reinitialiser();
+        evenements.reset();
+        debut = System.nanoTime();
+    }
+}
@@ -0,0 +1,37 @@
+package multi_agents.mesures;
+
+/**
+ * Interface JMX des mesures d'un simulateur (durées en nanosecondes).
+ */
+public interface MesuresSimulateurMBean {
+
+    /** @return la date de la simulation */
+    long getDate();
+
+    /** @return le nombre d'événements en attente dans la file */
+    int getProfondeurFile();
+
+    /** @return le nombre d'événements exécutés */
+    long getEvenements();
+
+    /** @return le nombre d'événements exécutés par seconde depuis la dernière remise à zéro */
+    double getEvenementsParSeconde();
+
+    /** @return le nombre de dessins */
+    long getDessins();
+
+    /** @return la durée moyenne d'un dessin */
+    double getDureeDessinMoyenne();
+
+    /** @return la médiane des durées d'un dessin */
+    long getDureeDessinMediane();
+
+    /** @return le 99e centile des durées d'un dessin */
+    long getDureeDessin99();
+
+    /** @return la plus longue durée d'un dessin */
+    long getDureeDessinMax();
+
+    /** Remet toutes les mesures à zéro. */
+    void reinitialiser();
+}
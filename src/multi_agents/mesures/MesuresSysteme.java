@@ -0,0 +1,123 @@
+package multi_agents.mesures;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Mesures d'un système de boids : durée des pas, population, naissances, morts, captures
+ * et nombre de voisins candidats examinés par boid.
+ *
+ * Les compteurs sont alimentés par le fil de la simulation et lus par JMX sans verrou.
+ */
+public class MesuresSysteme implements MesuresSystemeMBean {
+    private final Histogramme dureePas = new Histogramme();
+    private final Histogramme candidats = new Histogramme();
+    private final LongAdder naissances = new LongAdder();
+    private final LongAdder morts = new LongAdder();
+    private final LongAdder captures = new LongAdder();
+    private volatile int population;
+    private volatile long date;
+
+    /**
+     * Enregistre un pas du système.
+     * @param date la date du pas
+     * @param duree sa durée en nanosecondes
+     * @param population le nombre de boids après le pas
+     */
+    public void noterPas(long date, long duree, int population) {
+        dureePas.enregistrer(duree);
+        this.date = date;
+        this.population = population;
+    }
+
+    /** @param n nombre de boids nés pendant le pas */
+    public void noterNaissances(int n) {
+        naissances.add(n);
+    }
+
+    /** @param n nombre de boids morts de faim pendant le pas */
+    public void noterMorts(int n) {
+        morts.add(n);
+    }
+
+    /** @param n nombre de proies capturées pendant le pas */
+    public void noterCaptures(int n) {
+        captures.add(n);
+    }
+
+    /**
+     * @param parBoid nombre de voisins candidats examinés pour un boid
+     * @param boids nombre de boids pour lesquels ce nombre vaut
+     */
+    public void noterCandidats(long parBoid, long boids) {
+        candidats.enregistrer(parBoid, boids);
+    }
+
+    @Override
+    public int getPopulation() {
+        return population;
+    }
+
+    @Override
+    public long getPas() {
+        return dureePas.getNombre();
+    }
+
+    @Override
+    public long getDate() {
+        return date;
+    }
+
+    @Override
+    public long getNaissances() {
+        return naissances.sum();
+    }
+
+    @Override
+    public long getMorts() {
+        return morts.sum();
+    }
+
+    @Override
+    public long getCaptures() {
+        return captures.sum();
+    }
+
+    @Override
+    public double getDureePasMoyenne() {
+        return dureePas.getMoyenne();
+    }
+
+    @Override
+    public long getDureePasMediane() {
+        return dureePas.getQuantile(0.5);
+    }
+
+    @Override
+    public long getDureePas99() {
+        return dureePas.getQuantile(0.99);
+    }
+
+    @Override
+    public long getDureePasMax() {
+        return dureePas.getMax();
+    }
+
+    @Override
+    public double getCandidatsMoyen() {
+        return candidats.getMoyenne();
+    }
+
+    @Override
+    public long getCandidats99() {
+        return candidats.getQuantile(0.99);
+    }
+
+    @Override
+    public void reinitialiser() {
+        dureePas.reinitialiser();
+        candidats.reinitialiser();
+        naissances.reset();
+        morts.reset();
+        captures.reset();
+    }
+}
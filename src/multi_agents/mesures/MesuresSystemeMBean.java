@@ -0,0 +1,46 @@
+package multi_agents.mesures;
+
+/**
+ * Interface JMX des mesures d'un système de boids (durées en nanosecondes).
+ */
+public interface MesuresSystemeMBean {
+
+    /** @return le nombre de boids après le dernier pas */
+    int getPopulation();
+
+    /** @return le nombre de pas effectués */
+    long getPas();
+
+    /** @return la date du dernier pas */
+    long getDate();
+
+    /** @return le nombre de naissances */
+    long getNaissances();
+
+    /** @return le nombre de morts de faim */
+    long getMorts();
+
+    /** @return le nombre de proies capturées par ce système */
+    long getCaptures();
+
+    /** @return la durée moyenne d'un pas */
+    double getDureePasMoyenne();
+
+    /** @return la médiane des durées d'un pas */
+    long getDureePasMediane();
+
+    /** @return le 99e centile des durées d'un pas */
+    long getDureePas99();
+
+    /** @return la plus longue durée d'un pas */
+    long getDureePasMax();
+
+    /** @return le nombre moyen de voisins candidats examinés par boid et par pas */
+    double getCandidatsMoyen();
+
+    /** @return le 99e centile du nombre de voisins candidats examinés par boid */
+    long getCandidats99();
+
+    /** Remet toutes les mesures à zéro. */
+    void reinitialiser();
+}
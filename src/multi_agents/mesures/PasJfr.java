@@ -0,0 +1,31 @@
+package multi_agents.mesures;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Événement Java Flight Recorder : exécution d'une mise à jour de système de boids
+ * (pas du système, enregistrement, dessin et replanification).
+ */
+@Name("multi_agents.Pas")
+@Label("Pas de boids")
+@Category({"Simulation", "Boids"})
+@Description("Exécution d'un BoidmàjEvent")
+public class PasJfr extends jdk.jfr.Event {
+    @Label("Date")
+    public long date;
+
+    @Label("Système")
+    public String systeme;
+
+    @Label("Boids avant")
+    public int avant;
+
+    @Label("Boids après")
+    public int apres;
+
+    @Label("Délai")
+    public long delai;
+}
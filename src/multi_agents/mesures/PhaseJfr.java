@@ -0,0 +1,39 @@
+package multi_agents.mesures;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Événement Java Flight Recorder : une phase du pas d'un système de boids
+ * (métabolisme, flocking, fuite ou chasse, intégration, naissances et morts).
+ */
+@Name("multi_agents.Phase")
+@Label("Phase d'un pas de boids")
+@Category({"Simulation", "Boids"})
+@Description("Une phase de BoidSystem.step, avec les effectifs concernés")
+public class PhaseJfr extends jdk.jfr.Event {
+    @Label("Système")
+    public String systeme;
+
+    @Label("Phase")
+    public String phase;
+
+    @Label("Boids")
+    @Description("Nombre de boids du système à la fin de la phase")
+    public int boids;
+
+    @Label("Boids des autres groupes")
+    @Description("Nombre de boids des autres systèmes examinés par chaque boid")
+    public int autres;
+
+    @Label("Naissances")
+    public int naissances;
+
+    @Label("Morts")
+    public int morts;
+
+    @Label("Captures")
+    public int captures;
+}
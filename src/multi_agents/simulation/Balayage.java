@@ -0,0 +1,439 @@
+package multi_agents.simulation;
+
+import multi_agents.EvenT.EventManager;
+import multi_agents.logic.Alea;
+import multi_agents.logic.BoidSystem;
+
+import java.awt.Color;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.ObjDoubleConsumer;
+
+/**
+ * Balayage de paramètres d'un écosystème proies-prédateurs : on simule sans affichage
+ * de nombreux écosystèmes indépendants (chaque configuration avec plusieurs graines) en
+ * parallèle, puis on résume leur issue.
+ *
+ * Les configurations sont produites à partir d'une configuration de base par une grille
+ * ({@link #grille}) ou un tirage aléatoire ({@link #tirage}) sur des {@link Axe}s. Chaque
+ * simulation s'arrête à la date maximale, ou dès qu'un des deux systèmes s'éteint. On relève
+ * la date d'extinction, les populations finales et moyennes, et la période d'oscillation de
+ * la population de proies (estimée sur des relevés toutes les {@code periode} dates).
+ *
+ * Les simulations sont indépendantes (chacune a son simulateur, ses systèmes et ses
+ * générateurs) : elles sont réparties sur un groupe fixe de fils, un par cœur par défaut.
+ */
+public class Balayage {
+
+    /**
+     * Les paramètres des deux systèmes d'un écosystème.
+     */
+    public static class Configuration {
+        public final ParametresSysteme proies;
+        public final ParametresSysteme predateurs;
+
+        public Configuration(ParametresSysteme proies, ParametresSysteme predateurs) {
+            this.proies = proies;
+            this.predateurs = predateurs;
+        }
+
+        /**
+         * @return l'écosystème de TestEcosystem
+         */
+        public static Configuration ecosysteme() {
+            return new Configuration(ParametresSysteme.proies(), ParametresSysteme.predateurs());
+        }
+
+        /**
+         * @return une copie indépendante de la configuration
+         */
+        public Configuration copier() {
+            return new Configuration(proies.copier(), predateurs.copier());
+        }
+
+        @Override
+        public String toString() {
+            return proies + " " + predateurs;
+        }
+    }
+
+    /**
+     * Un paramètre balayé : son nom, la façon de le régler dans une configuration, et ses valeurs
+     * (toutes les valeurs pour une grille, le minimum et le maximum pour un tirage).
+     * Par exemple : {@code new Axe("proies.Vmax", (c, v) -> c.proies.Vmax = v, 2.0, 3.0, 4.0)}.
+     */
+    public static class Axe {
+        private final String nom;
+        private final ObjDoubleConsumer<Configuration> reglage;
+        private final double[] valeurs;
+
+        public Axe(String nom, ObjDoubleConsumer<Configuration> reglage, double... valeurs) {
+            if (valeurs.length == 0) {
+                throw new IllegalArgumentException("L'axe " + nom + " n'a aucune valeur");
+            }
+            this.nom = nom;
+            this.reglage = reglage;
+            this.valeurs = valeurs.clone();
+        }
+
+        public String getNom() {
+            return nom;
+        }
+    }
+
+    /**
+     * Issue d'une simulation.
+     */
+    public static class Resultat {
+        /** Rang de la configuration dans la liste balayée */
+        public final int configuration;
+        public final long graine;
+        /** Date d'extinction du premier système éteint, -1 si aucun ne s'est éteint */
+        public long dateExtinction = -1;
+        /** "proies" ou "predateurs", null si aucun système ne s'est éteint */
+        public String eteint;
+        /** Date à laquelle la simulation s'est arrêtée */
+        public long dateFin;
+        public int proiesFinales;
+        public int predateursFinaux;
+        public double proiesMoyennes;
+        public double predateursMoyens;
+        /** Période d'oscillation des proies en dates, NaN si on n'a pas vu au moins deux cycles */
+        public double periodeOscillation = Double.NaN;
+        /** Durée de la simulation en millisecondes */
+        public long duree;
+
+        Resultat(int configuration, long graine) {
+            this.configuration = configuration;
+            this.graine = graine;
+        }
+    }
+
+    /**
+     * Résumé des simulations d'une configuration (toutes graines confondues).
+     */
+    public static class Synthese {
+        public final int configuration;
+        public int simulations;
+        public int extinctions;
+        public int extinctionsProies;
+        /** Moyenne des dates d'extinction des simulations éteintes (NaN s'il n'y en a pas) */
+        public double dateExtinctionMoyenne = Double.NaN;
+        /** Moyenne des périodes d'oscillation estimées (NaN s'il n'y en a pas) */
+        public double periodeMoyenne = Double.NaN;
+        public double proiesMoyennes;
+        public double predateursMoyens;
+
+        Synthese(int configuration) {
+            this.configuration = configuration;
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.ROOT,
+                    "configuration %d : %d simulations, %d extinctions (%d de proies), extinction à %.0f, "
+                            + "période %.1f, proies %.1f, prédateurs %.1f",
+                    configuration, simulations, extinctions, extinctionsProies, dateExtinctionMoyenne,
+                    periodeMoyenne, proiesMoyennes, predateursMoyens);
+        }
+    }
+
+    private final int width;
+    private final int height;
+    private final long dateMax;
+    private final long periode;
+
+    /**
+     * @param width la largeur de la zone de simulation
+     * @param height la hauteur de la zone de simulation
+     * @param dateMax la date à laquelle on arrête une simulation sans extinction
+     * @param periode nombre de dates entre deux relevés des populations
+     */
+    public Balayage(int width, int height, long dateMax, long periode) {
+        if (dateMax < 1 || periode < 1) {
+            throw new IllegalArgumentException("Date maximale " + dateMax + " ou période " + periode + " invalide");
+        }
+        this.width = width;
+        this.height = height;
+        this.dateMax = dateMax;
+        this.periode = periode;
+    }
+
+    /**
+     * Produit toutes les combinaisons des valeurs des axes (le premier axe varie le plus lentement).
+     * @param base la configuration de départ (non modifiée)
+     * @param axes les paramètres balayés
+     * @return les configurations, une par combinaison
+     */
+    public static List<Configuration> grille(Configuration base, Axe... axes) {
+        List<Configuration> configurations = new ArrayList<>();
+        configurations.add(base.copier());
+        for (Axe axe : axes) {
+            List<Configuration> suivantes = new ArrayList<>(configurations.size() * axe.valeurs.length);
+            for (Configuration c : configurations) {
+                for (double v : axe.valeurs) {
+                    Configuration copie = c.copier();
+                    axe.reglage.accept(copie, v);
+                    suivantes.add(copie);
+                }
+            }
+            configurations = suivantes;
+        }
+        return configurations;
+    }
+
+    /**
+     * Tire des configurations au hasard : chaque axe prend une valeur uniforme entre la plus
+     * petite et la plus grande de ses valeurs.
+     * @param base la configuration de départ (non modifiée)
+     * @param nombre le nombre de configurations
+     * @param graine la graine du tirage
+     * @param axes les paramètres balayés
+     * @return les configurations tirées
+     */
+    public static List<Configuration> tirage(Configuration base, int nombre, long graine, Axe... axes) {
+        Alea alea = new Alea(graine);
+        List<Configuration> configurations = new ArrayList<>(nombre);
+        for (int k = 0; k < nombre; k++) {
+            Configuration c = base.copier();
+            for (Axe axe : axes) {
+                double min = axe.valeurs[0];
+                double max = axe.valeurs[0];
+                for (double v : axe.valeurs) {
+                    min = Math.min(min, v);
+                    max = Math.max(max, v);
+                }
+                axe.reglage.accept(c, min + alea.nextDouble() * (max - min));
+            }
+            configurations.add(c);
+        }
+        return configurations;
+    }
+
+    /**
+     * Simule chaque configuration avec chaque graine, sur un fil par cœur.
+     * @see #executer(List, long[], int)
+     */
+    public List<Resultat> executer(List<Configuration> configurations, long... graines)
+            throws InterruptedException {
+        return executer(configurations, graines, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Simule chaque configuration avec chaque graine, en parallèle.
+     * @param configurations les configurations
+     * @param graines les graines (chaque configuration est simulée une fois par graine)
+     * @param nbFils le nombre de fils de calcul
+     * @return les résultats, rangés par configuration puis par graine
+     * @throws IllegalStateException si une simulation a échoué (l'exception d'origine en est la cause)
+     */
+    public List<Resultat> executer(List<Configuration> configurations, long[] graines, int nbFils)
+            throws InterruptedException {
+        List<Callable<Resultat>> taches = new ArrayList<>(configurations.size() * graines.length);
+        for (int c = 0; c < configurations.size(); c++) {
+            Configuration configuration = configurations.get(c);
+            int rang = c;
+            for (long graine : graines) {
+                taches.add(() -> simuler(configuration, rang, graine));
+            }
+        }
+        ExecutorService fils = Executors.newFixedThreadPool(Math.max(1, nbFils), tache -> {
+            Thread t = new Thread(tache, "balayage");
+            t.setDaemon(true);
+            return t;
+        });
+        try {
+            List<Resultat> resultats = new ArrayList<>(taches.size());
+            for (Future<Resultat> f : fils.invokeAll(taches)) {
+                try {
+                    resultats.add(f.get());
+                } catch (ExecutionException e) {
+                    throw new IllegalStateException("Échec d'une simulation du balayage", e.getCause());
+                }
+            }
+            return resultats;
+        } finally {
+            fils.shutdownNow();
+        }
+    }
+
+    /**
+     * Simule une configuration jusqu'à la date maximale ou jusqu'à l'extinction d'un des systèmes.
+     * @param configuration la configuration
+     * @param rang le rang de la configuration (recopié dans le résultat)
+     * @param graine la graine des deux systèmes
+     * @return l'issue de la simulation
+     */
+    public Resultat simuler(Configuration configuration, int rang, long graine) {
+        long debut = System.nanoTime();
+        Alea graines = new Alea(graine);
+        BoidSystem proies = configuration.proies.creer(width, height, graines.nextLong());
+        BoidSystem predateurs = configuration.predateurs.creer(width, height, graines.nextLong());
+        BoidSimulateur simulateur = new BoidSimulateur(null);
+        simulateur.addSystem(proies, Color.BLUE, configuration.proies.delai);
+        simulateur.addSystem(predateurs, Color.RED, configuration.predateurs.delai);
+        simulateur.linkSystems();
+
+        Resultat r = new Resultat(rang, graine);
+        int[] releves = new int[(int) (dateMax / periode) + 1];
+        int n = 0;
+        long sommeProies = 0;
+        long sommePredateurs = 0;
+        long prochain = 0;
+        long date = 0;
+        EventManager manager = simulateur.getManager();
+        // On termine la dernière date commencée, pour que son relevé voie tous les systèmes
+        while ((date < dateMax || manager.getProchaineDate() == date) && !manager.isFinished()) {
+            simulateur.next();
+            date = manager.getCurrentDate();
+            // Relevé une fois tous les événements de la date exécutés : avant, certains
+            // systèmes auraient fait leur pas et d'autres pas encore
+            if (manager.getProchaineDate() > date && date >= prochain && n < releves.length) {
+                releves[n++] = proies.getBoids().size();
+                sommeProies += proies.getBoids().size();
+                sommePredateurs += predateurs.getBoids().size();
+                prochain = (date / periode + 1) * periode;
+            }
+            if (proies.getBoids().isEmpty() || predateurs.getBoids().isEmpty()) {
+                r.dateExtinction = date;
+                r.eteint = proies.getBoids().isEmpty() ? proies.getNom() : predateurs.getNom();
+                break;
+            }
+        }
+        r.dateFin = date;
+        r.proiesFinales = proies.getBoids().size();
+        r.predateursFinaux = predateurs.getBoids().size();
+        r.proiesMoyennes = n == 0 ? 0 : (double) sommeProies / n;
+        r.predateursMoyens = n == 0 ? 0 : (double) sommePredateurs / n;
+        r.periodeOscillation = periodeOscillation(releves, n) * periode;
+        r.duree = (System.nanoTime() - debut) / 1_000_000;
+        return r;
+    }
+
+    /**
+     * Période (en nombre de relevés) d'une série : écart moyen entre ses passages montants
+     * au-dessus de la moyenne. Une bande d'hystérésis d'un quart d'écart-type évite de compter
+     * les petites fluctuations autour de la moyenne comme des cycles.
+     * @return la période, NaN s'il y a moins de deux passages montants
+     */
+    static double periodeOscillation(int[] serie, int n) {
+        if (n < 3) return Double.NaN;
+        double moyenne = 0;
+        for (int i = 0; i < n; i++) moyenne += serie[i];
+        moyenne /= n;
+        double variance = 0;
+        for (int i = 0; i < n; i++) variance += (serie[i] - moyenne) * (serie[i] - moyenne);
+        double bande = Math.sqrt(variance / n) / 4;
+        if (bande == 0) return Double.NaN;
+
+        int premier = -1;
+        int dernier = -1;
+        int passages = 0;
+        boolean dessous = false;
+        for (int i = 0; i < n; i++) {
+            if (serie[i] < moyenne - bande) {
+                dessous = true;
+            } else if (dessous && serie[i] > moyenne + bande) {
+                dessous = false;
+                if (premier < 0) premier = i;
+                dernier = i;
+                passages++;
+            }
+        }
+        return passages < 2 ? Double.NaN : (double) (dernier - premier) / (passages - 1);
+    }
+
+    /**
+     * Résume les résultats par configuration.
+     * @param nbConfigurations le nombre de configurations balayées
+     * @param resultats les résultats de {@link #executer}
+     * @return une synthèse par configuration, dans l'ordre des configurations
+     */
+    public static List<Synthese> synthetiser(int nbConfigurations, List<Resultat> resultats) {
+        List<Synthese> syntheses = new ArrayList<>(nbConfigurations);
+        double[] sommeExtinctions = new double[nbConfigurations];
+        double[] sommePeriodes = new double[nbConfigurations];
+        int[] periodes = new int[nbConfigurations];
+        for (int c = 0; c < nbConfigurations; c++) {
+            syntheses.add(new Synthese(c));
+        }
+        for (Resultat r : resultats) {
+            Synthese s = syntheses.get(r.configuration);
+            s.simulations++;
+            s.proiesMoyennes += r.proiesMoyennes;
+            s.predateursMoyens += r.predateursMoyens;
+            if (r.eteint != null) {
+                s.extinctions++;
+                if ("proies".equals(r.eteint)) s.extinctionsProies++;
+                sommeExtinctions[r.configuration] += r.dateExtinction;
+            }
+            if (!Double.isNaN(r.periodeOscillation)) {
+                sommePeriodes[r.configuration] += r.periodeOscillation;
+                periodes[r.configuration]++;
+            }
+        }
+        for (Synthese s : syntheses) {
+            int c = s.configuration;
+            if (s.simulations > 0) {
+                s.proiesMoyennes /= s.simulations;
+                s.predateursMoyens /= s.simulations;
+            }
+            if (s.extinctions > 0) s.dateExtinctionMoyenne = sommeExtinctions[c] / s.extinctions;
+            if (periodes[c] > 0) s.periodeMoyenne = sommePeriodes[c] / periodes[c];
+        }
+        return syntheses;
+    }
+
+    /**
+     * Écrit les résultats en CSV, une ligne par simulation avec les paramètres de sa configuration.
+     * @param fichier le fichier à créer (ou écraser)
+     * @param configurations les configurations balayées
+     * @param resultats les résultats de {@link #executer}
+     */
+    public static void ecrireCsv(Path fichier, List<Configuration> configurations, List<Resultat> resultats)
+            throws IOException {
+        try (Writer out = Files.newBufferedWriter(fichier, StandardCharsets.UTF_8)) {
+            StringBuilder ligne = new StringBuilder("configuration,graine");
+            for (String systeme : new String[]{"proies", "predateurs"}) {
+                for (String p : new String[]{"nbBoids", "rayonVision", "distanceSep", "Vmax", "Fmax", "angleVision",
+                        "poiDECohesion", "poiDEAlignement", "poiDESeparation", "delai", "integrateur", "pasMax"}) {
+                    ligne.append(',').append(systeme).append('.').append(p);
+                }
+            }
+            ligne.append(",eteint,date_extinction,date_fin,proies_finales,predateurs_finaux,"
+                    + "proies_moyennes,predateurs_moyens,periode_oscillation,duree_ms\n");
+            out.append(ligne);
+            for (Resultat r : resultats) {
+                Configuration c = configurations.get(r.configuration);
+                ligne.setLength(0);
+                ligne.append(r.configuration).append(',').append(r.graine);
+                for (ParametresSysteme p : new ParametresSysteme[]{c.proies, c.predateurs}) {
+                    ligne.append(',').append(p.nbBoids).append(',').append(p.rayonVision)
+                            .append(',').append(p.distanceSep).append(',').append(p.Vmax)
+                            .append(',').append(p.Fmax).append(',').append(p.angleVision)
+                            .append(',').append(p.poiDECohesion).append(',').append(p.poiDEAlignement)
+                            .append(',').append(p.poiDESeparation).append(',').append(p.delai)
+                            .append(',').append(p.integrateur).append(',').append(p.pasMax);
+                }
+                ligne.append(',').append(r.eteint == null ? "" : r.eteint)
+                        .append(',').append(r.dateExtinction).append(',').append(r.dateFin)
+                        .append(',').append(r.proiesFinales).append(',').append(r.predateursFinaux)
+                        .append(',').append(r.proiesMoyennes).append(',').append(r.predateursMoyens)
+                        .append(',').append(Double.isNaN(r.periodeOscillation) ? "" : r.periodeOscillation)
+                        .append(',').append(r.duree).append('\n');
+                out.append(ligne);
+            }
+        }
+    }
+}
@@ -6,28 +6,51 @@ import multi_agents.logic.BoidSystem;
 import multi_agents.logic.Boid;
 import multi_agents.logic.Vecteur2D;
 import multi_agents.EvenT.BoidmàjEvent;
+import multi_agents.EvenT.Event;
 import multi_agents.EvenT.EventManager;
+import multi_agents.EvenT.Instantane;
+import multi_agents.mesures.DessinJfr;
+import multi_agents.mesures.MesuresSimulateur;
+import multi_agents.mesures.MesuresSysteme;
 
 import java.awt.Color;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
 
 /**
  * Simulateur pour les boids, capable de gérer plusieurs systèmes en même temps
  */
 public class BoidSimulateur implements Simulable {
+    /** Largeur (en pas) des classes d'âge des relevés de populations. */
+    public static final int LARGEUR_CLASSE_AGE = 100;
+
     protected final GUISimulator gui;
     protected final EventManager manager;
     private Map<BoidSystem, Color> systems;
+    private EnregistreurTrajectoires enregistreur;
+    private CollecteurPopulations collecteur;
+    private MesuresSimulateur mesures;
+    private final List<ObjectName> mbeans = new ArrayList<>();
 
     /**
      * Constructeur qui crée un simulateur de boids.
-     * @param gui l'interface graphique où on va dessiner les boids
+     * @param gui l'interface graphique où on va dessiner les boids (null : simulation sans affichage)
      */
     public BoidSimulateur(GUISimulator gui) {
         this.gui = gui;
         this.manager = new EventManager();
-        gui.setSimulable(this); // On dit à la GUI que c'est nous le simulateur
+        if (gui != null) {
+            gui.setSimulable(this); // On dit à la GUI que c'est nous le simulateur
+        }
         // LinkedHashMap pour garder l'ordre d'ajout des systèmes
         this.systems = new LinkedHashMap<>();
     }
@@ -65,6 +88,13 @@ public class BoidSimulateur implements Simulable {
      * Les boids morts ne sont pas affichés
      */
     public void draw() {
+        if (gui == null) {
+            return;
+        }
+        DessinJfr jfr = new DessinJfr();
+        jfr.begin();
+        long debut = mesures != null ? System.nanoTime() : 0;
+        int elements = 0;
         gui.reset();
         // On parcourt tous les systèmes qu'on a ajoutés
         for (Map.Entry<BoidSystem, Color> entry : systems.entrySet()) {
@@ -77,35 +107,53 @@ public class BoidSimulateur implements Simulable {
                 if (!b.estvivant()) {
                     continue;
                 }
-                
-                // On calcule l'angle pour orienter l'image selon la direction du boid
-                Vecteur2D vitesse = b.getVitesse();
-                double angle = Math.atan2(vitesse.y, vitesse.x);
-
-                // Ajuster la couleur selon l'énergie (assombrir si énergie < 30)
-                Color color = Color;
-                if (b.getenergie() < 30) {
-                    float factor = (float) (b.getenergie() / 30.0); // 0.0 à 1.0
-                    color = new Color(
-                        (int) (Color.getRed() * factor),
-                        (int) (Color.getGreen() * factor),
-                        (int) (Color.getBlue() * factor)
-                    );
-                }
-
-                // On ajoute un élément graphique pour ce boid
                 Vecteur2D position = b.getPosition();
-                gui.addGraphicalElement(new RotatedImageElement(
-                    (int) position.x,
-                    (int) position.y,
-                    "doc/resources/glass.png", // L'image de la loupe que je sais pas pourquoi elle est fournie
-                    20, // Largeur
-                    20, // Hauteur
-                    angle, // Angle de rotation
-                    color // Couleur de teinte (ajustée selon l'énergie)
-                ));
+                Vecteur2D vitesse = b.getVitesse();
+                gui.addGraphicalElement(dessinBoid(position.x, position.y, vitesse.x, vitesse.y,
+                        b.getenergie(), Color));
+                elements++;
             }
         }
+        if (mesures != null) {
+            mesures.noterDessin(System.nanoTime() - debut);
+        }
+        jfr.end();
+        if (jfr.shouldCommit()) {
+            jfr.simulateur = getClass().getSimpleName();
+            jfr.elements = elements;
+            jfr.commit();
+        }
+    }
+
+    /**
+     * Élément graphique d'un boid : une petite image (loupe) orientée selon sa vitesse,
+     * teintée de la couleur de son système, assombrie quand l'énergie est faible (< 30).
+     * Partagé avec le rejeu des trajectoires enregistrées.
+     */
+    static RotatedImageElement dessinBoid(double x, double y, double vx, double vy, double energie, Color base) {
+        // On calcule l'angle pour orienter l'image selon la direction du boid
+        double angle = Math.atan2(vy, vx);
+
+        // Ajuster la couleur selon l'énergie (assombrir si énergie < 30)
+        Color color = base;
+        if (energie < 30) {
+            float factor = (float) (energie / 30.0); // 0.0 à 1.0
+            color = new Color(
+                (int) (base.getRed() * factor),
+                (int) (base.getGreen() * factor),
+                (int) (base.getBlue() * factor)
+            );
+        }
+
+        return new RotatedImageElement(
+            (int) x,
+            (int) y,
+            "doc/resources/glass.png", // L'image de la loupe que je sais pas pourquoi elle est fournie
+            20, // Largeur
+            20, // Hauteur
+            angle, // Angle de rotation
+            color // Couleur de teinte (ajustée selon l'énergie)
+        );
     }
 
     /**
@@ -125,11 +173,202 @@ public class BoidSimulateur implements Simulable {
     }
 
     /**
-     * On exécute simplement le prochain événement dans la file.
+     * Commence l'enregistrement des trajectoires de tous les systèmes (voir
+     * {@link EnregistreurTrajectoires}) ; un enregistrement en cours est d'abord terminé.
+     * @param fichier le fichier de trajectoires à créer (ou écraser)
+     * @return l'enregistreur, pour suivre le nombre d'images écrites ou perdues
+     */
+    public EnregistreurTrajectoires enregistrer(Path fichier) throws IOException {
+        arreterEnregistrement();
+        enregistreur = new EnregistreurTrajectoires(fichier, new ArrayList<>(systems.keySet()),
+                EnregistreurTrajectoires.BUDGET_DEFAUT);
+        return enregistreur;
+    }
+
+    /**
+     * Termine l'enregistrement des trajectoires en cours (s'il y en a un) et ferme le fichier.
+     */
+    public void arreterEnregistrement() throws IOException {
+        if (enregistreur != null) {
+            try {
+                enregistreur.close();
+            } finally {
+                enregistreur = null;
+            }
+        }
+    }
+
+    /**
+     * Commence le relevé des populations de tous les systèmes toutes les {@code periode} dates
+     * (voir {@link CollecteurPopulations}) ; un relevé en cours est d'abord terminé.
+     * @param fichier le fichier à créer (ou écraser) : CSV si son nom se termine par .csv, binaire sinon
+     * @param periode nombre de dates entre deux relevés
+     * @return le collecteur, pour suivre le nombre de relevés faits ou perdus
+     */
+    public CollecteurPopulations collecterPopulations(Path fichier, long periode) throws IOException {
+        arreterCollecte();
+        collecteur = new CollecteurPopulations(fichier, new ArrayList<>(systems.keySet()), periode,
+                LARGEUR_CLASSE_AGE, CollecteurPopulations.CAPACITE_DEFAUT);
+        return collecteur;
+    }
+
+    /**
+     * Termine le relevé des populations en cours (s'il y en a un) et ferme le fichier.
+     */
+    public void arreterCollecte() throws IOException {
+        if (collecteur != null) {
+            try {
+                collecteur.close();
+            } finally {
+                collecteur = null;
+            }
+        }
+    }
+
+    /**
+     * Appelée après chaque pas d'un système : enregistre son état si un enregistrement est en cours.
+     * @param system le système qui vient d'avancer
+     */
+    public void noterEtape(BoidSystem system) {
+        if (enregistreur != null) {
+            enregistreur.noter(manager.getCurrentDate(), system);
+        }
+    }
+
+    /**
+     * Active les mesures du simulateur et de chacun de ses systèmes, et les publie comme MBeans
+     * dans le serveur JMX de la plateforme (visibles dans JConsole ou VisualVM), sous les noms
+     * {@code multi_agents:type=Simulateur,name=<nom>} et
+     * {@code multi_agents:type=Systeme,simulateur=<nom>,name=<rang>-<proies|predateurs>}.
+     * Les systèmes ajoutés ensuite ne sont pas mesurés.
+     * @param nom le nom du simulateur dans JMX
+     * @return les mesures du simulateur
+     * @throws JMException si le nom est déjà utilisé
+     */
+    public MesuresSimulateur activerMesures(String nom) throws JMException {
+        desactiverMesures();
+        MBeanServer serveur = ManagementFactory.getPlatformMBeanServer();
+        String cle = ObjectName.quote(nom);
+        try {
+            MesuresSimulateur m = new MesuresSimulateur();
+            ObjectName nomSimulateur = new ObjectName("multi_agents:type=Simulateur,name=" + cle);
+            serveur.registerMBean(m, nomSimulateur);
+            mbeans.add(nomSimulateur);
+            int rang = 0;
+            for (BoidSystem system : systems.keySet()) {
+                MesuresSysteme ms = new MesuresSysteme();
+                ObjectName nomSysteme = new ObjectName("multi_agents:type=Systeme,simulateur=" + cle
+                        + ",name=" + rang++ + "-" + (system.estpredateur() ? "predateurs" : "proies"));
+                serveur.registerMBean(ms, nomSysteme);
+                mbeans.add(nomSysteme);
+                system.setMesures(ms);
+            }
+            mesures = m;
+            return m;
+        } catch (JMException e) {
+            desactiverMesures();
+            throw e;
+        }
+    }
+
+    /**
+     * Désactive les mesures et retire les MBeans du serveur JMX.
+     */
+    public void desactiverMesures() {
+        MBeanServer serveur = ManagementFactory.getPlatformMBeanServer();
+        for (ObjectName nom : mbeans) {
+            try {
+                serveur.unregisterMBean(nom);
+            } catch (JMException e) {
+                // déjà retiré
+            }
+        }
+        mbeans.clear();
+        for (BoidSystem system : systems.keySet()) {
+            system.setMesures(null);
+        }
+        mesures = null;
+    }
+
+    /**
+     * Sauvegarde l'état complet de la simulation (systèmes, générateurs aléatoires, file
+     * d'événements) dans un instantané binaire. Reprendre depuis cet instantané reproduit
+     * exactement la suite de la simulation.
+     * @param fichier le fichier à créer (ou écraser)
+     * @throws IllegalStateException si la file contient un événement qui n'est pas une mise à jour de boids
+     */
+    public void sauvegarder(Path fichier) throws IOException {
+        List<BoidSystem> liste = new ArrayList<>(systems.keySet());
+        List<Event> enAttente = manager.getEvents();
+        long taille = 8 + 4 + 4 + enAttente.size() * (8 + 4 + 8);
+        for (BoidSystem system : liste) {
+            taille += 1 + system.tailleInstantane();
+        }
+        ByteBuffer out = Instantane.creer(fichier, Instantane.BOIDS, taille);
+        out.putLong(manager.getCurrentDate());
+        out.putInt(liste.size());
+        for (BoidSystem system : liste) {
+            out.put((byte) (system.estpredateur() ? 1 : 0));
+            system.ecrireEtat(out);
+        }
+        out.putInt(enAttente.size());
+        for (Event e : enAttente) {
+            if (!(e instanceof BoidmàjEvent)) {
+                throw new IllegalStateException("Événement non sauvegardable : " + e.getClass().getName());
+            }
+            BoidmàjEvent maj = (BoidmàjEvent) e;
+            out.putLong(maj.getDate());
+            out.putInt(liste.indexOf(maj.getSystem()));
+            out.putLong(maj.getDelay());
+        }
+    }
+
+    /**
+     * Reprend la simulation depuis un instantané. Le simulateur doit avoir été configuré
+     * comme celui qui l'a sauvegardé (mêmes systèmes, dans le même ordre).
+     * @param fichier l'instantané
+     * @throws IllegalArgumentException si les systèmes ne correspondent pas à l'instantané
+     */
+    public void restaurer(Path fichier) throws IOException {
+        ByteBuffer in = Instantane.ouvrir(fichier, Instantane.BOIDS);
+        List<BoidSystem> liste = new ArrayList<>(systems.keySet());
+        long date = in.getLong();
+        int nb = in.getInt();
+        if (nb != liste.size()) {
+            throw new IllegalArgumentException("L'instantané contient " + nb + " systèmes, le simulateur " + liste.size());
+        }
+        for (BoidSystem system : liste) {
+            boolean predateur = in.get() != 0;
+            if (predateur != system.estpredateur()) {
+                throw new IllegalArgumentException("Type de système différent de celui de l'instantané");
+            }
+            system.lireEtat(in);
+        }
+        int nbEvents = in.getInt();
+        List<Event> enAttente = new ArrayList<>(nbEvents);
+        for (int k = 0; k < nbEvents; k++) {
+            long dateEvent = in.getLong();
+            BoidSystem system = liste.get(in.getInt());
+            enAttente.add(new BoidmàjEvent(dateEvent, system, this, in.getLong()));
+        }
+        manager.restaurer(date, enAttente);
+        draw();
+    }
+
+    /**
+     * On exécute simplement le prochain événement dans la file. Les populations sont relevées
+     * avant de passer à une nouvelle date, quand tous les systèmes ont fait leur pas à la date
+     * courante : un relevé ne mélange jamais deux états.
      */
     @Override
     public void next() {
+        if (collecteur != null && manager.getProchaineDate() > manager.getCurrentDate()) {
+            collecteur.noter(manager.getCurrentDate());
+        }
         manager.next();
+        if (mesures != null) {
+            mesures.noterEvenement(manager.getCurrentDate(), manager.getTaille());
+        }
     }
 
     /**
@@ -0,0 +1,298 @@
+package multi_agents.simulation;
+
+import multi_agents.EvenT.Instantane;
+import multi_agents.logic.Boid;
+import multi_agents.logic.BoidSystem;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedWriter;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Série temporelle des populations d'une simulation de boids, pour étudier les oscillations
+ * proies-prédateurs sur de longues simulations sans affichage.
+ *
+ * Toutes les {@code periode} dates, on relève pour chaque système : la population, l'énergie
+ * moyenne, la répartition des âges en {@link #CLASSES_AGE} classes, et les naissances, morts
+ * de faim et captures depuis le relevé précédent. Entre deux relevés, le coût se réduit à une
+ * comparaison de dates ; les compteurs de naissances, morts et captures sont tenus par les
+ * systèmes eux-mêmes.
+ *
+ * Les relevés sont rangés dans des tableaux primitifs alloués une fois pour toutes (un anneau
+ * de {@code capacite} relevés) et écrits par un fil dédié. Si l'écriture prend plus de
+ * {@code capacite} relevés de retard, les suivants sont abandonnés (et comptés) ; leurs
+ * naissances, morts et captures sont reportées sur le relevé suivant.
+ *
+ * Le fichier est au format CSV si son nom se termine par .csv (une ligne par système et par
+ * relevé), binaire sinon : en-tête d'instantané (type POPULATIONS), nombre de systèmes (int),
+ * 1 octet par système (1 = prédateurs), nombre et largeur des classes d'âge (int), période
+ * (long), puis pour chaque système de chaque relevé : date (long), système (int), population
+ * (int), énergie moyenne (double), naissances, morts, captures (long), effectif de chaque
+ * classe d'âge (int).
+ */
+public class CollecteurPopulations implements AutoCloseable {
+
+    /** Nombre de classes d'âge ; la dernière regroupe tous les âges au-delà. */
+    public static final int CLASSES_AGE = 8;
+
+    /** Nombre de relevés de l'anneau par défaut. */
+    public static final int CAPACITE_DEFAUT = 4096;
+
+    /** Attente maximale du fil d'écriture entre deux vidages de l'anneau. */
+    private static final long ATTENTE_NS = 50_000_000L;
+
+    private final List<BoidSystem> systemes;
+    private final int nbSystemes;
+    private final long periode;
+    private final int largeurAge;
+    private final int capacite;
+
+    // Anneau : le relevé r du système s est à l'indice (r % capacite) * nbSystemes + s
+    private final long[] dates;
+    private final int[] populations;
+    private final double[] energies;
+    private final long[] naissances;
+    private final long[] morts;
+    private final long[] captures;
+    private final int[] ages;                   // CLASSES_AGE valeurs par système et par relevé
+
+    // Cumuls des systèmes au dernier relevé publié
+    private final long[] naissancesPrec;
+    private final long[] mortsPrec;
+    private final long[] capturesPrec;
+
+    private long prochaine;                     // date du prochain relevé
+    private long perdus;
+    private volatile long publies;              // relevés rangés dans l'anneau
+    private volatile long ecrits;               // relevés écrits par le fil d'écriture
+    private volatile boolean fini;
+    private boolean ferme;
+    private volatile IOException erreur;
+
+    private final boolean csv;
+    private final BufferedWriter texte;
+    private final DataOutputStream binaire;
+    private final StringBuilder ligne = new StringBuilder(256);
+    private final Thread ecrivain;
+
+    /**
+     * Crée (ou écrase) le fichier et démarre le fil d'écriture.
+     * @param fichier le fichier (CSV si son nom se termine par .csv, binaire sinon)
+     * @param systemes les systèmes relevés ; leur rang dans la liste est leur numéro dans le fichier
+     * @param periode nombre de dates entre deux relevés
+     * @param largeurAge largeur d'une classe d'âge (en pas)
+     * @param capacite nombre de relevés de l'anneau
+     */
+    public CollecteurPopulations(Path fichier, List<BoidSystem> systemes, long periode, int largeurAge,
+                                 int capacite) throws IOException {
+        if (periode < 1 || largeurAge < 1 || capacite < 1) {
+            throw new IllegalArgumentException("Paramètres de relevé invalides : période " + periode
+                    + ", largeur d'âge " + largeurAge + ", capacité " + capacite);
+        }
+        this.systemes = new ArrayList<>(systemes);
+        this.nbSystemes = this.systemes.size();
+        this.periode = periode;
+        this.largeurAge = largeurAge;
+        this.capacite = capacite;
+        int cases = capacite * nbSystemes;
+        dates = new long[capacite];
+        populations = new int[cases];
+        energies = new double[cases];
+        naissances = new long[cases];
+        morts = new long[cases];
+        captures = new long[cases];
+        ages = new int[cases * CLASSES_AGE];
+        naissancesPrec = new long[nbSystemes];
+        mortsPrec = new long[nbSystemes];
+        capturesPrec = new long[nbSystemes];
+        caler();
+
+        csv = fichier.toString().toLowerCase().endsWith(".csv");
+        if (csv) {
+            texte = Files.newBufferedWriter(fichier, StandardCharsets.UTF_8);
+            binaire = null;
+            ligne.append("date,systeme,type,population,energie_moyenne,naissances,morts,captures");
+            for (int c = 0; c < CLASSES_AGE; c++) {
+                ligne.append(",age_").append(c * largeurAge);
+                ligne.append(c < CLASSES_AGE - 1 ? "_" + ((c + 1) * largeurAge - 1) : "_plus");
+            }
+            ligne.append('\n');
+            texte.append(ligne);
+        } else {
+            texte = null;
+            binaire = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(fichier), 1 << 16));
+            binaire.writeInt(Instantane.SIGNATURE);
+            binaire.writeShort(Instantane.VERSION_POPULATIONS);
+            binaire.writeByte(Instantane.POPULATIONS);
+            binaire.writeInt(nbSystemes);
+            for (BoidSystem system : this.systemes) {
+                binaire.writeByte(system.estpredateur() ? 1 : 0);
+            }
+            binaire.writeInt(CLASSES_AGE);
+            binaire.writeInt(largeurAge);
+            binaire.writeLong(periode);
+        }
+        ecrivain = new Thread(this::ecrire, "collecteur-populations");
+        ecrivain.setDaemon(true);
+        ecrivain.start();
+    }
+
+    /**
+     * Appelée quand tous les événements d'une date ont été exécutés : relève les populations
+     * si la date d'un relevé est atteinte (ou si la date a reculé, après un Restart ou une
+     * restauration). Quand la date recule, les cumuls des systèmes ont pu reculer avec elle :
+     * les naissances, morts et captures repartent de leurs valeurs courantes, et celles du
+     * relevé fait à ce moment-là sont nulles.
+     * @param date la date dont les événements sont terminés
+     */
+    public void noter(long date) {
+        if (date < prochaine && date >= prochaine - periode) return;
+        if (date < prochaine - periode) {
+            caler();
+        }
+        prochaine = (date / periode + 1) * periode;
+        relever(date);
+    }
+
+    /** Prend les cumuls courants des systèmes comme ceux du dernier relevé. */
+    private void caler() {
+        for (int s = 0; s < nbSystemes; s++) {
+            BoidSystem system = systemes.get(s);
+            naissancesPrec[s] = system.getNaissances();
+            mortsPrec[s] = system.getMorts();
+            capturesPrec[s] = system.getCaptures();
+        }
+    }
+
+    /**
+     * @return le nombre de relevés abandonnés parce que l'écriture était en retard
+     */
+    public long getPerdus() {
+        return perdus;
+    }
+
+    /**
+     * @return le nombre de relevés faits (écrits ou en attente d'écriture)
+     */
+    public long getReleves() {
+        return publies;
+    }
+
+    /**
+     * Écrit les relevés en attente et ferme le fichier.
+     * @throws IOException si une écriture a échoué
+     */
+    @Override
+    public void close() throws IOException {
+        if (ferme) return;
+        ferme = true;
+        fini = true;
+        LockSupport.unpark(ecrivain);
+        try {
+            ecrivain.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            erreur = new InterruptedIOException("Interrompu en attendant l'écriture des populations");
+        }
+        try {
+            if (csv) texte.close();
+            else binaire.close();
+        } catch (IOException e) {
+            if (erreur == null) erreur = e;
+        }
+        if (erreur != null) {
+            throw erreur;
+        }
+    }
+
+    private void relever(long date) {
+        long r = publies;
+        if (r - ecrits >= capacite) {
+            perdus++;
+            return;
+        }
+        int k = (int) (r % capacite);
+        dates[k] = date;
+        for (int s = 0; s < nbSystemes; s++) {
+            BoidSystem system = systemes.get(s);
+            int i = k * nbSystemes + s;
+            List<Boid> boids = system.getBoids();
+            int debutAges = i * CLASSES_AGE;
+            for (int c = 0; c < CLASSES_AGE; c++) {
+                ages[debutAges + c] = 0;
+            }
+            double energie = 0;
+            for (int b = 0; b < boids.size(); b++) {
+                Boid boid = boids.get(b);
+                energie += boid.getenergie();
+                ages[debutAges + Math.min(boid.getAge() / largeurAge, CLASSES_AGE - 1)]++;
+            }
+            populations[i] = boids.size();
+            energies[i] = boids.isEmpty() ? 0 : energie / boids.size();
+            naissances[i] = system.getNaissances() - naissancesPrec[s];
+            morts[i] = system.getMorts() - mortsPrec[s];
+            captures[i] = system.getCaptures() - capturesPrec[s];
+            naissancesPrec[s] = system.getNaissances();
+            mortsPrec[s] = system.getMorts();
+            capturesPrec[s] = system.getCaptures();
+        }
+        publies = r + 1;        // publication du relevé au fil d'écriture
+    }
+
+    /** Boucle du fil d'écriture : vide l'anneau, puis attend de nouveaux relevés. */
+    private void ecrire() {
+        while (true) {
+            boolean termine = fini;
+            long p = publies;
+            for (long r = ecrits; r < p; r++) {
+                if (erreur == null) {
+                    try {
+                        ecrireReleve((int) (r % capacite));
+                    } catch (IOException e) {
+                        erreur = e;
+                    }
+                }
+                ecrits = r + 1;
+            }
+            if (termine) return;
+            LockSupport.parkNanos(ATTENTE_NS);
+        }
+    }
+
+    private void ecrireReleve(int k) throws IOException {
+        for (int s = 0; s < nbSystemes; s++) {
+            int i = k * nbSystemes + s;
+            if (csv) {
+                ligne.setLength(0);
+                ligne.append(dates[k]).append(',').append(s).append(',')
+                        .append(systemes.get(s).getNom()).append(',')
+                        .append(populations[i]).append(',').append(energies[i]).append(',')
+                        .append(naissances[i]).append(',').append(morts[i]).append(',').append(captures[i]);
+                for (int c = 0; c < CLASSES_AGE; c++) {
+                    ligne.append(',').append(ages[i * CLASSES_AGE + c]);
+                }
+                ligne.append('\n');
+                texte.append(ligne);
+            } else {
+                binaire.writeLong(dates[k]);
+                binaire.writeInt(s);
+                binaire.writeInt(populations[i]);
+                binaire.writeDouble(energies[i]);
+                binaire.writeLong(naissances[i]);
+                binaire.writeLong(morts[i]);
+                binaire.writeLong(captures[i]);
+                for (int c = 0; c < CLASSES_AGE; c++) {
+                    binaire.writeInt(ages[i * CLASSES_AGE + c]);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,355 @@
+package multi_agents.simulation;
+
+import multi_agents.EvenT.Instantane;
+import multi_agents.logic.Boid;
+import multi_agents.logic.BoidSystem;
+import multi_agents.logic.Vecteur2D;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Enregistre, à chaque pas de chaque système, l'état de tous ses boids (identifiant, position,
+ * vitesse, énergie, vivant) dans un fichier de trajectoires destiné à l'analyse hors ligne.
+ *
+ * Chaque pas est une image indépendante, rangée par colonnes : tous les identifiants, puis
+ * toutes les abscisses, etc. Les valeurs sont quantifiées en virgule fixe et chaque colonne
+ * est codée en varint par différence avec le boid précédent : des boids voisins dans la liste
+ * ont des valeurs proches, et un boid occupe une douzaine d'octets au lieu de 45.
+ *
+ * Le fil de la simulation ne fait que recopier les grandeurs des boids, en un seul parcours,
+ * dans les colonnes d'un tampon réutilisé ; la quantification, le codage et l'écriture sur
+ * disque sont faits par un fil dédié. Les images en attente (non encore codées) occupent au
+ * plus un budget d'octets fixé : si le disque ne suit pas et que le budget est atteint,
+ * l'image est abandonnée (et comptée) plutôt que de bloquer la simulation.
+ *
+ * Format (big-endian) :
+ * <pre>
+ * en-tête   : en-tête d'instantané (type TRAJECTOIRES), 3 échelles (double),
+ *             nombre de systèmes (int), puis 1 octet par système (1 = prédateurs)
+ * image     : longueur du contenu (int), date (long), système (int), puis le contenu :
+ *             nombre de boids (varint), 6 colonnes de varints zigzag (id, x, y, vx, vy, énergie),
+ *             drapeaux vivant (1 bit par boid)
+ * index     : pour chaque image, date (long), système (int), position dans le fichier (long)
+ * fin       : position de l'index (long), nombre d'images (int), images perdues (long), signature (int)
+ * </pre>
+ */
+public class EnregistreurTrajectoires implements AutoCloseable {
+
+    /** Résolution des positions : 1/64 de pixel. */
+    static final double ECHELLE_POSITION = 64;
+    /** Résolution des vitesses : 1/4096 de pixel par pas. */
+    static final double ECHELLE_VITESSE = 4096;
+    /** Résolution de l'énergie : 1/256. */
+    static final double ECHELLE_ENERGIE = 256;
+
+    static final int TAILLE_ENTETE_IMAGE = 4 + 8 + 4;
+    static final int TAILLE_ENTREE_INDEX = 8 + 4 + 8;
+    static final int TAILLE_FIN = 8 + 4 + 8 + 4;
+
+    /** Budget par défaut des images en attente d'écriture, en octets. */
+    public static final long BUDGET_DEFAUT = 64L << 20;
+
+    /** Marque de fin envoyée au fil d'écriture. */
+    private static final Tampon FIN = new Tampon();
+
+    private final List<BoidSystem> systemes;
+    private final FileChannel canal;
+    private final long budget;
+    private final ConcurrentLinkedDeque<Tampon> libres = new ConcurrentLinkedDeque<>();  // pile
+    private final LinkedBlockingQueue<Tampon> pleins = new LinkedBlockingQueue<>();
+    private final AtomicLong enAttente = new AtomicLong();  // octets des images non écrites
+    private final Thread ecrivain;
+    private long perdues;                   // images abandonnées (fil de la simulation)
+    private boolean ferme;
+    private volatile IOException erreur;
+
+    // Index, tenu par le fil d'écriture
+    private long position;
+    private volatile int nbImages;
+    private long[] dates = new long[1024];
+    private int[] numerosSysteme = new int[1024];
+    private long[] positions = new long[1024];
+
+    /**
+     * Crée (ou écrase) le fichier et démarre le fil d'écriture.
+     * @param fichier le fichier de trajectoires
+     * @param systemes les systèmes enregistrés ; leur rang dans la liste est leur numéro dans le fichier
+     * @param budget octets des images en attente d'écriture au-delà duquel les suivantes sont abandonnées
+     */
+    public EnregistreurTrajectoires(Path fichier, List<BoidSystem> systemes, long budget) throws IOException {
+        if (budget < 0) {
+            throw new IllegalArgumentException("Budget invalide : " + budget);
+        }
+        this.budget = budget;
+        this.systemes = new ArrayList<>(systemes);
+        this.canal = FileChannel.open(fichier, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+        ByteBuffer entete = ByteBuffer.allocate(Instantane.TAILLE_ENTETE + 3 * 8 + 4 + this.systemes.size());
+        entete.putInt(Instantane.SIGNATURE).putShort(Instantane.VERSION_TRAJECTOIRES).put(Instantane.TRAJECTOIRES);
+        entete.putDouble(ECHELLE_POSITION).putDouble(ECHELLE_VITESSE).putDouble(ECHELLE_ENERGIE);
+        entete.putInt(this.systemes.size());
+        for (BoidSystem system : this.systemes) {
+            entete.put((byte) (system.estpredateur() ? 1 : 0));
+        }
+        entete.flip();
+        try {
+            while (entete.hasRemaining()) {
+                position += canal.write(entete);
+            }
+        } catch (IOException e) {
+            canal.close();
+            throw e;
+        }
+        this.ecrivain = new Thread(this::ecrire, "enregistreur-trajectoires");
+        ecrivain.setDaemon(true);
+        ecrivain.start();
+    }
+
+    /**
+     * Enregistre l'état courant d'un système. Ne bloque jamais : si les images en attente
+     * d'écriture dépassent le budget, celle-ci est perdue.
+     * @param date la date de la simulation
+     * @param system le système qui vient de faire un pas
+     * @throws IllegalArgumentException si le système n'a pas été déclaré à la création
+     */
+    public void noter(long date, BoidSystem system) {
+        if (ferme) {
+            throw new IllegalStateException("Enregistrement terminé");
+        }
+        int numero = systemes.indexOf(system);
+        if (numero < 0) {
+            throw new IllegalArgumentException("Système non enregistré");
+        }
+        if (erreur != null || enAttente.get() > budget) {
+            perdues++;
+            return;
+        }
+        // Le dernier tampon rendu d'abord : seuls les tampons utilisés en même temps grossissent
+        Tampon t = libres.pollFirst();
+        if (t == null) {
+            t = new Tampon();
+        }
+        t.relever(date, numero, system.getBoids());
+        enAttente.addAndGet(t.brut);
+        pleins.add(t);
+    }
+
+    /**
+     * @return le nombre d'images abandonnées faute de budget (ou après une erreur d'écriture)
+     */
+    public long getPerdues() {
+        return perdues;
+    }
+
+    /**
+     * @return le nombre d'images déjà écrites dans le fichier
+     */
+    public int getEcrites() {
+        return nbImages;
+    }
+
+    /**
+     * Attend l'écriture des images en attente, écrit l'index et ferme le fichier.
+     * @throws IOException si une écriture a échoué (le fichier est alors incomplet)
+     */
+    @Override
+    public void close() throws IOException {
+        if (ferme) return;
+        ferme = true;
+        pleins.add(FIN);
+        try {
+            ecrivain.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            canal.close();
+            throw new InterruptedIOException("Interrompu en attendant l'écriture des trajectoires");
+        }
+        try {
+            if (erreur == null) {
+                ecrireIndex();
+            }
+        } finally {
+            canal.close();
+        }
+        if (erreur != null) {
+            throw erreur;
+        }
+    }
+
+    /** Boucle du fil d'écriture. */
+    private void ecrire() {
+        try {
+            Tampon t;
+            while ((t = pleins.take()) != FIN) {
+                if (erreur == null) {
+                    try {
+                        t.coder();
+                        ajouter(t);
+                    } catch (IOException | RuntimeException e) {
+                        erreur = e instanceof IOException ? (IOException) e : new IOException(e);
+                    }
+                }
+                enAttente.addAndGet(-t.brut);
+                libres.addFirst(t);
+            }
+        } catch (InterruptedException e) {
+            erreur = new InterruptedIOException("Fil d'écriture des trajectoires interrompu");
+        }
+    }
+
+    private void ajouter(Tampon t) throws IOException {
+        ByteBuffer contenu = ByteBuffer.wrap(t.octets, 0, t.taille);
+        while (contenu.hasRemaining()) {
+            canal.write(contenu);
+        }
+        int k = nbImages;
+        if (k == dates.length) {
+            dates = Arrays.copyOf(dates, 2 * k);
+            numerosSysteme = Arrays.copyOf(numerosSysteme, 2 * k);
+            positions = Arrays.copyOf(positions, 2 * k);
+        }
+        dates[k] = t.date;
+        numerosSysteme[k] = t.systeme;
+        positions[k] = position;
+        position += t.taille;
+        nbImages = k + 1;
+    }
+
+    private void ecrireIndex() throws IOException {
+        int n = nbImages;
+        ByteBuffer index = ByteBuffer.allocate(n * TAILLE_ENTREE_INDEX + TAILLE_FIN);
+        for (int k = 0; k < n; k++) {
+            index.putLong(dates[k]).putInt(numerosSysteme[k]).putLong(positions[k]);
+        }
+        index.putLong(position).putInt(n).putLong(perdues).putInt(Instantane.SIGNATURE);
+        index.flip();
+        while (index.hasRemaining()) {
+            canal.write(index);
+        }
+    }
+
+    /**
+     * Tampon réutilisable : les grandeurs brutes d'une image, relevées dans le fil de la
+     * simulation, puis l'image codée par le fil d'écriture.
+     */
+    private static final class Tampon {
+        // Grandeurs brutes, une colonne par grandeur
+        int n;
+        int[] id = new int[0];
+        double[] x = new double[0];
+        double[] y = new double[0];
+        double[] vx = new double[0];
+        double[] vy = new double[0];
+        double[] energie = new double[0];
+        boolean[] vivant = new boolean[0];
+        long brut;                      // octets des grandeurs brutes (compte du budget)
+
+        // Image codée
+        byte[] octets = new byte[1 << 16];
+        int taille;
+        long date;
+        int systeme;
+
+        /**
+         * Copie les grandeurs des boids dans les colonnes : un seul parcours des objets, le
+         * codage lit ensuite des tableaux contigus.
+         */
+        void relever(long date, int systeme, List<Boid> boids) {
+            this.date = date;
+            this.systeme = systeme;
+            n = boids.size();
+            if (id.length < n) {
+                id = new int[n];
+                x = new double[n];
+                y = new double[n];
+                vx = new double[n];
+                vy = new double[n];
+                energie = new double[n];
+                vivant = new boolean[n];
+            }
+            for (int i = 0; i < n; i++) {
+                Boid b = boids.get(i);
+                Vecteur2D p = b.getPosition();
+                Vecteur2D v = b.getVitesse();
+                id[i] = b.getId();
+                x[i] = p.x;
+                y[i] = p.y;
+                vx[i] = v.x;
+                vy[i] = v.y;
+                energie[i] = b.getenergie();
+                vivant[i] = b.estvivant();
+            }
+            brut = n * (4L + 5 * 8 + 1);
+        }
+
+        /**
+         * Code l'image à partir des colonnes : quantification, puis varints par différence.
+         */
+        void coder() {
+            taille = TAILLE_ENTETE_IMAGE;
+            reserver(5 + 6L * 5 * n + (n + 7) / 8);
+            ecrireVarint(n);
+            long prec = 0;
+            for (int i = 0; i < n; i++) {
+                long v = id[i];
+                long d = v - prec;
+                ecrireVarint((d << 1) ^ (d >> 63));
+                prec = v;
+            }
+            ecrireColonne(x, ECHELLE_POSITION);
+            ecrireColonne(y, ECHELLE_POSITION);
+            ecrireColonne(vx, ECHELLE_VITESSE);
+            ecrireColonne(vy, ECHELLE_VITESSE);
+            ecrireColonne(energie, ECHELLE_ENERGIE);
+            for (int i = 0; i < n; i += 8) {
+                int drapeaux = 0;
+                for (int j = i; j < Math.min(i + 8, n); j++) {
+                    if (vivant[j]) drapeaux |= 1 << (j - i);
+                }
+                octets[taille++] = (byte) drapeaux;
+            }
+            ByteBuffer.wrap(octets, 0, TAILLE_ENTETE_IMAGE)
+                    .putInt(taille - TAILLE_ENTETE_IMAGE).putLong(date).putInt(systeme);
+        }
+
+        /** Quantifie une colonne en virgule fixe et l'écrit en varints zigzag par différence. */
+        private void ecrireColonne(double[] colonne, double echelle) {
+            long prec = 0;
+            for (int i = 0; i < n; i++) {
+                long v = (int) Math.round(colonne[i] * echelle);
+                long d = v - prec;
+                ecrireVarint((d << 1) ^ (d >> 63));
+                prec = v;
+            }
+        }
+
+        private void reserver(long n) {
+            long besoin = taille + n;
+            if (besoin > octets.length) {
+                if (besoin > Integer.MAX_VALUE - 8) {
+                    throw new IllegalStateException("Image de trajectoires trop grande");
+                }
+                octets = Arrays.copyOf(octets, (int) Math.min(Integer.MAX_VALUE - 8, Math.max(besoin, 2L * octets.length)));
+            }
+        }
+
+        private void ecrireVarint(long v) {
+            while ((v & ~0x7FL) != 0) {
+                octets[taille++] = (byte) ((v & 0x7F) | 0x80);
+                v >>>= 7;
+            }
+            octets[taille++] = (byte) v;
+        }
+    }
+}
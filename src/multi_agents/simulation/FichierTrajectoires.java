@@ -0,0 +1,274 @@
+package multi_agents.simulation;
+
+import multi_agents.EvenT.Instantane;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Lecture d'un fichier écrit par {@link EnregistreurTrajectoires}.
+ *
+ * L'index est chargé à l'ouverture ; chaque image est ensuite décodée à la demande, sans lire
+ * les autres. Si le fichier n'a pas été fermé proprement (pas d'index à la fin), l'index est
+ * reconstruit en parcourant les images complètes.
+ *
+ * Le fichier est lu par une fenêtre projetée en mémoire, déplacée quand l'image demandée en
+ * sort : un fichier de plusieurs dizaines de gigaoctets se parcourt sans être chargé, et les
+ * images lues à la suite le sont directement depuis le cache du système.
+ */
+public class FichierTrajectoires implements AutoCloseable {
+
+    private final FileChannel canal;
+    private final double echellePosition;
+    private final double echelleVitesse;
+    private final double echelleEnergie;
+    private final boolean[] predateurs;
+    private final long perdues;
+
+    private int nbImages;
+    private long[] dates;
+    private int[] systemes;
+    private long[] positions;
+
+    /** Taille de la fenêtre projetée (agrandie si une image ne tient pas dedans). */
+    private static final long TAILLE_FENETRE = 1L << 28;
+    private final long taille;
+    private MappedByteBuffer fenetre;
+    private long debutFenetre;
+
+    /**
+     * Ouvre un fichier de trajectoires et charge son index.
+     * @throws IOException si le fichier n'est pas un fichier de trajectoires
+     */
+    public FichierTrajectoires(Path fichier) throws IOException {
+        canal = FileChannel.open(fichier, StandardOpenOption.READ);
+        taille = canal.size();
+        try {
+            ByteBuffer entete = lire(0, Instantane.TAILLE_ENTETE + 3 * 8 + 4);
+            if (entete.getInt() != Instantane.SIGNATURE) {
+                throw new IOException("Ce fichier n'est pas un fichier de trajectoires : " + fichier);
+            }
+            short version = entete.getShort();
+            if (entete.get() != Instantane.TRAJECTOIRES || !Instantane.lisible(Instantane.TRAJECTOIRES, version)) {
+                throw new IOException("Fichier de trajectoires non pris en charge : " + fichier);
+            }
+            echellePosition = entete.getDouble();
+            echelleVitesse = entete.getDouble();
+            echelleEnergie = entete.getDouble();
+            int nbSystemes = entete.getInt();
+            long debut = entete.limit();
+            ByteBuffer types = lire(debut, nbSystemes);
+            predateurs = new boolean[nbSystemes];
+            for (int s = 0; s < nbSystemes; s++) {
+                predateurs[s] = types.get() != 0;
+            }
+            perdues = chargerIndex(debut + nbSystemes);
+        } catch (IOException | RuntimeException e) {
+            canal.close();
+            throw e;
+        }
+    }
+
+    /** @return le nombre de systèmes enregistrés */
+    public int getNbSystemes() {
+        return predateurs.length;
+    }
+
+    /** @return true si le système de ce numéro est un système de prédateurs */
+    public boolean estPredateur(int systeme) {
+        return predateurs[systeme];
+    }
+
+    /** @return le nombre d'images (pas de système) du fichier */
+    public int getNbImages() {
+        return nbImages;
+    }
+
+    /** @return le nombre d'images abandonnées pendant l'enregistrement (-1 si le fichier est incomplet) */
+    public long getPerdues() {
+        return perdues;
+    }
+
+    /** @return la date de l'image k */
+    public long getDate(int k) {
+        return dates[k];
+    }
+
+    /** @return le numéro du système de l'image k */
+    public int getSysteme(int k) {
+        return systemes[k];
+    }
+
+    /**
+     * Décode l'image k.
+     * @param k le numéro de l'image
+     * @param dest le relevé à remplir (ses tableaux sont agrandis au besoin), ou null
+     * @return le relevé rempli
+     */
+    public Releve lireImage(int k, Releve dest) throws IOException {
+        ByteBuffer entete = lire(positions[k], EnregistreurTrajectoires.TAILLE_ENTETE_IMAGE);
+        int longueur = entete.getInt();
+        ByteBuffer in = lire(positions[k] + EnregistreurTrajectoires.TAILLE_ENTETE_IMAGE, longueur);
+        Releve r = dest != null ? dest : new Releve();
+        r.date = dates[k];
+        r.systeme = systemes[k];
+        int n = (int) lireVarint(in);
+        r.dimensionner(n);
+        long prec = 0;
+        for (int i = 0; i < n; i++) {
+            prec += lireZigzag(in);
+            r.ids[i] = (int) prec;
+        }
+        colonne(in, r.x, n, echellePosition);
+        colonne(in, r.y, n, echellePosition);
+        colonne(in, r.vx, n, echelleVitesse);
+        colonne(in, r.vy, n, echelleVitesse);
+        colonne(in, r.energie, n, echelleEnergie);
+        for (int i = 0; i < n; i += 8) {
+            int drapeaux = in.get();
+            for (int j = i; j < Math.min(i + 8, n); j++) {
+                r.vivant[j] = (drapeaux & (1 << (j - i))) != 0;
+            }
+        }
+        return r;
+    }
+
+    @Override
+    public void close() throws IOException {
+        fenetre = null;
+        canal.close();
+    }
+
+    /** Charge l'index de fin de fichier, ou le reconstruit s'il est absent. */
+    private long chargerIndex(long debutImages) throws IOException {
+        if (taille >= debutImages + EnregistreurTrajectoires.TAILLE_FIN) {
+            ByteBuffer fin = lire(taille - EnregistreurTrajectoires.TAILLE_FIN, EnregistreurTrajectoires.TAILLE_FIN);
+            long positionIndex = fin.getLong();
+            int n = fin.getInt();
+            long nbPerdues = fin.getLong();
+            if (fin.getInt() == Instantane.SIGNATURE && positionIndex >= debutImages
+                    && positionIndex + (long) n * EnregistreurTrajectoires.TAILLE_ENTREE_INDEX
+                       == taille - EnregistreurTrajectoires.TAILLE_FIN) {
+                ByteBuffer index = lire(positionIndex, n * EnregistreurTrajectoires.TAILLE_ENTREE_INDEX);
+                allouer(n);
+                for (int k = 0; k < n; k++) {
+                    dates[k] = index.getLong();
+                    systemes[k] = index.getInt();
+                    positions[k] = index.getLong();
+                }
+                nbImages = n;
+                return nbPerdues;
+            }
+        }
+        // Fichier interrompu : on garde les images complètes
+        allouer(1024);
+        long pos = debutImages;
+        while (pos + EnregistreurTrajectoires.TAILLE_ENTETE_IMAGE <= taille) {
+            ByteBuffer entete = lire(pos, EnregistreurTrajectoires.TAILLE_ENTETE_IMAGE);
+            int longueur = entete.getInt();
+            long date = entete.getLong();
+            int systeme = entete.getInt();
+            long suivante = pos + EnregistreurTrajectoires.TAILLE_ENTETE_IMAGE + longueur;
+            // Une image a au moins un octet (le nombre de boids) et des dates croissantes ;
+            // sinon on est arrivé dans un index incomplet ou une image tronquée
+            if (longueur <= 0 || suivante > taille || systeme < 0 || systeme >= predateurs.length
+                    || (nbImages > 0 && date < dates[nbImages - 1])) break;
+            if (nbImages == dates.length) {
+                dates = Arrays.copyOf(dates, 2 * nbImages);
+                systemes = Arrays.copyOf(systemes, 2 * nbImages);
+                positions = Arrays.copyOf(positions, 2 * nbImages);
+            }
+            dates[nbImages] = date;
+            systemes[nbImages] = systeme;
+            positions[nbImages] = pos;
+            nbImages++;
+            pos = suivante;
+        }
+        return -1;
+    }
+
+    private void allouer(int n) {
+        dates = new long[n];
+        systemes = new int[n];
+        positions = new long[n];
+    }
+
+    /**
+     * Rend n octets du fichier à partir d'une position, en déplaçant la fenêtre projetée si besoin.
+     * @return la fenêtre, positionnée sur ces octets et limitée à eux
+     */
+    private ByteBuffer lire(long position, int n) throws IOException {
+        if (position < 0 || position + n > taille) {
+            throw new EOFException("Fichier de trajectoires tronqué");
+        }
+        if (fenetre == null || position < debutFenetre || position + n > debutFenetre + fenetre.capacity()) {
+            long longueur = Math.min(Math.max(TAILLE_FENETRE, n), taille - position);
+            fenetre = canal.map(FileChannel.MapMode.READ_ONLY, position, longueur);
+            debutFenetre = position;
+        }
+        int debut = (int) (position - debutFenetre);
+        fenetre.limit(debut + n).position(debut);
+        return fenetre;
+    }
+
+    private static void colonne(ByteBuffer in, double[] dest, int n, double echelle) {
+        long prec = 0;
+        for (int i = 0; i < n; i++) {
+            prec += lireZigzag(in);
+            dest[i] = prec / echelle;
+        }
+    }
+
+    private static long lireZigzag(ByteBuffer in) {
+        long v = lireVarint(in);
+        return (v >>> 1) ^ -(v & 1);
+    }
+
+    private static long lireVarint(ByteBuffer in) {
+        long v = 0;
+        int decalage = 0;
+        byte b;
+        do {
+            b = in.get();
+            v |= (long) (b & 0x7F) << decalage;
+            decalage += 7;
+        } while (b < 0);
+        return v;
+    }
+
+    /**
+     * État décodé d'un système à une date : une colonne par grandeur, n boids.
+     * Les valeurs sont celles de la simulation arrondies à la résolution de l'enregistrement.
+     */
+    public static class Releve {
+        public long date;
+        public int systeme;
+        public int n;
+        public int[] ids = new int[0];
+        public double[] x = new double[0];
+        public double[] y = new double[0];
+        public double[] vx = new double[0];
+        public double[] vy = new double[0];
+        public double[] energie = new double[0];
+        public boolean[] vivant = new boolean[0];
+
+        void dimensionner(int n) {
+            this.n = n;
+            if (ids.length < n) {
+                ids = new int[n];
+                x = new double[n];
+                y = new double[n];
+                vx = new double[n];
+                vy = new double[n];
+                energie = new double[n];
+                vivant = new boolean[n];
+            }
+        }
+    }
+}
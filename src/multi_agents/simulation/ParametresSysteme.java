@@ -0,0 +1,114 @@
+package multi_agents.simulation;
+
+import multi_agents.logic.BoidSystem;
+import multi_agents.logic.Integrateur;
+import multi_agents.logic.PredateurBoidSystem;
+import multi_agents.logic.ProieBoidSystem;
+
+import java.util.Locale;
+
+/**
+ * Paramètres d'un système de boids (ceux des constructeurs de {@link ProieBoidSystem} et
+ * {@link PredateurBoidSystem}, plus la population initiale et le délai entre deux pas),
+ * pour créer autant de systèmes identiques que nécessaire, par exemple dans un {@link Balayage}.
+ * Les champs sont publics pour être réglés directement par les axes d'un balayage.
+ */
+public class ParametresSysteme {
+    public boolean predateur;
+    public int nbBoids;
+    public double rayonVision;
+    public double distanceSep;
+    public double Vmax;
+    public double Fmax;
+    public double angleVision;
+    public double poiDECohesion;
+    public double poiDEAlignement;
+    public double poiDESeparation;
+    /** Délai (en dates) entre deux pas du système */
+    public long delai;
+    /** Intégration du mouvement (voir {@link BoidSystem#setIntegrateur}) : Euler et pas fixe par défaut */
+    public Integrateur integrateur = Integrateur.EULER;
+    public int pasMax = 1;
+
+    /**
+     * @param predateur true pour un système de prédateurs, false pour des proies
+     * @param nbBoids la population initiale
+     * @param rayonVision le rayon dans lequel un boid voit ses voisins
+     * @param distanceSep la distance minimale entre deux boids
+     * @param Vmax la vitesse maximale
+     * @param Fmax la force de steering maximale
+     * @param angleVision l'angle de vision en radians
+     * @param poiDECohesion le poids de la cohésion
+     * @param poiDEAlignement le poids de l'alignement
+     * @param poiDESeparation le poids de la séparation
+     * @param delai le délai entre deux pas
+     */
+    public ParametresSysteme(boolean predateur, int nbBoids, double rayonVision, double distanceSep,
+                             double Vmax, double Fmax, double angleVision, double poiDECohesion,
+                             double poiDEAlignement, double poiDESeparation, long delai) {
+        this.predateur = predateur;
+        this.nbBoids = nbBoids;
+        this.rayonVision = rayonVision;
+        this.distanceSep = distanceSep;
+        this.Vmax = Vmax;
+        this.Fmax = Fmax;
+        this.angleVision = angleVision;
+        this.poiDECohesion = poiDECohesion;
+        this.poiDEAlignement = poiDEAlignement;
+        this.poiDESeparation = poiDESeparation;
+        this.delai = delai;
+    }
+
+    /**
+     * @return les proies de TestEcosystem
+     */
+    public static ParametresSysteme proies() {
+        return new ParametresSysteme(false, 30, 80.0, 20.0, 3.0, 0.15, Math.PI * 1.5, 1.0, 1.2, 1.5, 1);
+    }
+
+    /**
+     * @return les prédateurs de TestEcosystem
+     */
+    public static ParametresSysteme predateurs() {
+        return new ParametresSysteme(true, 10, 120.0, 25.0, 4.0, 0.2, Math.PI * 1.8, 0.8, 0.9, 1.2, 1);
+    }
+
+    /**
+     * @return une copie indépendante de ces paramètres
+     */
+    public ParametresSysteme copier() {
+        ParametresSysteme copie = new ParametresSysteme(predateur, nbBoids, rayonVision, distanceSep, Vmax, Fmax,
+                angleVision, poiDECohesion, poiDEAlignement, poiDESeparation, delai);
+        copie.integrateur = integrateur;
+        copie.pasMax = pasMax;
+        return copie;
+    }
+
+    /**
+     * Crée un système avec ces paramètres, dont tous les tirages (positions initiales comprises)
+     * sont fixés par la graine : deux systèmes créés avec la même graine évoluent à l'identique.
+     * @param width la largeur de la zone de simulation
+     * @param height la hauteur de la zone de simulation
+     * @param graine la graine du générateur du système
+     * @return le nouveau système
+     */
+    public BoidSystem creer(int width, int height, long graine) {
+        BoidSystem system = predateur
+                ? new PredateurBoidSystem(0, width, height, rayonVision, distanceSep, Vmax, Fmax, angleVision,
+                        poiDECohesion, poiDEAlignement, poiDESeparation)
+                : new ProieBoidSystem(0, width, height, rayonVision, distanceSep, Vmax, Fmax, angleVision,
+                        poiDECohesion, poiDEAlignement, poiDESeparation);
+        system.setIntegrateur(integrateur, pasMax);
+        system.getAlea().setEtat(graine);
+        system.reInit(nbBoids);
+        return system;
+    }
+
+    @Override
+    public String toString() {
+        return String.format(Locale.ROOT,
+                "%s[n=%d, vision=%.3g, sep=%.3g, Vmax=%.3g, Fmax=%.3g, angle=%.3g, cohesion=%.3g, alignement=%.3g, separation=%.3g, delai=%d, %s, pasMax=%d]",
+                predateur ? "predateurs" : "proies", nbBoids, rayonVision, distanceSep, Vmax, Fmax, angleVision,
+                poiDECohesion, poiDEAlignement, poiDESeparation, delai, integrateur, pasMax);
+    }
+}
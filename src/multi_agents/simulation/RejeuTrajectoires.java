@@ -0,0 +1,199 @@
+package multi_agents.simulation;
+
+import gui.GUISimulator;
+import gui.Simulable;
+import multi_agents.mesures.DessinJfr;
+
+import java.awt.Color;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+/**
+ * Rejoue dans l'interface graphique un fichier de trajectoires enregistré par
+ * {@link BoidSimulateur#enregistrer(Path)}, sans refaire la simulation.
+ *
+ * Une image du rejeu correspond à une date de la simulation : chaque système y est dessiné
+ * dans son dernier état enregistré à cette date. Une table, construite à l'ouverture en un
+ * seul parcours de l'index, donne pour chaque image et chaque système le numéro de l'image du
+ * fichier à décoder : aller à l'image k est une simple lecture dans cette table, quelle que
+ * soit la position courante, et on peut parcourir un très long enregistrement dans les deux sens.
+ */
+public class RejeuTrajectoires implements Simulable, AutoCloseable {
+    /** Couleurs par défaut : proies bleues, prédateurs rouges (comme TestEcosystem). */
+    private static final Color PROIES = new Color(50, 150, 255);
+    private static final Color PREDATEURS = new Color(255, 80, 80);
+
+    private final GUISimulator gui;
+    private final FichierTrajectoires fichier;
+    private final Color[] couleurs;
+    private final long[] dates;                 // dates distinctes des images, croissantes
+    private final int[] images;                 // image du fichier du système s à l'image k du rejeu
+                                                // en images[k * nbSystemes + s], -1 s'il n'y en a pas
+    private final FichierTrajectoires.Releve[] releves;
+    private int courante;
+
+    /**
+     * Ouvre un enregistrement et affiche sa première image.
+     * @param gui l'interface graphique
+     * @param chemin le fichier de trajectoires
+     * @param couleurs la couleur de chaque système, dans l'ordre de l'enregistrement (si aucune
+     *                 n'est donnée : bleu pour les proies, rouge pour les prédateurs)
+     */
+    public RejeuTrajectoires(GUISimulator gui, Path chemin, Color... couleurs) throws IOException {
+        this.gui = gui;
+        this.fichier = new FichierTrajectoires(chemin);
+        int nbSystemes = fichier.getNbSystemes();
+        this.couleurs = new Color[nbSystemes];
+        for (int s = 0; s < nbSystemes; s++) {
+            this.couleurs[s] = s < couleurs.length ? couleurs[s] : (fichier.estPredateur(s) ? PREDATEURS : PROIES);
+        }
+        this.releves = new FichierTrajectoires.Releve[nbSystemes];
+        for (int s = 0; s < nbSystemes; s++) {
+            releves[s] = new FichierTrajectoires.Releve();
+        }
+        // L'index est rangé par date : on en garde les dates distinctes, et pour chacune la
+        // dernière image de chaque système à cette date (reportée tant qu'il n'en a pas d'autre)
+        long[] d = new long[fichier.getNbImages()];
+        int[] dernieres = new int[nbSystemes];
+        Arrays.fill(dernieres, -1);
+        int[] table = new int[0];
+        int n = 0;
+        for (int k = 0; k < d.length; k++) {
+            if (n == 0 || fichier.getDate(k) != d[n - 1]) {
+                if (n > 0) table = noter(table, n - 1, dernieres);
+                d[n++] = fichier.getDate(k);
+            }
+            dernieres[fichier.getSysteme(k)] = k;
+        }
+        if (n > 0) table = noter(table, n - 1, dernieres);
+        this.dates = Arrays.copyOf(d, n);
+        this.images = Arrays.copyOf(table, n * nbSystemes);
+        if (gui != null) {
+            gui.setSimulable(this);
+        }
+        draw();
+    }
+
+    /** Range dans la table les images des systèmes à l'image k du rejeu (la table grandit au besoin). */
+    private static int[] noter(int[] table, int k, int[] dernieres) {
+        int n = dernieres.length;
+        if ((k + 1) * n > table.length) {
+            table = Arrays.copyOf(table, Math.max(2 * table.length, (k + 1) * n));
+        }
+        System.arraycopy(dernieres, 0, table, k * n, n);
+        return table;
+    }
+
+    /**
+     * @return le nombre d'images du rejeu
+     */
+    public int getNbImages() {
+        return dates.length;
+    }
+
+    /**
+     * @return le numéro de l'image affichée
+     */
+    public int getImage() {
+        return courante;
+    }
+
+    /**
+     * @return la date de simulation de l'image affichée
+     */
+    public long getDate() {
+        return dates.length == 0 ? 0 : dates[courante];
+    }
+
+    /**
+     * @param systeme le numéro du système
+     * @return l'état du système à l'image affichée, tel qu'il a été dessiné
+     */
+    public FichierTrajectoires.Releve getReleve(int systeme) {
+        return releves[systeme];
+    }
+
+    /**
+     * Affiche l'image k.
+     * @throws IndexOutOfBoundsException si k n'est pas un numéro d'image
+     * @throws UncheckedIOException si la lecture du fichier échoue
+     */
+    public void allerA(int k) {
+        if (k < 0 || k >= dates.length) {
+            throw new IndexOutOfBoundsException("Image " + k + " hors du rejeu [0, " + dates.length + "[");
+        }
+        courante = k;
+        draw();
+    }
+
+    /**
+     * Dessine chaque système dans son dernier état enregistré à la date de l'image courante.
+     */
+    public void draw() {
+        for (int s = 0; s < releves.length; s++) {
+            int k = dates.length == 0 ? -1 : images[courante * releves.length + s];
+            try {
+                if (k >= 0) {
+                    fichier.lireImage(k, releves[s]);
+                } else {
+                    releves[s].n = 0;       // pas encore d'image de ce système
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        if (gui == null) {
+            return;
+        }
+        DessinJfr jfr = new DessinJfr();
+        jfr.begin();
+        int elements = 0;
+        gui.reset();
+        for (int s = 0; s < releves.length; s++) {
+            FichierTrajectoires.Releve r = releves[s];
+            for (int i = 0; i < r.n; i++) {
+                if (r.vivant[i]) {
+                    gui.addGraphicalElement(BoidSimulateur.dessinBoid(r.x[i], r.y[i], r.vx[i], r.vy[i],
+                            r.energie[i], couleurs[s]));
+                    elements++;
+                }
+            }
+        }
+        jfr.end();
+        if (jfr.shouldCommit()) {
+            jfr.simulateur = getClass().getSimpleName();
+            jfr.elements = elements;
+            jfr.commit();
+        }
+    }
+
+    /**
+     * Passe à l'image suivante (on reste sur la dernière à la fin de l'enregistrement).
+     */
+    @Override
+    public void next() {
+        if (courante + 1 < dates.length) {
+            allerA(courante + 1);
+        }
+    }
+
+    /**
+     * Revient à la première image.
+     */
+    @Override
+    public void restart() {
+        if (dates.length > 0) {
+            allerA(0);
+        }
+    }
+
+    /**
+     * Ferme le fichier de trajectoires.
+     */
+    @Override
+    public void close() throws IOException {
+        fichier.close();
+    }
+}
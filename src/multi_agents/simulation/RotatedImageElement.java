@@ -6,6 +6,10 @@ import java.awt.Graphics2D;
 import java.awt.geom.AffineTransform;
 import java.awt.image.BufferedImage;
 import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
 import javax.imageio.ImageIO;
 
 /**
@@ -14,6 +18,9 @@ import javax.imageio.ImageIO;
  * l'image de loupe que j aie retrouve dans le dossier fourni
  */
 public class RotatedImageElement implements GraphicalElement {
+    /** Images déjà chargées, par chemin (null : image illisible). Le dessin se fait dans le seul fil de Swing. */
+    private static final Map<String, BufferedImage> IMAGES = new HashMap<>();
+
     private int x;
     private int y;
     private String imagePath;
@@ -49,8 +56,8 @@ public class RotatedImageElement implements GraphicalElement {
     @Override
     public void paint(Graphics2D g2d) {
         try {
-            // On charge l'image à chaque fois ( on peut optimiser avec le cache )
-            BufferedImage image = ImageIO.read(new File(imagePath));
+            // L'image n'est lue sur le disque qu'une fois : des milliers de boids sont redessinés à chaque image
+            BufferedImage image = image(imagePath);
 
             // On sauvegarde la transformation actuelle du contexte graphique
             AffineTransform oldTransform = g2d.getTransform();
@@ -82,4 +89,24 @@ public class RotatedImageElement implements GraphicalElement {
             g2d.fillOval(x - width / 2, y - height / 2, width, height);
         }
     }
+
+    /**
+     * Charge une image au premier appel, puis la rend depuis le cache.
+     * @throws IOException si l'image est illisible (on ne réessaie pas de la lire)
+     */
+    private static BufferedImage image(String chemin) throws IOException {
+        if (!IMAGES.containsKey(chemin)) {
+            BufferedImage image = null;
+            try {
+                image = ImageIO.read(new File(chemin));
+            } finally {
+                IMAGES.put(chemin, image);
+            }
+        }
+        BufferedImage image = IMAGES.get(chemin);
+        if (image == null) {
+            throw new FileNotFoundException(chemin);
+        }
+        return image;
+    }
 }